@@ -0,0 +1,90 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Deterministic test data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final String LATIN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_-";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяАБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ";
+    private static final String EXTENSION = ".txt";
+
+    private BenchmarkData() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Generates file names of the given length. The share of names written in Cyrillic is {@code cyrillicRatio},
+     * the rest are Latin, which matches folders where a few uploads have Russian names.
+     *
+     * @param count         number of names
+     * @param length        length of each name including the extension
+     * @param cyrillicRatio share of cyrillic names, from 0 to 1
+     * @param seed          random seed, the same seed gives the same names
+     * @return generated names
+     */
+    static String[] names(int count, int length, double cyrillicRatio, long seed) {
+        Random random = new Random(seed);
+        String[] names = new String[count];
+        int stemLength = Math.max(1, length - EXTENSION.length());
+        for (int i = 0; i < count; i++) {
+            String alphabet = random.nextDouble() < cyrillicRatio ? CYRILLIC : LATIN;
+            StringBuilder name = new StringBuilder(stemLength + EXTENSION.length());
+            for (int j = 0; j < stemLength; j++) {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            names[i] = name.append(EXTENSION).toString();
+        }
+        return names;
+    }
+
+    /**
+     * Creates empty files with unique names in the folder; every name gets a numeric prefix to avoid duplicates.
+     *
+     * @param folder        folder to fill
+     * @param count         number of files
+     * @param cyrillicRatio share of cyrillic names, from 0 to 1
+     * @param seed          random seed
+     * @throws IOException if a file could not be created
+     */
+    static void createFiles(Path folder, int count, double cyrillicRatio, long seed) throws IOException {
+        Files.createDirectories(folder);
+        String[] names = names(count, 24, cyrillicRatio, seed);
+        for (int i = 0; i < count; i++) {
+            Files.createFile(folder.resolve(i + "_" + names[i]));
+        }
+    }
+
+    /**
+     * Deletes the folder with all its contents, ignoring a missing folder.
+     *
+     * @param folder folder to delete
+     * @throws IOException if something could not be deleted
+     */
+    static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
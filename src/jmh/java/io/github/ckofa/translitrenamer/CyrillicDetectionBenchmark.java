@@ -0,0 +1,54 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CyrillicDetector#containsCyrillic(CharSequence)}, the check done for every folder entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CyrillicDetectionBenchmark {
+
+    private static final int NAME_COUNT = 1024;
+
+    @Param({"16", "64", "255"})
+    public int nameLength;
+
+    @Param({"0.0", "0.2", "1.0"})
+    public double cyrillicRatio;
+
+    @Param({"BASIC", "EXTENDED"})
+    public String blocks;
+
+    private String[] names;
+    private CyrillicDetector detector;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        names = BenchmarkData.names(NAME_COUNT, nameLength, cyrillicRatio, 42);
+        detector = "EXTENDED".equals(blocks) ? CyrillicDetector.EXTENDED : CyrillicDetector.BASIC;
+    }
+
+    @Benchmark
+    public boolean containsCyrillic() {
+        index = (index + 1) & (NAME_COUNT - 1);
+        return detector.containsCyrillic(names[index]);
+    }
+}
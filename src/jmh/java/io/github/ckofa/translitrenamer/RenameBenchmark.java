@@ -0,0 +1,77 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TransliterationFileRenamer#renameFiles(String)} for a whole folder.
+ * Renaming changes the folder, so it is created again before every invocation and the mode is single shot.
+ * {@code threads} is the number of concurrent renames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RenameBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int directorySize;
+
+    @Param({"0.2", "1.0"})
+    public double cyrillicRatio;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    private Path baseDir;
+    private Path folder;
+    private FileRenamer fileRenamer;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        LogConfigHelper.initLogFilePath(App.class);
+        baseDir = Files.createTempDirectory("translit-rename-bench");
+        fileRenamer = new TransliterationFileRenamer(new CyrillicFileFinder(),
+                RenameOptions.builder().concurrency(threads).build());
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        folder = baseDir.resolve("run" + invocation++);
+        BenchmarkData.createFiles(folder, directorySize, cyrillicRatio, 42);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        BenchmarkData.deleteRecursively(folder);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        BenchmarkData.deleteRecursively(baseDir);
+    }
+
+    @Benchmark
+    public RenameResult renameFolder() {
+        return fileRenamer.renameFiles(folder.toString());
+    }
+}
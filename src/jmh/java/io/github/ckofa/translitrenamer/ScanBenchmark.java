@@ -0,0 +1,69 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a recursive scan of a generated tree with a different number of scanning threads.
+ * The tree is only read, so it is created once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+
+    private static final int SUBFOLDERS = 64;
+
+    @Param({"100", "1000"})
+    public int directorySize;
+
+    @Param({"0.2"})
+    public double cyrillicRatio;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path root;
+    private FileFinder fileFinder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("translit-scan-bench");
+        for (int i = 0; i < SUBFOLDERS; i++) {
+            BenchmarkData.createFiles(root.resolve("folder" + i), directorySize, cyrillicRatio, i);
+        }
+        fileFinder = RecursiveCyrillicFileFinder.builder().parallelism(threads).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fileFinder.close();
+        BenchmarkData.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public List<File> scanTree() {
+        return fileFinder.findFilesOrThrow(root.toString());
+    }
+}
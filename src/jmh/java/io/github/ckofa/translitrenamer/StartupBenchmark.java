@@ -0,0 +1,108 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall time of a whole run of the application in a new process, from the start of the JVM to its exit.
+ * <p>
+ * {@code launch} is either the plain {@code java -jar} start or the launcher script with the AppCDS archive, so
+ * both must be built first: {@code mvn -P appcds,benchmark verify -Djmh.includes=StartupBenchmark}. An empty
+ * folder shows the fixed cost of a run, a small one the cost with the rename path loaded. Files renamed by a
+ * run are created again before the next one; both variants log next to the jar.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final boolean WINDOWS = System.getProperty("os.name").startsWith("Windows");
+
+    @Param({"jar", "launcher"})
+    public String launch;
+
+    @Param({"0", "20"})
+    public int directorySize;
+
+    private Path baseDir;
+    private Path folder;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        Path required = TARGET.resolve(launch.equals("jar") ? "TranslitRenamer.jar" : launcherName());
+        if (!Files.exists(required)) {
+            throw new IllegalStateException(required + " is missing, build it with: mvn -P appcds package");
+        }
+        baseDir = Files.createTempDirectory("translit-startup-bench");
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        folder = baseDir.resolve("run" + invocation++);
+        BenchmarkData.createFiles(folder, directorySize, 0.2, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(baseDir);
+    }
+
+    @Benchmark
+    public int run() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT);
+        // Both variants run on the JDK of the benchmark, the one the archive was dumped with
+        builder.environment().put("JAVA_HOME", System.getProperty("java.home"));
+        int exitCode = builder.start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("The run failed with exit code " + exitCode);
+        }
+        return exitCode;
+    }
+
+    private List<String> command() {
+        List<String> command = new ArrayList<>();
+        if (launch.equals("jar")) {
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-jar");
+            command.add(TARGET.resolve("TranslitRenamer.jar").toString());
+        } else {
+            if (WINDOWS) {
+                command.add("cmd");
+                command.add("/c");
+            }
+            command.add(TARGET.resolve(launcherName()).toString());
+        }
+        command.add(folder.toString());
+        return command;
+    }
+
+    private static String launcherName() {
+        return WINDOWS ? "translit-renamer.cmd" : "translit-renamer";
+    }
+}
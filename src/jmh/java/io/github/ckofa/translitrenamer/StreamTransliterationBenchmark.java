@@ -0,0 +1,54 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TransliteratorUtils#transliterate(java.io.Reader, Writer)} on a text of 16 MB of characters,
+ * a list of file names one per line, written to a writer that discards it. The score is the time of one pass;
+ * with the {@code gc} profiler the allocation per pass shows that it does not grow with the input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamTransliterationBenchmark {
+
+    private static final int TEXT_LENGTH = 16 << 20;
+
+    @Param({"0.0", "0.2", "1.0"})
+    public double cyrillicRatio;
+
+    private char[] text;
+
+    @Setup
+    public void setUp() {
+        String[] names = BenchmarkData.names(4096, 32, cyrillicRatio, 42);
+        StringBuilder builder = new StringBuilder(TEXT_LENGTH);
+        for (int i = 0; builder.length() < TEXT_LENGTH; i++) {
+            builder.append(names[i % names.length]).append('\n');
+        }
+        text = builder.toString().toCharArray();
+    }
+
+    @Benchmark
+    public long transliterateStream() throws IOException {
+        return TransliteratorUtils.transliterate(new CharArrayReader(text), Writer.nullWriter());
+    }
+}
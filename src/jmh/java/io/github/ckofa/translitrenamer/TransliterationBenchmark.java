@@ -0,0 +1,49 @@
+package io.github.ckofa.translitrenamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TransliteratorUtils#transliterate(String)} on a mix of Latin and cyrillic names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransliterationBenchmark {
+
+    private static final int NAME_COUNT = 1024;
+
+    @Param({"16", "64", "255"})
+    public int nameLength;
+
+    @Param({"0.0", "0.2", "1.0"})
+    public double cyrillicRatio;
+
+    private String[] names;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        names = BenchmarkData.names(NAME_COUNT, nameLength, cyrillicRatio, 42);
+    }
+
+    @Benchmark
+    public String transliterate() {
+        index = (index + 1) & (NAME_COUNT - 1);
+        return TransliteratorUtils.transliterate(names[index]);
+    }
+}
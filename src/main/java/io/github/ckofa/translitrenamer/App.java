@@ -3,6 +3,15 @@ package io.github.ckofa.translitrenamer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Main application class for renaming files with cyrillic characters in the name.
  * <p>
@@ -16,31 +25,469 @@ public class App {
         LogConfigHelper.initLogFilePath(App.class);
     }
 
-    private static final Logger log = LoggerFactory.getLogger(App.class);
+    /**
+     * Runs shorter than this never start the platform MBean server.
+     */
+    private static final Duration MBEAN_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * Holder of the logger of the application, created on the first message: a wrong command line and a client
+     * run print their output without starting the logging framework.
+     */
+    private static final class LogHolder {
+        private static final Logger LOG = LoggerFactory.getLogger(App.class);
+    }
+
+    private static Logger log() {
+        return LogHolder.LOG;
+    }
 
     /**
      * Application Entry Point.
      * <p>
-     * Expects a single command line argument - the directory path.
+     * Expects the directory path and optional flags, see {@link #printUsage()}.
      * </p>
      *
      * @param args command line arguments
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java -jar MyApp.jar <folder-path>");
-            System.out.println("Note: if the folder path contains spaces, enclose it in double quotes.");
-            System.out.println("Example (Windows): java -jar MyApp.jar \"C:\\Users\\Ivan\\My Files\\ToRename\"");
-            System.out.println("Example (Linux):   java -jar MyApp.jar \"/home/ivan/My Files/ToRename\"");
+        AppOptions options;
+        try {
+            options = AppOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            printUsage();
+            return;
+        }
+
+        if (options.getClientSocket() != null) {
+            sendToServer(options, args);
+            return;
+        }
+
+        // Metrics read the clock for every folder and file, so they are kept only when asked for or in a server
+        RunMetrics metrics = options.getMetricsFile() != null || options.getServerSocket() != null
+                ? RunMetrics.create()
+                : RunMetrics.disabled();
+        if (metrics.isEnabled()) {
+            metrics.registerMBeanAfter(MBEAN_DELAY);
+        }
+        RenameAuditSink auditSink = options.getAuditFile() != null && !options.isDryRun()
+                ? RenameAuditSink.open(options.getAuditFile(), options.getAuditFormat(),
+                        RenameAuditSink.DEFAULT_QUEUE_CAPACITY)
+                : null;
+        try {
+            if (options.getServerSocket() != null) {
+                serve(options, metrics, auditSink);
+            } else {
+                // A dry run prints the plan batch by batch, the results of the whole run keep only the counters
+                run(options, metrics, renameOptions(options).metrics(metrics).auditSink(auditSink)
+                        .batchListener(options.isDryRun() ? App::printPlan : null));
+            }
+        } finally {
+            if (auditSink != null) {
+                auditSink.close();
+            }
+            writeMetrics(metrics, options);
+            metrics.unregisterMBean();
+        }
+    }
+
+    private static void run(AppOptions options, RunMetrics metrics, RenameOptions.Builder renameOptions) {
+        boolean replay = options.getResumeJournal() != null || options.getUndoJournal() != null;
+        Path journalFile = replay
+                ? Objects.requireNonNullElse(options.getResumeJournal(), options.getUndoJournal())
+                : options.getJournalFile();
+        if (journalFile == null || (!replay && options.isDryRun())) {
+            process(options, metrics, renameOptions.build());
+            return;
+        }
+
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            renameOptions.journal(journal);
+            if (replay) {
+                replay(options, journal, renameOptions.build());
+            } else {
+                process(options, metrics, renameOptions.build());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log().error("Rename journal '{}' could not be used: {}", journalFile, e.getMessage());
+            System.out.println("Error: rename journal could not be used: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Logs the metrics of the run as JSON and writes them to the file given with {@code --metrics}.
+     */
+    private static void writeMetrics(RunMetrics metrics, AppOptions options) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+        String summary = metrics.getSummaryJson();
+        log().info("Run metrics: {}", summary);
+        if (options.getMetricsFile() == null) {
+            return;
+        }
+        try {
+            Files.writeString(options.getMetricsFile(), summary + System.lineSeparator());
+        } catch (IOException e) {
+            log().error("Failed to write run metrics to '{}'.", options.getMetricsFile(), e);
+        }
+    }
+
+    private static void process(AppOptions options, RunMetrics metrics, RenameOptions renameOptions) {
+        if (options.getManifest() != null) {
+            processManifest(options, renameOptions);
+            return;
+        }
+        if (options.getShardDirectory() != null) {
+            processShard(options, metrics, renameOptions);
+            return;
+        }
+        String folderPath = options.getFolderPath();
+        log().info("Program start, folder for processing files: {}", folderPath);
+        DirectoryStateIndex stateIndex = options.getIndexFile() != null
+                ? DirectoryStateIndex.load(options.getIndexFile(), options.getScanSettings())
+                : null;
+        try (FileFinder fileFinder = createFileFinder(options, stateIndex, metrics);
+             TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(fileFinder, renameOptions)) {
+            // The watch starts before the first pass, so the files created during the pass are not missed
+            DirectoryWatcher watcher = options.isWatch() ? createWatcher(options, fileRenamer) : null;
+            if (options.isWatch() && watcher == null) {
+                return;
+            }
+            RenameResult result = renameFolder(options, metrics, fileFinder, fileRenamer);
+            if (options.isDryRun()) {
+                printPlanTotals(result.getPlannedCount(), result.getSkippedCount(), result.getFailedCount());
+            }
+            if (stateIndex != null) {
+                saveStateIndex(stateIndex, options);
+            }
+            log().info("Program finish, renamed: {}, planned: {}, skipped: {}, failed: {}",
+                    result.getRenamedCount(), result.getPlannedCount(), result.getSkippedCount(),
+                    result.getFailedCount());
+
+            if (watcher != null) {
+                watch(watcher);
+            }
+        }
+    }
+
+    /**
+     * Renames the top-level subtrees of the folder not taken by the other workers sharing the shard folder.
+     */
+    private static void processShard(AppOptions options, RunMetrics metrics, RenameOptions renameOptions) {
+        Path root = Path.of(options.getFolderPath());
+        ShardedRenamer.Builder builder = ShardedRenamer.builder(root, options.getShardDirectory())
+                .leaseDuration(options.getLeaseDuration())
+                .followLinks(options.isFollowLinks());
+        if (options.getWorkerId() != null) {
+            builder.workerId(options.getWorkerId());
+        }
+        log().info("Program start, sharded run over folder: {}", root);
+        RenameResult result;
+        // A subtree is one level below the folder, so its depth limit is one less
+        try (FileFinder subtreeFinder = createFileFinder(options, null, metrics, options.getMaxDepth() - 1);
+             FileFinder rootFinder = new CyrillicFileFinder(detectorOf(options), metrics, options.getFilter());
+             TransliterationFileRenamer subtreeRenamer = new TransliterationFileRenamer(subtreeFinder, renameOptions);
+             TransliterationFileRenamer rootRenamer = new TransliterationFileRenamer(rootFinder, renameOptions)) {
+            result = builder.build().run(subtreeRenamer, rootRenamer);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log().error("Sharded run failed: {}", e.getMessage());
+            System.out.println("Error: sharded run failed: " + e.getMessage());
+            return;
+        }
+        log().info("Program finish, renamed: {}, planned: {}, skipped: {}, failed: {}", result.getRenamedCount(),
+                result.getPlannedCount(), result.getSkippedCount(), result.getFailedCount());
+    }
+
+    /**
+     * Creates the settings of the renamer given on the command line; metrics, journal and audit are set by the caller.
+     */
+    static RenameOptions.Builder renameOptions(AppOptions options) {
+        return RenameOptions.builder()
+                .concurrency(options.getConcurrency())
+                .collisionStrategy(options.getCollisionStrategy())
+                .backend(options.getBackend())
+                .governor(options.getGovernor())
+                .dryRun(options.isDryRun())
+                .scheme(options.getScheme())
+                .nameCacheSize(options.isRenameDirectories() ? DirectoryTreeRenamer.DEFAULT_NAME_CACHE_SIZE : 0);
+    }
+
+    /**
+     * Renames the files, and with {@code --rename-directories} the folders, of the folder given in the options.
+     */
+    static RenameResult renameFolder(AppOptions options, RunMetrics metrics, FileFinder fileFinder,
+                                     FileRenamer fileRenamer) {
+        String folderPath = options.getFolderPath();
+        if (options.isRenameDirectories()) {
+            return DirectoryTreeRenamer.builder(fileRenamer)
+                    .maxDepth(options.isRecursive() ? options.getMaxDepth() : 0)
+                    .followLinks(options.isFollowLinks())
+                    .detector(detectorOf(options))
+                    .metrics(metrics)
+                    .filter(options.getFilter())
+                    .build()
+                    .renameTree(folderPath);
+        }
+        if (options.isStreaming()) {
+            return new StreamingRenamePipeline(fileFinder, fileRenamer, options.getQueueSize(),
+                    StreamingRenamePipeline.DEFAULT_BATCH_SIZE).run(folderPath);
+        }
+        return fileRenamer.renameFiles(folderPath);
+    }
+
+    /**
+     * Creates the renamer of the manifest given in the options.
+     */
+    static ManifestRenamer manifestRenamer(AppOptions options, FileRenamer fileRenamer) {
+        return ManifestRenamer.builder(fileRenamer)
+                .delimiter(options.getManifestDelimiter())
+                .detector(detectorOf(options))
+                .build();
+    }
+
+    /**
+     * Renames the files listed in the manifest file or, for {@code -}, on the standard input.
+     */
+    private static void processManifest(AppOptions options, RenameOptions renameOptions) {
+        String manifest = options.getManifest();
+        log().info("Program start, manifest of files for processing: {}", manifest);
+
+        ManifestRenamer.Totals totals;
+        try (TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null, renameOptions);
+             InputStream in = "-".equals(manifest) ? System.in : Files.newInputStream(Path.of(manifest))) {
+            totals = manifestRenamer(options, fileRenamer).run(in);
+        } catch (IOException | InvalidPathException e) {
+            log().error("Manifest '{}' could not be read: {}", manifest, e.getMessage());
+            System.out.println("Error: manifest could not be read: " + e.getMessage());
+            return;
+        }
+        if (options.isDryRun()) {
+            printPlanTotals(totals.planned(), totals.skipped(), totals.failed());
+        }
+        log().info("Program finish, paths: {}, ignored: {}, renamed: {}, planned: {}, skipped: {}, failed: {}",
+                totals.paths(), totals.ignored(), totals.renamed(), totals.planned(), totals.skipped(), totals.failed());
+    }
+
+    /**
+     * Registers the folders to watch; the events are kept until {@link #watch(DirectoryWatcher)} is called.
+     *
+     * @return the watcher, or {@code null} if the folder could not be watched
+     */
+    private static DirectoryWatcher createWatcher(AppOptions options, FileRenamer fileRenamer) {
+        try {
+            return DirectoryWatcher.builder(Path.of(options.getFolderPath()), fileRenamer)
+                    .maxDepth(options.isRecursive() ? options.getMaxDepth() : 0)
+                    .followLinks(options.isFollowLinks())
+                    .detector(detectorOf(options))
+                    .debounce(options.getWatchDebounce())
+                    .filter(options.getFilter())
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            log().error("Unable to watch folder: {}", e.getMessage());
+            System.out.println("Error: unable to watch folder: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Keeps renaming new files until the process is stopped, the watcher is closed by a shutdown hook.
+     */
+    private static void watch(DirectoryWatcher watcher) {
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                watcher.close();
+                // Let the main thread close the journal and write the metrics before the JVM halts
+                mainThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (IOException e) {
+                log().error("Failed to stop watching", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "translit-watch-shutdown"));
+        watcher.run();
+    }
+
+    /**
+     * Sends the job to a running server and prints the outcomes it reports.
+     */
+    private static void sendToServer(AppOptions options, String[] args) {
+        try {
+            RenameClient.send(options.getClientSocket(), RenameClient.jobArguments(args), System.in, System.out);
+        } catch (IOException e) {
+            System.out.println("Error: server at '" + options.getClientSocket() + "' is not available: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves rename jobs until the process is stopped, the server is closed by a shutdown hook.
+     */
+    private static void serve(AppOptions options, RunMetrics metrics, RenameAuditSink auditSink) {
+        RenameServer server = RenameServer.builder(options.getServerSocket())
+                .workers(options.getWorkers())
+                .queueCapacity(options.getJobQueueSize())
+                .metrics(metrics)
+                .auditSink(auditSink)
+                .build();
+        try {
+            server.start();
+        } catch (IOException e) {
+            log().error("Unable to listen on socket '{}': {}", options.getServerSocket(), e.getMessage());
+            System.out.println("Error: unable to listen on socket: " + e.getMessage());
+            return;
+        }
+        Thread mainThread = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                // Let the main thread close the audit and write the metrics before the JVM halts
+                mainThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "translit-serve-shutdown"));
+        server.awaitTermination();
+    }
+
+    /**
+     * Continues or reverts the run recorded in a journal, without scanning any folder.
+     */
+    private static void replay(AppOptions options, RenameJournal journal, RenameOptions renameOptions) {
+        boolean undo = options.getUndoJournal() != null;
+        log().info("Program start, {} the run recorded in journal: {}", undo ? "undoing" : "resuming", journal.getFile());
+        RenameResult result;
+        try (TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null, renameOptions)) {
+            result = undo ? fileRenamer.undo(journal) : fileRenamer.resume(journal);
+        }
+        if (options.isDryRun()) {
+            printPlanTotals(result.getPlannedCount(), result.getSkippedCount(), result.getFailedCount());
+        }
+        log().info("Program finish, renamed: {}, planned: {}, skipped: {}, failed: {}", result.getRenamedCount(),
+                result.getPlannedCount(), result.getSkippedCount(), result.getFailedCount());
+    }
+
+    private static void saveStateIndex(DirectoryStateIndex stateIndex, AppOptions options) {
+        log().info("Incremental scan: {} unchanged folders with {} entries were not listed.",
+                stateIndex.getSkippedDirectories(), stateIndex.getSkippedEntries());
+        if (options.isDryRun()) {
             return;
         }
+        try {
+            stateIndex.save(options.getIndexFile());
+        } catch (IOException e) {
+            log().error("Failed to save the folder state index '{}', the next run will scan everything.",
+                    options.getIndexFile(), e);
+        }
+    }
+
+    /**
+     * Prints the planned outcomes of a batch of a dry run; the totals are printed once, at the end of the run.
+     */
+    private static void printPlan(RenameResult result) {
+        for (RenameOutcome outcome : result.getOutcomes()) {
+            switch (outcome.status()) {
+                case PLANNED -> System.out.println(outcome.source() + " -> " + outcome.target().getFileName());
+                case SKIPPED -> System.out.println(outcome.source() + " (skip: " + outcome.message() + ")");
+                case FAILED -> System.out.println(outcome.source() + " -> " + outcome.target().getFileName()
+                        + " (conflict: " + outcome.message() + ")");
+                default -> {
+                }
+            }
+        }
+    }
 
-        String folderPath = args[0];
-        log.info("Program start, folder for processing files: {}", folderPath);
+    private static void printPlanTotals(long planned, long skipped, long conflicts) {
+        System.out.println("Planned: " + planned + ", skipped: " + skipped + ", conflicts: " + conflicts);
+    }
+
+    static FileFinder createFileFinder(AppOptions options, DirectoryStateIndex stateIndex, RunMetrics metrics) {
+        return createFileFinder(options, stateIndex, metrics, options.getMaxDepth());
+    }
 
-        FileFinder fileFinder = new CyrillicFileFinder();
-        FileRenamer fileRenamer = new TransliterationFileRenamer(fileFinder);
+    private static FileFinder createFileFinder(AppOptions options, DirectoryStateIndex stateIndex, RunMetrics metrics,
+                                               int maxDepth) {
+        CyrillicDetector detector = detectorOf(options);
+        if (!options.isRecursive()) {
+            return new CyrillicFileFinder(detector, metrics, options.getFilter());
+        }
+        return RecursiveCyrillicFileFinder.builder()
+                .maxDepth(maxDepth)
+                .parallelism(options.getParallelism())
+                .followLinks(options.isFollowLinks())
+                .deduplicate(options.isDeduplicate())
+                .maxTrackedKeys(options.getMaxTrackedKeys())
+                .detector(detector)
+                .stateIndex(stateIndex)
+                .metrics(metrics)
+                .filter(options.getFilter())
+                .governor(options.getGovernor())
+                .build();
+    }
+
+    static CyrillicDetector detectorOf(AppOptions options) {
+        return options.isExtendedCyrillic() ? CyrillicDetector.EXTENDED : CyrillicDetector.BASIC;
+    }
 
-        fileRenamer.renameFiles(folderPath);
+    private static void printUsage() {
+        System.out.println("Usage: java -jar MyApp.jar [options] <folder-path>");
+        System.out.println("Options:");
+        System.out.println("  --recursive          also process all subfolders");
+        System.out.println("  --max-depth=<n>      with --recursive, limit the depth of subfolders (0 - folder itself)");
+        System.out.println("  --parallelism=<n>    with --recursive, number of scanning threads (default: number of CPUs)");
+        System.out.println("  --follow-links       with --recursive, follow symbolic links");
+        System.out.println("  --dedup              with --recursive, scan folders reached through several paths only once;");
+        System.out.println("                       every hard or symbolic link to a file is still renamed");
+        System.out.println("  --max-tracked-keys=<n> with --dedup, max number of folders remembered");
+        System.out.println("                       (default: 4194304, up to 64 MB)");
+        System.out.println("  --rename-directories also rename folders, each one after its contents");
+        System.out.println("  --incremental=<file> with --recursive, skip folders unchanged since the run that wrote <file>");
+        System.out.println("  --extended-cyrillic  also detect Cyrillic Supplement and Extended blocks");
+        System.out.println("  --include=<glob>     rename only files whose name matches <glob>, may be repeated");
+        System.out.println("  --exclude=<glob>     do not rename files whose name matches <glob>, may be repeated");
+        System.out.println("  --regex=<regex>      rename only files whose whole name matches <regex>");
+        System.out.println("  --ext=<e1,e2>        rename only files with one of the extensions");
+        System.out.println("  --min-size=<size>    rename only files of at least <size> bytes, K, M and G suffixes allowed");
+        System.out.println("  --max-size=<size>    rename only files of at most <size> bytes");
+        System.out.println("  --older-than=<age>   rename only files not modified for <age>, e.g. 90s, 30m, 1h, 2d");
+        System.out.println("  --newer-than=<age>   rename only files modified within <age>");
+        System.out.println("  --skip-hidden        do not rename hidden files");
+        System.out.println("  --scheme=<s>         transliteration scheme: default, gost-7.79, iso-9, bgn-pcgn, ukrainian,");
+        System.out.println("                       belarusian, serbian, or the path to a scheme file");
+        System.out.println("  --concurrency=<n>    number of files renamed at the same time (default: 1)");
+        System.out.println("  --on-conflict=<s>    what to do if the new name is taken: suffix (default), skip, fail");
+        System.out.println("  --backend=<b>        how files are moved: directory-handle (default, renames relative to an");
+        System.out.println("                       open folder, where supported) or path");
+        System.out.println("  --max-ops=<n>        start at most <n> moves and folder listings per second, for shared storage");
+        System.out.println("  --adaptive           adjust the number of concurrent moves and listings to the storage latency,");
+        System.out.println("                       up to --concurrency and --parallelism");
+        System.out.println("  --dry-run            print the planned renames without changing anything");
+        System.out.println("  --stream             rename files while the folder is still being scanned");
+        System.out.println("  --queue-size=<n>     with --stream, max number of found files waiting to be renamed");
+        System.out.println("  --manifest=<file>    rename the files listed in <file> (- for standard input), one path per line");
+        System.out.println("  --null               with --manifest, paths are separated by NUL characters (find -print0)");
+        System.out.println("  --journal=<file>     record every rename in <file> to be able to resume or undo the run");
+        System.out.println("  --resume=<file>      finish the renames of an interrupted run recorded in <file>, no folder path needed");
+        System.out.println("  --undo=<file>        revert the renames recorded in <file>, no folder path needed");
+        System.out.println("  --audit=<file>       append a record of every renamed file to <file>, written in the background");
+        System.out.println("  --audit-format=<f>   with --audit, csv (default) or binary");
+        System.out.println("  --serve=<socket>     keep running and accept rename jobs on a Unix domain socket, no folder path needed");
+        System.out.println("  --workers=<n>        with --serve, number of jobs run at the same time (default: number of CPUs)");
+        System.out.println("  --job-queue=<n>      with --serve, max number of jobs waiting for a worker (default: 64)");
+        System.out.println("  --client=<socket>    send the job to the server listening on <socket> instead of running it here");
+        System.out.println("  --metrics=<file>     write counters and latencies of the run to <file> as JSON");
+        System.out.println("  --watch              after the first pass keep running and rename new files as they appear");
+        System.out.println("  --watch-debounce=<ms> with --watch, quiet period of a folder before its files are renamed (default: 500)");
+        System.out.println("  --shard-dir=<dir>    with --recursive, share the top-level subfolders with other processes running");
+        System.out.println("                       with the same <dir>, on this or other hosts; use a new <dir> for every run");
+        System.out.println("  --lease=<seconds>    with --shard-dir, time after which the subfolders of a stopped process are");
+        System.out.println("                       taken over (default: 60)");
+        System.out.println("  --worker-id=<id>     with --shard-dir, name of this process in the lease files (default: pid@host)");
+        System.out.println("Note: if the folder path contains spaces, enclose it in double quotes.");
+        System.out.println("Example (Windows): java -jar MyApp.jar \"C:\\Users\\Ivan\\My Files\\ToRename\"");
+        System.out.println("Example (Linux):   java -jar MyApp.jar \"/home/ivan/My Files/ToRename\"");
     }
 }
@@ -0,0 +1,494 @@
+package io.github.ckofa.translitrenamer;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Command line options of the application.
+ * <p>
+ * Options are given as {@code --name} flags or {@code --name=value} pairs, the only positional argument
+ * is the path to the folder to process.
+ * </p>
+ */
+final class AppOptions {
+
+    private String folderPath;
+    private boolean recursive;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean followLinks;
+    private boolean deduplicate;
+    private int maxTrackedKeys = FileKeySet.DEFAULT_MAX_KEYS;
+    private boolean renameDirectories;
+    private Path indexFile;
+    private boolean extendedCyrillic;
+    private final List<String> includes = new ArrayList<>();
+    private final List<String> excludes = new ArrayList<>();
+    private String nameRegex;
+    private String[] extensions;
+    private long minSize;
+    private long maxSize = Long.MAX_VALUE;
+    private Duration olderThan;
+    private Duration newerThan;
+    private boolean skipHidden;
+    private EntryFilter filter = EntryFilter.ALL;
+    private TransliterationScheme scheme = TransliterationScheme.defaultScheme();
+    private boolean streaming;
+    private int concurrency = 1;
+    private CollisionStrategy collisionStrategy = CollisionStrategy.SUFFIX;
+    private RenameBackend backend = RenameBackend.DIRECTORY_HANDLE;
+    private int maxOpsPerSecond;
+    private boolean adaptiveConcurrency;
+    private IoGovernor governor;
+    private boolean dryRun;
+    private int queueSize = StreamingRenamePipeline.DEFAULT_QUEUE_CAPACITY;
+    private boolean watch;
+    private Path journalFile;
+    private Path resumeJournal;
+    private Path undoJournal;
+    private Path metricsFile;
+    private String manifest;
+    private ManifestRenamer.Delimiter manifestDelimiter = ManifestRenamer.Delimiter.NEWLINE;
+    private Path serverSocket;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int jobQueueSize = RenameServer.DEFAULT_QUEUE_CAPACITY;
+    private Path clientSocket;
+    private Path auditFile;
+    private RenameAuditSink.Format auditFormat = RenameAuditSink.Format.CSV;
+    // Defaults of the durations are taken in the getters: reading them here would load the classes and their
+    // loggers, and start the logging framework for a wrong command line too
+    private Duration watchDebounce;
+    private Path shardDirectory;
+    private Duration leaseDuration;
+    private String workerId;
+
+    private AppOptions() {
+    }
+
+    /**
+     * Parses command line arguments.
+     *
+     * @param args command line arguments
+     * @return parsed options
+     * @throws IllegalArgumentException if an option is unknown, has an invalid value or the folder path is missing
+     */
+    static AppOptions parse(String[] args) {
+        AppOptions options = new AppOptions();
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                if (options.folderPath != null) {
+                    throw new IllegalArgumentException("Only one folder path can be specified: " + arg);
+                }
+                options.folderPath = arg;
+                continue;
+            }
+
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg : arg.substring(0, separator);
+            String value = separator < 0 ? null : arg.substring(separator + 1);
+
+            switch (name) {
+                case "--recursive" -> options.recursive = true;
+                case "--max-depth" -> options.maxDepth = parseInt(name, value, 0);
+                case "--parallelism" -> options.parallelism = parseInt(name, value, 1);
+                case "--follow-links" -> options.followLinks = true;
+                case "--dedup" -> options.deduplicate = true;
+                case "--max-tracked-keys" -> options.maxTrackedKeys = parseInt(name, value, 1);
+                case "--rename-directories" -> options.renameDirectories = true;
+                case "--incremental" -> options.indexFile = Path.of(requireValue(name, value));
+                case "--extended-cyrillic" -> options.extendedCyrillic = true;
+                case "--include" -> options.includes.add(requireValue(name, value));
+                case "--exclude" -> options.excludes.add(requireValue(name, value));
+                case "--regex" -> options.nameRegex = requireValue(name, value);
+                case "--ext" -> options.extensions = requireValue(name, value).split(",");
+                case "--min-size" -> options.minSize = parseSize(name, value);
+                case "--max-size" -> options.maxSize = parseSize(name, value);
+                case "--older-than" -> options.olderThan = parseAge(name, value);
+                case "--newer-than" -> options.newerThan = parseAge(name, value);
+                case "--skip-hidden" -> options.skipHidden = true;
+                case "--scheme" -> options.scheme = TransliterationScheme.resolve(requireValue(name, value));
+                case "--stream" -> options.streaming = true;
+                case "--queue-size" -> options.queueSize = parseInt(name, value, 1);
+                case "--concurrency" -> options.concurrency = parseInt(name, value, 1);
+                case "--on-conflict" -> options.collisionStrategy = parseEnum(name, value, CollisionStrategy.class);
+                case "--backend" -> options.backend = parseEnum(name, value, RenameBackend.class);
+                case "--max-ops" -> options.maxOpsPerSecond = parseInt(name, value, 1);
+                case "--adaptive" -> options.adaptiveConcurrency = true;
+                case "--dry-run" -> options.dryRun = true;
+                case "--watch" -> options.watch = true;
+                case "--journal" -> options.journalFile = Path.of(requireValue(name, value));
+                case "--resume" -> options.resumeJournal = Path.of(requireValue(name, value));
+                case "--undo" -> options.undoJournal = Path.of(requireValue(name, value));
+                case "--manifest" -> options.manifest = requireValue(name, value);
+                case "--null" -> options.manifestDelimiter = ManifestRenamer.Delimiter.NUL;
+                case "--serve" -> options.serverSocket = Path.of(requireValue(name, value));
+                case "--workers" -> options.workers = parseInt(name, value, 1);
+                case "--job-queue" -> options.jobQueueSize = parseInt(name, value, 1);
+                case "--client" -> options.clientSocket = Path.of(requireValue(name, value));
+                case "--metrics" -> options.metricsFile = Path.of(requireValue(name, value));
+                case "--audit" -> options.auditFile = Path.of(requireValue(name, value));
+                case "--audit-format" -> options.auditFormat = parseEnum(name, value, RenameAuditSink.Format.class);
+                case "--watch-debounce" -> options.watchDebounce = Duration.ofMillis(parseInt(name, value, 0));
+                case "--shard-dir" -> options.shardDirectory = Path.of(requireValue(name, value));
+                case "--lease" -> options.leaseDuration = Duration.ofSeconds(parseInt(name, value, 1));
+                case "--worker-id" -> options.workerId = requireValue(name, value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        options.filter = options.buildFilter();
+        options.governor = options.buildGovernor();
+
+        boolean replay = options.resumeJournal != null || options.undoJournal != null;
+        if (options.resumeJournal != null && options.undoJournal != null) {
+            throw new IllegalArgumentException("Options --resume and --undo cannot be used together");
+        }
+        if (replay && (options.folderPath != null || options.journalFile != null || options.watch)) {
+            throw new IllegalArgumentException("Options --resume and --undo take only the journal, not a folder");
+        }
+        if (options.manifest != null && (replay || options.folderPath != null || options.streaming
+                || options.watch || options.indexFile != null || options.renameDirectories)) {
+            throw new IllegalArgumentException("Option --manifest takes the paths from the manifest only, "
+                    + "without a folder, --resume, --undo, --stream, --watch, --incremental or --rename-directories");
+        }
+        if (options.filter != EntryFilter.ALL && (replay || options.manifest != null)) {
+            throw new IllegalArgumentException("File filters apply to the files found in a folder, "
+                    + "not to --manifest, --resume or --undo");
+        }
+        if (options.serverSocket != null && (replay || options.folderPath != null || options.manifest != null
+                || options.journalFile != null || options.watch || options.clientSocket != null)) {
+            throw new IllegalArgumentException("Option --serve takes the folders from the jobs, "
+                    + "without a folder, --manifest, --journal, --resume, --undo, --watch or --client");
+        }
+        if (options.folderPath == null && !replay && options.manifest == null && options.serverSocket == null) {
+            throw new IllegalArgumentException("Folder path is not specified");
+        }
+        if (options.indexFile != null && !options.recursive) {
+            throw new IllegalArgumentException("Option --incremental requires --recursive");
+        }
+        if (options.renameDirectories && (options.streaming || options.indexFile != null)) {
+            throw new IllegalArgumentException("Option --rename-directories cannot be used with --stream or --incremental");
+        }
+        if (options.shardDirectory != null && (!options.recursive || options.maxDepth == 0
+                || options.folderPath == null || options.dryRun || options.streaming || options.watch
+                || options.indexFile != null || options.renameDirectories)) {
+            throw new IllegalArgumentException("Option --shard-dir requires --recursive with subfolders and a folder, "
+                    + "and cannot be used with --dry-run, --stream, --watch, --incremental or --rename-directories");
+        }
+        return options;
+    }
+
+    /**
+     * Combines the filter options; the cheap checks go first, the name patterns last.
+     */
+    private EntryFilter buildFilter() {
+        EntryFilter result = EntryFilter.ALL;
+        if (skipHidden) {
+            result = result.and(EntryFilter.notHidden());
+        }
+        if (minSize > 0 || maxSize < Long.MAX_VALUE) {
+            result = result.and(EntryFilter.size(minSize, maxSize));
+        }
+        if (olderThan != null) {
+            result = result.and(EntryFilter.olderThan(olderThan, Clock.systemUTC()));
+        }
+        if (newerThan != null) {
+            result = result.and(EntryFilter.newerThan(newerThan, Clock.systemUTC()));
+        }
+        if (extensions != null) {
+            result = result.and(EntryFilter.extensions(extensions));
+        }
+        result = result.and(EntryFilter.of(includes, excludes));
+        if (nameRegex != null) {
+            result = result.and(EntryFilter.regex(nameRegex));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the governor shared by the listings and the moves of the run, if one is asked for. The concurrency
+     * of both is bounded by their own options, so the governor may allow the larger of the two.
+     */
+    private IoGovernor buildGovernor() {
+        if (maxOpsPerSecond == 0 && !adaptiveConcurrency) {
+            return null;
+        }
+        return IoGovernor.builder()
+                .maxOpsPerSecond(maxOpsPerSecond)
+                .maxConcurrency(Math.max(concurrency, recursive ? parallelism : 1))
+                .adaptive(adaptiveConcurrency)
+                .build();
+    }
+
+    /**
+     * Parses a size in bytes with an optional {@code K}, {@code M} or {@code G} suffix (powers of 1024).
+     */
+    private static long parseSize(String name, String value) {
+        requireValue(name, value);
+        char unit = Character.toUpperCase(value.charAt(value.length() - 1));
+        int shift = switch (unit) {
+            case 'K' -> 10;
+            case 'M' -> 20;
+            case 'G' -> 30;
+            default -> 0;
+        };
+        String digits = shift == 0 ? value : value.substring(0, value.length() - 1);
+        try {
+            long size = Long.parseLong(digits);
+            if (size < 0 || size > Long.MAX_VALUE >> shift) {
+                throw new IllegalArgumentException("Option " + name + " is out of range: " + value);
+            }
+            return size << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " must be a size such as 500, 64K or 2G: " + value);
+        }
+    }
+
+    /**
+     * Parses an age such as {@code 90s}, {@code 30m}, {@code 1h} or {@code 2d}.
+     */
+    private static Duration parseAge(String name, String value) {
+        requireValue(name, value);
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        try {
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            if (amount >= 0) {
+                switch (unit) {
+                    case 's' -> {
+                        return Duration.ofSeconds(amount);
+                    }
+                    case 'm' -> {
+                        return Duration.ofMinutes(amount);
+                    }
+                    case 'h' -> {
+                        return Duration.ofHours(amount);
+                    }
+                    case 'd' -> {
+                        return Duration.ofDays(amount);
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Option " + name + " must be an age such as 90s, 30m, 1h or 2d: " + value);
+    }
+
+    private static String requireValue(String name, String value) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Option " + name + " requires a value");
+        }
+        return value;
+    }
+
+    private static int parseInt(String name, String value, int min) {
+        requireValue(name, value);
+        try {
+            int result = Integer.parseInt(value);
+            if (result < min) {
+                throw new IllegalArgumentException("Option " + name + " must be at least " + min + ": " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option " + name + " must be a number: " + value);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(String name, String value, Class<E> type) {
+        requireValue(name, value);
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Option " + name + " has an unknown value: " + value);
+        }
+    }
+
+    String getFolderPath() {
+        return folderPath;
+    }
+
+    /**
+     * @return manifest file, {@code -} for the standard input, {@code null} if the files are searched in a folder
+     */
+    String getManifest() {
+        return manifest;
+    }
+
+    ManifestRenamer.Delimiter getManifestDelimiter() {
+        return manifestDelimiter;
+    }
+
+    /**
+     * @return socket the rename jobs are accepted on, {@code null} if the application is not a server
+     */
+    Path getServerSocket() {
+        return serverSocket;
+    }
+
+    int getWorkers() {
+        return workers;
+    }
+
+    int getJobQueueSize() {
+        return jobQueueSize;
+    }
+
+    /**
+     * @return socket of the server the job is sent to, {@code null} if the job runs in this process
+     */
+    Path getClientSocket() {
+        return clientSocket;
+    }
+
+    boolean isRecursive() {
+        return recursive;
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    boolean isDeduplicate() {
+        return deduplicate;
+    }
+
+    int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    Path getIndexFile() {
+        return indexFile;
+    }
+
+    boolean isRenameDirectories() {
+        return renameDirectories;
+    }
+
+    boolean isExtendedCyrillic() {
+        return extendedCyrillic;
+    }
+
+    /**
+     * Describes the options that decide which folders and files a scan sees, for the header of the state index.
+     * The filter is described by its options, so a relative age like {@code --older-than=1d} gives the same text
+     * on every run.
+     *
+     * @return description of the scan settings
+     */
+    String getScanSettings() {
+        return "depth=" + maxDepth + " extended=" + extendedCyrillic + " follow-links=" + followLinks
+                + " dedup=" + deduplicate + " filter=[hidden=" + skipHidden + " size=" + minSize + ".." + maxSize
+                + " older=" + olderThan + " newer=" + newerThan + " ext=" + Arrays.toString(extensions)
+                + " include=" + includes + " exclude=" + excludes + " regex=" + nameRegex + "]";
+    }
+
+    /**
+     * @return filter of the found files, {@link EntryFilter#ALL} if no filter option is given
+     */
+    EntryFilter getFilter() {
+        return filter;
+    }
+
+    TransliterationScheme getScheme() {
+        return scheme;
+    }
+
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    int getQueueSize() {
+        return queueSize;
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    CollisionStrategy getCollisionStrategy() {
+        return collisionStrategy;
+    }
+
+    RenameBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return governor of the file system operations, {@code null} if neither {@code --max-ops} nor
+     * {@code --adaptive} is given
+     */
+    IoGovernor getGovernor() {
+        return governor;
+    }
+
+    boolean isDryRun() {
+        return dryRun;
+    }
+
+    boolean isWatch() {
+        return watch;
+    }
+
+    Duration getWatchDebounce() {
+        return Objects.requireNonNullElse(watchDebounce, DirectoryWatcher.DEFAULT_DEBOUNCE);
+    }
+
+    Path getJournalFile() {
+        return journalFile;
+    }
+
+    Path getResumeJournal() {
+        return resumeJournal;
+    }
+
+    Path getUndoJournal() {
+        return undoJournal;
+    }
+
+    Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    Path getAuditFile() {
+        return auditFile;
+    }
+
+    RenameAuditSink.Format getAuditFormat() {
+        return auditFormat;
+    }
+
+    /**
+     * @return folder shared by the workers of a sharded run, {@code null} if the run is not sharded
+     */
+    Path getShardDirectory() {
+        return shardDirectory;
+    }
+
+    Duration getLeaseDuration() {
+        return Objects.requireNonNullElse(leaseDuration, ShardedRenamer.DEFAULT_LEASE_DURATION);
+    }
+
+    /**
+     * @return worker id of a sharded run, {@code null} for the default one
+     */
+    String getWorkerId() {
+        return workerId;
+    }
+}
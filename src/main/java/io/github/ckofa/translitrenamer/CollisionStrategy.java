@@ -0,0 +1,23 @@
+package io.github.ckofa.translitrenamer;
+
+/**
+ * What to do when the transliterated name of a file is already taken in its folder,
+ * either by an existing file or by another file renamed in the same run.
+ */
+public enum CollisionStrategy {
+
+    /**
+     * Add a numeric suffix before the extension: {@code Elka.txt} becomes {@code Elka_1.txt}.
+     */
+    SUFFIX,
+
+    /**
+     * Leave the file with its original name.
+     */
+    SKIP,
+
+    /**
+     * Do not rename anything in the batch if at least one collision is found.
+     */
+    FAIL
+}
@@ -0,0 +1,78 @@
+package io.github.ckofa.translitrenamer;
+
+/**
+ * Checks strings for cyrillic characters using plain range comparisons, without allocating.
+ * <p>
+ * Every character below {@code U+0400} (ASCII, Latin-1 and the other Latin blocks) is rejected by a single
+ * comparison, so names without Cyrillic are scanned at the cost of a simple loop.
+ * </p>
+ */
+public final class CyrillicDetector {
+
+    /**
+     * Detects only the basic Cyrillic block {@code U+0400..U+04FF},
+     * the same characters as {@link Character.UnicodeBlock#CYRILLIC}.
+     */
+    public static final CyrillicDetector BASIC = new CyrillicDetector(false);
+
+    /**
+     * Detects the basic Cyrillic block together with Cyrillic Supplement and Cyrillic Extended-A, -B, -C and -D.
+     */
+    public static final CyrillicDetector EXTENDED = new CyrillicDetector(true);
+
+    private static final char CYRILLIC_START = '\u0400';
+    private static final char CYRILLIC_END = '\u04FF';
+    private static final char SUPPLEMENT_END = '\u052F';
+    private static final char EXTENDED_C_START = '\u1C80';
+    private static final char EXTENDED_C_END = '\u1C8F';
+    private static final char EXTENDED_A_START = '\u2DE0';
+    private static final char EXTENDED_A_END = '\u2DFF';
+    private static final char EXTENDED_B_START = '\uA640';
+    private static final char EXTENDED_B_END = '\uA69F';
+    private static final int EXTENDED_D_START = 0x1E030;
+    private static final int EXTENDED_D_END = 0x1E08F;
+
+    private final boolean extended;
+
+    private CyrillicDetector(boolean extended) {
+        this.extended = extended;
+    }
+
+    /**
+     * Checks if the text contains cyrillic characters.
+     *
+     * @param text text to check
+     * @return {@code true} if the text contains at least one cyrillic character; {@code false} otherwise
+     */
+    public boolean containsCyrillic(CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch < CYRILLIC_START) {
+                continue;
+            }
+            if (ch <= CYRILLIC_END) {
+                return true;
+            }
+            if (extended) {
+                if (ch <= SUPPLEMENT_END
+                        || (ch >= EXTENDED_C_START && ch <= EXTENDED_C_END)
+                        || (ch >= EXTENDED_A_START && ch <= EXTENDED_A_END)
+                        || (ch >= EXTENDED_B_START && ch <= EXTENDED_B_END)) {
+                    return true;
+                }
+                if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(ch, text.charAt(++i));
+                    if (codePoint >= EXTENDED_D_START && codePoint <= EXTENDED_D_END) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return extended ? "CyrillicDetector[EXTENDED]" : "CyrillicDetector[BASIC]";
+    }
+}
@@ -4,18 +4,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * An implementation of the {@link FileFinder} interface designed to find files with cyrillic characters in the name.
+ * <p>
+ * The folder is read through a {@link DirectoryStream}, so {@link #forEachFileOrThrow(String, Consumer)}
+ * hands out matches one by one without holding the folder listing in memory.
+ * </p>
  */
 public class CyrillicFileFinder implements FileFinder {
 
     private static final Logger log = LoggerFactory.getLogger(CyrillicFileFinder.class);
 
+    private final CyrillicDetector detector;
+    private final RunMetrics metrics;
+    private final EntryFilter filter;
+
+    /**
+     * Creates a finder that detects characters of the basic Cyrillic block.
+     */
     public CyrillicFileFinder() {
+        this(CyrillicDetector.BASIC);
+    }
+
+    /**
+     * Creates a finder that uses the specified detector to check file names.
+     *
+     * @param detector detector of cyrillic characters
+     */
+    public CyrillicFileFinder(CyrillicDetector detector) {
+        this(detector, RunMetrics.disabled());
+    }
+
+    /**
+     * Creates a finder that uses the specified detector and records the listing and the checks of names
+     * in the specified metrics.
+     *
+     * @param detector detector of cyrillic characters
+     * @param metrics  run metrics
+     */
+    public CyrillicFileFinder(CyrillicDetector detector, RunMetrics metrics) {
+        this(detector, metrics, EntryFilter.ALL);
+    }
+
+    /**
+     * Creates a finder that uses the specified detector, passes only the files accepted by the filter and records
+     * the listing and the checks of names in the specified metrics.
+     *
+     * @param detector detector of cyrillic characters
+     * @param metrics  run metrics
+     * @param filter   filter checked with the attributes of every file with a cyrillic name
+     */
+    public CyrillicFileFinder(CyrillicDetector detector, RunMetrics metrics, EntryFilter filter) {
+        this.detector = detector;
+        this.metrics = metrics;
+        this.filter = Objects.requireNonNull(filter, "filter");
     }
 
     @Override
@@ -32,40 +87,68 @@ public class CyrillicFileFinder implements FileFinder {
 
     @Override
     public List<File> findFilesOrThrow(String folderPath) {
-        File folder = new File(folderPath);
+        Path folder = Paths.get(folderPath);
+        PathTable table = new PathTable(folder);
+        scan(folder, folderPath, (entry, name) -> table.addFile(PathTable.ROOT, name));
+        return table;
+    }
 
-        if(!folder.isDirectory()) {
-            throw new IllegalArgumentException("Path is not a valid directory: " + folderPath);
-        }
+    @Override
+    public void forEachFileOrThrow(String folderPath, Consumer<File> action) {
+        scan(Paths.get(folderPath), folderPath, (entry, name) -> action.accept(entry.toFile()));
+    }
+
+    /**
+     * Lists the folder and passes every match with its name to the action.
+     */
+    private void scan(Path folder, String folderPath, BiConsumer<Path, String> action) {
 
-        File[] files = folder.listFiles();
-        if (files == null) {
-            throw new IllegalStateException("Unable to list files in folder: " + folderPath);
+        if (!Files.isDirectory(folder)) {
+            throw new IllegalArgumentException("Path is not a valid directory: " + folderPath);
         }
 
-        List<File> result = new ArrayList<>();
-        for (File file : files) {
-            try {
-                if (file.isFile() && containsCyrillic(file.getName())) {
-                    result.add(file);
+        long listStart = metrics.start();
+        long nameChars = 0;
+        int names = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+            for (Path entry : entries) {
+                boolean matches;
+                String name;
+                try {
+                    // The name check needs no file system access, so it goes before the stat call
+                    name = entry.getFileName().toString();
+                    boolean cyrillic = detector.containsCyrillic(name);
+                    nameChars += name.length();
+                    names++;
+                    matches = cyrillic && isAccepted(entry, name);
+                } catch (Exception e) {
+                    log.error("Error processing file entry '{}', skipping.", entry.getFileName(), e);
+                    continue;
+                }
+                if (matches) {
+                    action.accept(entry, name);
                 }
-            } catch (Exception e) {
-                log.error("Error processing file entry '{}', skipping.", file.getName(), e);
             }
+        } catch (IOException | DirectoryIteratorException e) {
+            metrics.recordError(RunMetrics.Phase.LIST, listStart);
+            throw new IllegalStateException("Unable to list files in folder: " + folderPath, e);
         }
-
-        return result;
+        metrics.recordBatch(RunMetrics.Phase.LIST, metrics.elapsedSince(listStart), 1);
+        metrics.recordCount(RunMetrics.Phase.DETECT, names);
+        metrics.addNameChars(nameChars);
     }
 
     /**
-     * Checks if the file name contains Cyrillic characters.
-     *
-     * @param fileName file name
-     * @return {@code true} if the name contains cyrillic characters; {@code false} otherwise
+     * Reads the attributes of the entry once and checks that it is a regular file accepted by the filter.
+     * As with {@link Files#isRegularFile}, an entry whose attributes cannot be read is not a match.
      */
-    private boolean containsCyrillic(String fileName) {
-        return fileName.chars()
-                .mapToObj(Character.UnicodeBlock::of)
-                .anyMatch(Character.UnicodeBlock.CYRILLIC::equals);
+    private boolean isAccepted(Path entry, String name) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return false;
+        }
+        return attrs.isRegularFile() && filter.accept(name, attrs);
     }
 }
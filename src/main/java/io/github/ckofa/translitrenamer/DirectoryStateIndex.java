@@ -0,0 +1,283 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent index of directory states used for incremental scans.
+ * <p>
+ * For every scanned directory the index keeps its last-modified time and number of entries. A directory whose
+ * modification time has not changed since the previous run has the same set of names, so the scan does not list
+ * it again and only descends into its subdirectories known from the index. Directories in which matches were
+ * found, or which could not be read, are stored as dirty and are always listed on the next run, so files that
+ * failed to rename are not lost.
+ * </p>
+ * <p>
+ * The file is a compact binary list of records, read once into a heap buffer and replaced atomically by
+ * {@link #save(Path)} at the end of a run; a mapped buffer would keep the file open until it is collected, and
+ * a mapped file cannot be replaced on Windows. Its header holds the scan settings the states were recorded with, such
+ * as the depth limit and the detector: a folder clean for a narrower scan may hold files or subfolders a wider
+ * scan must see, so an index written with other settings is discarded and the run scans everything.
+ * </p>
+ */
+public final class DirectoryStateIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryStateIndex.class);
+
+    private static final int MAGIC = 0x54524458; // "TRDX"
+    private static final int VERSION = 2;
+    private static final long DIRTY = Long.MIN_VALUE;
+    /** Bytes of a record with an empty path: path length, last-modified time and entry count. */
+    private static final int MIN_RECORD_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * Changes made within this interval before the previous scan started may share the recorded timestamp,
+     * so such directories are never trusted.
+     */
+    private static final long RACY_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final String scanSettings;
+    private final Map<String, State> previous;
+    private final Map<String, List<String>> previousChildren;
+    private final long previousScanStart;
+    private final Map<String, State> current = new ConcurrentHashMap<>();
+    private final long scanStart = toNanos(FileTime.fromMillis(System.currentTimeMillis()));
+    private final AtomicLong skippedDirectories = new AtomicLong();
+    private final AtomicLong skippedEntries = new AtomicLong();
+
+    private record State(long lastModified, int entryCount) {
+    }
+
+    private DirectoryStateIndex(String scanSettings, Map<String, State> previous, long previousScanStart) {
+        this.scanSettings = scanSettings;
+        this.previous = previous;
+        this.previousScanStart = previousScanStart;
+        this.previousChildren = new HashMap<>();
+        for (String directory : previous.keySet()) {
+            Path parent = Path.of(directory).getParent();
+            if (parent != null) {
+                previousChildren.computeIfAbsent(parent.toString(), key -> new ArrayList<>()).add(directory);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty index, every directory is scanned.
+     *
+     * @return empty index
+     */
+    public static DirectoryStateIndex empty() {
+        return empty("");
+    }
+
+    private static DirectoryStateIndex empty(String scanSettings) {
+        return new DirectoryStateIndex(scanSettings, Collections.emptyMap(), Long.MIN_VALUE);
+    }
+
+    /**
+     * Loads the index from a file written without scan settings, see {@link #load(Path, String)}.
+     *
+     * @param file index file
+     * @return loaded index
+     */
+    public static DirectoryStateIndex load(Path file) {
+        return load(file, "");
+    }
+
+    /**
+     * Loads the index from a file. A missing file gives an empty index; a damaged file, or one written with other
+     * scan settings, is logged and ignored, which only costs a full scan.
+     *
+     * @param file         index file
+     * @param scanSettings description of the settings that decide which folders and files the scan sees; saved
+     *                     with the index and compared on the next load
+     * @return loaded index
+     */
+    public static DirectoryStateIndex load(Path file, String scanSettings) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Index file '{}' has an unknown format, running a full scan.", file);
+                return empty(scanSettings);
+            }
+            int settingsLength = buffer.getInt();
+            if (settingsLength < 0 || settingsLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid length of scan settings: " + settingsLength);
+            }
+            byte[] settingsBytes = new byte[settingsLength];
+            buffer.get(settingsBytes);
+            String savedSettings = new String(settingsBytes, StandardCharsets.UTF_8);
+            if (!savedSettings.equals(scanSettings)) {
+                log.info("Index file '{}' was written with other scan settings ({}), running a full scan.",
+                        file, savedSettings);
+                return empty(scanSettings);
+            }
+            long scanStart = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / MIN_RECORD_SIZE) {
+                throw new IllegalArgumentException("Invalid number of directories: " + count);
+            }
+            Map<String, State> states = new HashMap<>(Math.max(16, (int) (count / 0.75f) + 1));
+            byte[] pathBytes = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Invalid length of a directory path: " + length);
+                }
+                if (pathBytes.length < length) {
+                    pathBytes = new byte[Math.max(length, pathBytes.length * 2)];
+                }
+                buffer.get(pathBytes, 0, length);
+                String path = new String(pathBytes, 0, length, StandardCharsets.UTF_8);
+                states.put(path, new State(buffer.getLong(), buffer.getInt()));
+            }
+            log.info("Loaded state of {} directories from '{}'.", count, file);
+            return new DirectoryStateIndex(scanSettings, states, scanStart);
+        } catch (NoSuchFileException e) {
+            return empty(scanSettings);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Could not read index file '{}', running a full scan.", file, e);
+            return empty(scanSettings);
+        }
+    }
+
+    /**
+     * Checks whether a directory is known and has not been modified since the previous run.
+     *
+     * @param directory    directory to check
+     * @param lastModified current modification time of the directory
+     * @return {@code true} if the directory does not have to be listed again
+     */
+    boolean isUnchanged(Path directory, FileTime lastModified) {
+        State state = previous.get(directory.toString());
+        if (state == null || state.lastModified() == DIRTY) {
+            return false;
+        }
+        long modified = toNanos(lastModified);
+        return state.lastModified() == modified && modified < previousScanStart - RACY_INTERVAL_NANOS;
+    }
+
+    /**
+     * Keeps the previous state of an unchanged directory and returns its known subdirectories.
+     *
+     * @param directory unchanged directory
+     * @return subdirectories recorded on the previous run
+     */
+    List<Path> carryOver(Path directory) {
+        String key = directory.toString();
+        State state = previous.get(key);
+        current.put(key, state);
+        skippedDirectories.incrementAndGet();
+        skippedEntries.addAndGet(state.entryCount());
+
+        List<String> children = previousChildren.getOrDefault(key, Collections.emptyList());
+        List<Path> result = new ArrayList<>(children.size());
+        for (String child : children) {
+            result.add(Path.of(child));
+        }
+        return result;
+    }
+
+    /**
+     * Records the state of a listed directory.
+     *
+     * @param directory    listed directory
+     * @param lastModified modification time of the directory before listing
+     * @param entryCount   number of entries in the directory
+     * @param dirty        {@code true} if the directory must be listed on the next run anyway
+     */
+    void record(Path directory, FileTime lastModified, int entryCount, boolean dirty) {
+        current.put(directory.toString(), new State(dirty ? DIRTY : toNanos(lastModified), entryCount));
+    }
+
+    /**
+     * Records a directory that could not be listed; it will be listed on the next run.
+     *
+     * @param directory directory that could not be listed
+     */
+    void recordFailure(Path directory) {
+        current.put(directory.toString(), new State(DIRTY, 0));
+    }
+
+    /**
+     * @return number of directories that were not listed because they had not changed
+     */
+    public long getSkippedDirectories() {
+        return skippedDirectories.get();
+    }
+
+    /**
+     * @return number of entries in the directories that were not listed
+     */
+    public long getSkippedEntries() {
+        return skippedEntries.get();
+    }
+
+    /**
+     * Writes the states recorded during this run. The data is written to a temporary file next to the target,
+     * flushed to disk and then moved over the target, so the index is never left half-written.
+     *
+     * @param file index file
+     * @throws IOException if the index could not be written
+     */
+    public void save(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream channelStream = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(channelStream, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] settings = scanSettings.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(settings.length);
+            out.write(settings);
+            out.writeLong(scanStart);
+            out.writeInt(current.size());
+            for (Map.Entry<String, State> entry : current.entrySet()) {
+                byte[] path = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(path.length);
+                out.write(path);
+                out.writeLong(entry.getValue().lastModified());
+                out.writeInt(entry.getValue().entryCount());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+        }
+        log.info("Saved state of {} directories to '{}'.", current.size(), file);
+    }
+
+    private static long toNanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,267 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Renames files and folders with cyrillic characters in the name in a whole directory tree, in one pass.
+ * <p>
+ * The tree is walked in post-order: the matching entries of a folder are collected while it is listed and
+ * renamed with one {@link FileRenamer#renameFiles(List)} call when the walk leaves the folder, after all its
+ * subfolders have been finished. A folder is therefore renamed only after everything inside it, and always while
+ * its parent still has the name it had when it was listed, so no path has to be resolved again. The root folder
+ * itself is never renamed.
+ * </p>
+ * <p>
+ * The walk runs in the calling thread; the moves of a folder run as configured in the renamer.
+ * Use {@link #builder(FileRenamer)} to create an instance.
+ * </p>
+ */
+public final class DirectoryTreeRenamer {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryTreeRenamer.class);
+
+    /**
+     * Size of the name cache suggested for the renamer, see {@link RenameOptions.Builder#nameCacheSize(int)}:
+     * enough for the folder names that repeat across a tree.
+     */
+    public static final int DEFAULT_NAME_CACHE_SIZE = 4096;
+
+    private final FileRenamer fileRenamer;
+    private final int maxDepth;
+    private final boolean followLinks;
+    private final CyrillicDetector detector;
+    private final RunMetrics metrics;
+    private final EntryFilter filter;
+
+    private DirectoryTreeRenamer(Builder builder) {
+        this.fileRenamer = builder.fileRenamer;
+        this.maxDepth = builder.maxDepth;
+        this.followLinks = builder.followLinks;
+        this.detector = builder.detector;
+        this.metrics = builder.metrics;
+        this.filter = builder.filter;
+    }
+
+    /**
+     * Creates a builder with default settings: unlimited depth, symbolic links not followed,
+     * the basic Cyrillic block detected and no filter.
+     *
+     * @param fileRenamer renamer the entries of every folder are passed to
+     * @return new builder
+     */
+    public static Builder builder(FileRenamer fileRenamer) {
+        return new Builder(fileRenamer);
+    }
+
+    /**
+     * Renames the matching files and folders below the specified folder.
+     *
+     * @param folderPath path to the root of the tree
+     * @return combined result of all folders, empty if the root could not be read
+     */
+    public RenameResult renameTree(String folderPath) {
+        Path root;
+        try {
+            root = Paths.get(folderPath);
+        } catch (InvalidPathException e) {
+            log.error("Skipping folder due to error: {}", e.getMessage());
+            return RenameResult.empty();
+        }
+        if (!Files.isDirectory(root)) {
+            log.error("Skipping folder due to error: Path is not a valid directory: {}", folderPath);
+            return RenameResult.empty();
+        }
+
+        PostOrderVisitor visitor = new PostOrderVisitor(root);
+        Set<FileVisitOption> options = followLinks ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : EnumSet.noneOf(FileVisitOption.class);
+        // Entries of the deepest scanned folders are one level below maxDepth
+        int walkDepth = maxDepth == Integer.MAX_VALUE ? maxDepth : maxDepth + 1;
+        try {
+            Files.walkFileTree(root, options, walkDepth, visitor);
+        } catch (IOException e) {
+            log.error("Skipping folder due to error: {}", e.getMessage());
+        }
+        visitor.recordChecks();
+        return RenameResult.of(visitor.outcomes);
+    }
+
+    /**
+     * Keeps a list of matching entries for every folder on the path from the root to the current one.
+     * The checks of names are counted in the metrics per folder, not one by one.
+     */
+    private final class PostOrderVisitor extends SimpleFileVisitor<Path> {
+
+        private final Path root;
+        private final Deque<List<File>> matchesByLevel = new ArrayDeque<>();
+        private final List<RenameOutcome> outcomes = new ArrayList<>();
+        private long names;
+        private long nameChars;
+
+        private PostOrderVisitor(Path root) {
+            this.root = root;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            matchesByLevel.push(new ArrayList<>());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            // Folders below the depth limit are visited as files: they are renamed, but not entered
+            if (attrs.isRegularFile()) {
+                collect(file, attrs);
+            } else if (attrs.isDirectory()) {
+                collect(file, null);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            if (file.equals(root)) {
+                log.error("Skipping folder due to error: Unable to list files in folder: {}", file);
+                return FileVisitResult.TERMINATE;
+            }
+            log.error("Unable to read '{}', skipping: {}", file, exc.getMessage());
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            if (exc != null) {
+                log.error("Listing of folder '{}' failed, renaming the entries found so far.", dir, exc);
+            }
+            List<File> matches = matchesByLevel.pop();
+            if (!matches.isEmpty()) {
+                outcomes.addAll(fileRenamer.renameFiles(matches).getOutcomes());
+            }
+            if (!dir.equals(root)) {
+                collect(dir, null);
+            }
+            recordChecks();
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void recordChecks() {
+            metrics.recordCount(RunMetrics.Phase.DETECT, names);
+            metrics.addNameChars(nameChars);
+            names = 0;
+            nameChars = 0;
+        }
+
+        /**
+         * @param fileAttrs attributes of a file, checked by the filter; {@code null} for a folder, which is not
+         */
+        private void collect(Path entry, BasicFileAttributes fileAttrs) {
+            String name = entry.getFileName().toString();
+            boolean matches = detector.containsCyrillic(name);
+            names++;
+            nameChars += name.length();
+            if (matches && (fileAttrs == null || filter.accept(name, fileAttrs))) {
+                matchesByLevel.element().add(entry.toFile());
+            }
+        }
+    }
+
+    /**
+     * Builder for {@link DirectoryTreeRenamer}.
+     */
+    public static final class Builder {
+
+        private final FileRenamer fileRenamer;
+        private int maxDepth = Integer.MAX_VALUE;
+        private boolean followLinks;
+        private CyrillicDetector detector = CyrillicDetector.BASIC;
+        private RunMetrics metrics = RunMetrics.disabled();
+        private EntryFilter filter = EntryFilter.ALL;
+
+        private Builder(FileRenamer fileRenamer) {
+            this.fileRenamer = Objects.requireNonNull(fileRenamer, "fileRenamer");
+        }
+
+        /**
+         * Sets how many folder levels below the root are entered.
+         * {@code 0} renames only the entries of the root folder itself.
+         *
+         * @param maxDepth maximum depth, not negative
+         * @return this builder
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("Max depth must not be negative: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets whether symbolic links to folders are followed.
+         *
+         * @param followLinks {@code true} to follow symbolic links
+         * @return this builder
+         */
+        public Builder followLinks(boolean followLinks) {
+            this.followLinks = followLinks;
+            return this;
+        }
+
+        /**
+         * Sets the detector used to check the names.
+         *
+         * @param detector detector of cyrillic characters
+         * @return this builder
+         */
+        public Builder detector(CyrillicDetector detector) {
+            this.detector = Objects.requireNonNull(detector, "detector");
+            return this;
+        }
+
+        /**
+         * Sets the metrics the checks of names are recorded in.
+         *
+         * @param metrics run metrics
+         * @return this builder
+         */
+        public Builder metrics(RunMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Sets the filter checked with the attributes of every file with a cyrillic name; folders are not filtered.
+         *
+         * @param filter filter of the files
+         * @return this builder
+         */
+        public Builder filter(EntryFilter filter) {
+            this.filter = Objects.requireNonNull(filter, "filter");
+            return this;
+        }
+
+        public DirectoryTreeRenamer build() {
+            return new DirectoryTreeRenamer(this);
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a directory, optionally with its subdirectories, and renames files with cyrillic characters in the name
+ * as soon as they appear.
+ * <p>
+ * Built on {@link WatchService}: the loop blocks while nothing happens, so an idle tree costs no CPU.
+ * {@code ENTRY_CREATE} and {@code ENTRY_MODIFY} events are coalesced per directory; a directory is processed
+ * only after it has been quiet for the debounce interval, so a burst of events (a large upload, a copy of many
+ * files) results in one batch passed to the {@link FileRenamer}.
+ * </p>
+ * <p>
+ * When the event queue overflows, the directory of the overflowed key is listed again instead of the whole tree.
+ * New subdirectories are registered and listed, since files may appear in them before the registration.
+ * Renamed files produce new events too, but their Latin names are ignored by the detector.
+ * With symbolic links followed, a folder met again below itself through a link is not registered twice.
+ * </p>
+ * <p>
+ * Every file is checked against the {@link EntryFilter} with the attributes read to check that it is a regular file.
+ * A file the filter rejects, such as an upload still younger than {@code --older-than}, is checked again every
+ * recheck interval until it is accepted, deleted or renamed, since no event may come for it any more.
+ * </p>
+ * <p>
+ * The directories are registered when the watcher is built, so a watcher built before a full pass over the tree
+ * keeps the events of the files created during the pass; they are processed once {@link #run()} is called.
+ * </p>
+ * <p>
+ * {@link #run()} blocks the calling thread until {@link #close()} is called from another thread.
+ * </p>
+ */
+public class DirectoryWatcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryWatcher.class);
+
+    private static final LinkOption[] NO_FOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+    private static final LinkOption[] FOLLOW_LINKS = {};
+
+    /**
+     * Default quiet period after the last event of a directory before it is processed.
+     */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(500);
+
+    /**
+     * Default interval after which the files rejected by the filter are checked again.
+     */
+    public static final Duration DEFAULT_RECHECK_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path root;
+    private final FileRenamer fileRenamer;
+    private final CyrillicDetector detector;
+    private final int maxDepth;
+    private final LinkOption[] linkOptions;
+    private final long debounceNanos;
+    private final EntryFilter filter;
+    private final long recheckNanos;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, PendingDirectory> pending = new LinkedHashMap<>();
+    /** Names rejected by the filter, per directory, to check again. */
+    private final Map<Path, Set<String>> deferred = new LinkedHashMap<>();
+    private long nextRecheckNanos;
+
+    /**
+     * Names changed in a directory since it was last processed.
+     */
+    private static final class PendingDirectory {
+        private final Set<String> names = new HashSet<>();
+        private boolean rescan;
+        private long lastEventNanos;
+    }
+
+    private DirectoryWatcher(Builder builder) throws IOException {
+        this.root = builder.root.toAbsolutePath().normalize();
+        this.fileRenamer = builder.fileRenamer;
+        this.detector = builder.detector;
+        this.maxDepth = builder.maxDepth;
+        this.linkOptions = builder.followLinks ? FOLLOW_LINKS : NO_FOLLOW_LINKS;
+        this.debounceNanos = builder.debounce.toNanos();
+        this.filter = builder.filter;
+        this.recheckNanos = builder.recheckInterval.toNanos();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Path is not a valid directory: " + root);
+        }
+        this.watchService = root.getFileSystem().newWatchService();
+        try {
+            registerTree(root, false);
+        } catch (RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a builder for a watcher of the given directory. By default only the directory itself is watched.
+     *
+     * @param root        directory to watch
+     * @param fileRenamer renamer used for found files
+     * @return new builder
+     */
+    public static Builder builder(Path root, FileRenamer fileRenamer) {
+        return new Builder(root, fileRenamer);
+    }
+
+    /**
+     * Processes events until the watcher is closed or the thread is interrupted.
+     */
+    public void run() {
+        log.info("Watching {} folders under {}", watchedDirectories.size(), root);
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty() && deferred.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(nanosUntilNextFlush(), TimeUnit.NANOSECONDS);
+                while (key != null) {
+                    handle(key);
+                    key = watchService.poll();
+                }
+                flush(System.nanoTime());
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.info("Watching stopped.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Watching interrupted.");
+        }
+    }
+
+    /**
+     * Stops watching; a thread blocked in {@link #run()} returns. Pending events are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * @return number of directories currently watched
+     */
+    int getWatchedDirectoryCount() {
+        return watchedDirectories.size();
+    }
+
+    private void handle(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+        if (directory == null) {
+            key.cancel();
+            return;
+        }
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                log.warn("Events lost for folder {}, listing it again.", directory);
+                PendingDirectory state = pendingFor(directory, now);
+                state.rescan = true;
+                state.names.clear();
+                continue;
+            }
+            Path name = (Path) event.context();
+            Path child = directory.resolve(name);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && depthOf(child) <= maxDepth
+                    && Files.isDirectory(child, linkOptions)) {
+                registerTree(child, true);
+                continue;
+            }
+            PendingDirectory state = pendingFor(directory, now);
+            if (!state.rescan && detector.containsCyrillic(name.toString())) {
+                state.names.add(name.toString());
+            }
+        }
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+            pending.remove(directory);
+            log.debug("Folder is no longer watched: {}", directory);
+        }
+    }
+
+    private PendingDirectory pendingFor(Path directory, long now) {
+        PendingDirectory state = pending.computeIfAbsent(directory, key -> new PendingDirectory());
+        state.lastEventNanos = now;
+        return state;
+    }
+
+    private long nanosUntilNextFlush() {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        for (PendingDirectory state : pending.values()) {
+            wait = Math.min(wait, state.lastEventNanos + debounceNanos - now);
+        }
+        if (!deferred.isEmpty()) {
+            wait = Math.min(wait, nextRecheckNanos - now);
+        }
+        return Math.max(0, wait);
+    }
+
+    /**
+     * Renames the files of every directory that has been quiet for the debounce interval.
+     */
+    private void flush(long now) {
+        if (!deferred.isEmpty() && now - nextRecheckNanos >= 0) {
+            for (Map.Entry<Path, Set<String>> entry : deferred.entrySet()) {
+                // Due now, unless new events of the directory are still waiting for their quiet period
+                PendingDirectory state = pending.computeIfAbsent(entry.getKey(), key -> {
+                    PendingDirectory due = new PendingDirectory();
+                    due.lastEventNanos = now - debounceNanos;
+                    return due;
+                });
+                if (!state.rescan) {
+                    state.names.addAll(entry.getValue());
+                }
+            }
+            deferred.clear();
+        }
+        Iterator<Map.Entry<Path, PendingDirectory>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingDirectory> entry = iterator.next();
+            PendingDirectory state = entry.getValue();
+            if (now - state.lastEventNanos < debounceNanos) {
+                continue;
+            }
+            iterator.remove();
+            Path directory = entry.getKey();
+            List<File> files = acceptedFiles(directory, state.rescan ? listDirectory(directory) : state.names, now);
+            if (files.isEmpty()) {
+                continue;
+            }
+            RenameResult result = fileRenamer.renameFiles(files);
+            log.info("Processed {} new files in {}: renamed {}, planned {}, skipped {}, failed {}", files.size(),
+                    directory, result.getRenamedCount(), result.getPlannedCount(), result.getSkippedCount(),
+                    result.getFailedCount());
+        }
+    }
+
+    /**
+     * @return the regular files of the names that the filter accepts; the rejected ones are deferred
+     */
+    private List<File> acceptedFiles(Path directory, Collection<String> names, long now) {
+        List<File> files = new ArrayList<>(names.size());
+        for (String name : names) {
+            Path file = directory.resolve(name);
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class, linkOptions);
+            } catch (IOException e) {
+                // Gone, or renamed already
+                continue;
+            }
+            if (!attrs.isRegularFile()) {
+                continue;
+            }
+            if (filter.accept(name, attrs)) {
+                files.add(file.toFile());
+            } else {
+                defer(directory, name, now);
+            }
+        }
+        return files;
+    }
+
+    private void defer(Path directory, String name, long now) {
+        if (deferred.isEmpty()) {
+            nextRecheckNanos = now + recheckNanos;
+        }
+        deferred.computeIfAbsent(directory, key -> new HashSet<>()).add(name);
+        log.debug("File filtered out for now, checking again later: {}", directory.resolve(name));
+    }
+
+    /**
+     * @return names with cyrillic characters in the directory
+     */
+    private List<String> listDirectory(Path directory) {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                if (detector.containsCyrillic(name)) {
+                    names.add(name);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            log.error("Could not list folder {}: {}", directory, e.getMessage());
+        }
+        return names;
+    }
+
+    /**
+     * Registers a directory and its subdirectories down to the maximum depth. Directories that appeared after
+     * the watcher started are also listed, because files may have been created in them before the registration.
+     */
+    private void registerTree(Path directory, boolean created) {
+        registerTree(directory, created, new HashSet<>());
+    }
+
+    /**
+     * @param visited file keys of the directories registered by this call, to stop at a symbolic link loop
+     */
+    private void registerTree(Path directory, boolean created, Set<Object> visited) {
+        if (linkOptions == FOLLOW_LINKS && !visited.add(fileKeyOf(directory))) {
+            log.debug("Folder already registered through another path, link loop skipped: {}", directory);
+            return;
+        }
+        try {
+            WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, directory);
+        } catch (IOException e) {
+            if (directory.equals(root)) {
+                throw new IllegalStateException("Unable to watch folder: " + directory, e);
+            }
+            log.error("Unable to watch folder {}: {}", directory, e.getMessage());
+            return;
+        }
+        if (created) {
+            pendingFor(directory, System.nanoTime()).rescan = true;
+        }
+        if (depthOf(directory) >= maxDepth) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path entry : stream) {
+                if (Files.isDirectory(entry, linkOptions)) {
+                    registerTree(entry, created, visited);
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            log.error("Could not list folder {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * @return file key of the directory, or the directory itself where the file system has no keys
+     */
+    private static Object fileKeyOf(Path directory) {
+        try {
+            Object key = Files.readAttributes(directory, BasicFileAttributes.class).fileKey();
+            return key != null ? key : directory;
+        } catch (IOException e) {
+            return directory;
+        }
+    }
+
+    private int depthOf(Path path) {
+        return path.equals(root) ? 0 : root.relativize(path).getNameCount();
+    }
+
+    /**
+     * Builder for {@link DirectoryWatcher}.
+     */
+    public static final class Builder {
+
+        private final Path root;
+        private final FileRenamer fileRenamer;
+        private CyrillicDetector detector = CyrillicDetector.BASIC;
+        private int maxDepth;
+        private boolean followLinks;
+        private Duration debounce = DEFAULT_DEBOUNCE;
+        private EntryFilter filter = EntryFilter.ALL;
+        private Duration recheckInterval = DEFAULT_RECHECK_INTERVAL;
+
+        private Builder(Path root, FileRenamer fileRenamer) {
+            this.root = Objects.requireNonNull(root, "root");
+            this.fileRenamer = Objects.requireNonNull(fileRenamer, "fileRenamer");
+        }
+
+        /**
+         * Sets how many directory levels below the root are watched. {@code 0} watches only the root itself.
+         *
+         * @param maxDepth maximum depth, not negative
+         * @return this builder
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("Max depth must not be negative: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets whether symbolic links to directories are followed when registering subdirectories.
+         *
+         * @param followLinks {@code true} to follow symbolic links
+         * @return this builder
+         */
+        public Builder followLinks(boolean followLinks) {
+            this.followLinks = followLinks;
+            return this;
+        }
+
+        /**
+         * Sets the detector used to check file names.
+         *
+         * @param detector detector of cyrillic characters
+         * @return this builder
+         */
+        public Builder detector(CyrillicDetector detector) {
+            this.detector = Objects.requireNonNull(detector, "detector");
+            return this;
+        }
+
+        /**
+         * Sets the quiet period after the last event of a directory before its files are renamed.
+         *
+         * @param debounce quiet period, not negative
+         * @return this builder
+         */
+        public Builder debounce(Duration debounce) {
+            if (debounce == null || debounce.isNegative()) {
+                throw new IllegalArgumentException("Debounce must not be negative: " + debounce);
+            }
+            this.debounce = debounce;
+            return this;
+        }
+
+        /**
+         * Sets the filter the files must pass, besides a cyrillic name, to be renamed.
+         *
+         * @param filter filter of the files
+         * @return this builder
+         */
+        public Builder filter(EntryFilter filter) {
+            this.filter = Objects.requireNonNull(filter, "filter");
+            return this;
+        }
+
+        /**
+         * Sets how often the files rejected by the filter are checked again.
+         *
+         * @param recheckInterval interval, positive
+         * @return this builder
+         */
+        public Builder recheckInterval(Duration recheckInterval) {
+            if (recheckInterval == null || recheckInterval.isZero() || recheckInterval.isNegative()) {
+                throw new IllegalArgumentException("Recheck interval must be positive: " + recheckInterval);
+            }
+            this.recheckInterval = recheckInterval;
+            return this;
+        }
+
+        /**
+         * Registers the directories and creates the watcher.
+         *
+         * @return new watcher
+         * @throws IOException if the watch service could not be created
+         */
+        public DirectoryWatcher build() throws IOException {
+            return new DirectoryWatcher(this);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package io.github.ckofa.translitrenamer;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributes;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Condition a file must meet, besides a cyrillic name, to be renamed.
+ * <p>
+ * Filters are checked by the finders while they walk the folders, with the {@link BasicFileAttributes} already read
+ * for the entry, so a filter never costs another call to the file system. Size, time, extension and hidden-file
+ * filters do not allocate; glob and regex filters match the file name string the finder already has.
+ * Filters are combined with {@link #and(EntryFilter)}, {@link #or(EntryFilter)} and {@link #negate()}, or from
+ * lists of rules with {@link #of(List, List)}.
+ * </p>
+ */
+@FunctionalInterface
+public interface EntryFilter {
+
+    /**
+     * Filter that accepts every file.
+     */
+    EntryFilter ALL = (name, attrs) -> true;
+
+    /**
+     * Checks a file.
+     *
+     * @param name  file name, without the folder
+     * @param attrs attributes of the file, read once by the finder
+     * @return {@code true} if the file may be renamed
+     */
+    boolean accept(String name, BasicFileAttributes attrs);
+
+    /**
+     * Checks a file by its path.
+     *
+     * @param file  file
+     * @param attrs attributes of the file
+     * @return {@code true} if the file may be renamed
+     */
+    default boolean accept(Path file, BasicFileAttributes attrs) {
+        Path name = file.getFileName();
+        return accept(name == null ? "" : name.toString(), attrs);
+    }
+
+    /**
+     * @param other filter checked when this one accepts the file
+     * @return filter accepting the files accepted by both filters
+     */
+    default EntryFilter and(EntryFilter other) {
+        Objects.requireNonNull(other, "other");
+        if (this == ALL) {
+            return other;
+        }
+        if (other == ALL) {
+            return this;
+        }
+        return (name, attrs) -> accept(name, attrs) && other.accept(name, attrs);
+    }
+
+    /**
+     * @param other filter checked when this one rejects the file
+     * @return filter accepting the files accepted by either filter
+     */
+    default EntryFilter or(EntryFilter other) {
+        Objects.requireNonNull(other, "other");
+        if (this == ALL || other == ALL) {
+            return ALL;
+        }
+        return (name, attrs) -> accept(name, attrs) || other.accept(name, attrs);
+    }
+
+    /**
+     * @return filter accepting the files this one rejects
+     */
+    default EntryFilter negate() {
+        return (name, attrs) -> !accept(name, attrs);
+    }
+
+    /**
+     * Matches the file name against a glob, as {@code find -name} does: {@code *} and {@code ?} do not match
+     * a path separator, {@code [...]} is a set of characters and {@code {a,b}} a list of alternatives.
+     *
+     * @param glob glob pattern
+     * @return filter accepting the files whose name matches
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    static EntryFilter glob(String glob) {
+        return regex(globToRegex(glob));
+    }
+
+    /**
+     * Matches the whole file name against a regular expression.
+     *
+     * @param regex regular expression
+     * @return filter accepting the files whose name matches
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    static EntryFilter regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return (name, attrs) -> pattern.matcher(name).matches();
+    }
+
+    /**
+     * Accepts files with one of the extensions, compared without regard to case.
+     *
+     * @param extensions extensions, with or without the leading dot
+     * @return filter accepting the files with one of the extensions
+     * @throws IllegalArgumentException if no extension is given
+     */
+    static EntryFilter extensions(String... extensions) {
+        if (extensions.length == 0) {
+            throw new IllegalArgumentException("At least one extension is required");
+        }
+        String[] suffixes = new String[extensions.length];
+        for (int i = 0; i < extensions.length; i++) {
+            String extension = extensions[i].strip();
+            if (extension.isEmpty() || extension.equals(".")) {
+                throw new IllegalArgumentException("Extension must not be empty");
+            }
+            suffixes[i] = extension.startsWith(".") ? extension : "." + extension;
+        }
+        return (name, attrs) -> {
+            for (String suffix : suffixes) {
+                if (name.length() > suffix.length()
+                        && name.regionMatches(true, name.length() - suffix.length(), suffix, 0, suffix.length())) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * Accepts files whose size is within the bounds.
+     *
+     * @param min smallest size in bytes, inclusive
+     * @param max largest size in bytes, inclusive
+     * @return filter accepting the files of the size
+     * @throws IllegalArgumentException if the bounds are negative or reversed
+     */
+    static EntryFilter size(long min, long max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid size bounds: " + min + ".." + max);
+        }
+        return (name, attrs) -> attrs.size() >= min && attrs.size() <= max;
+    }
+
+    /**
+     * Accepts files last modified before the moment, such as uploads that are complete.
+     *
+     * @param instant moment, exclusive
+     * @return filter accepting the files modified before the moment
+     */
+    static EntryFilter modifiedBefore(Instant instant) {
+        long millis = instant.toEpochMilli();
+        return (name, attrs) -> attrs.lastModifiedTime().toMillis() < millis;
+    }
+
+    /**
+     * Accepts files last modified after the moment.
+     *
+     * @param instant moment, exclusive
+     * @return filter accepting the files modified after the moment
+     */
+    static EntryFilter modifiedAfter(Instant instant) {
+        long millis = instant.toEpochMilli();
+        return (name, attrs) -> attrs.lastModifiedTime().toMillis() > millis;
+    }
+
+    /**
+     * Accepts files not modified for at least the given time. The age is measured from the moment each file is
+     * checked, so a long-running watch does not use a stale bound.
+     *
+     * @param age   minimum age
+     * @param clock clock the age is measured by
+     * @return filter accepting the files older than the age
+     */
+    static EntryFilter olderThan(Duration age, Clock clock) {
+        long ageMillis = age.toMillis();
+        return (name, attrs) -> attrs.lastModifiedTime().toMillis() < clock.millis() - ageMillis;
+    }
+
+    /**
+     * Accepts files modified within the given time before the moment each file is checked.
+     *
+     * @param age   maximum age
+     * @param clock clock the age is measured by
+     * @return filter accepting the files newer than the age
+     */
+    static EntryFilter newerThan(Duration age, Clock clock) {
+        long ageMillis = age.toMillis();
+        return (name, attrs) -> attrs.lastModifiedTime().toMillis() > clock.millis() - ageMillis;
+    }
+
+    /**
+     * Accepts files that are not hidden: the name does not start with a dot and, on Windows, the hidden attribute
+     * is not set. On Windows the attributes read by the finder already carry that flag.
+     *
+     * @return filter rejecting hidden files
+     */
+    static EntryFilter notHidden() {
+        return (name, attrs) -> !name.startsWith(".")
+                && !(attrs instanceof DosFileAttributes dos && dos.isHidden());
+    }
+
+    /**
+     * Builds the filter of the include and exclude globs: a file must match one of the includes, if there are any,
+     * and none of the excludes.
+     *
+     * @param includes globs a file must match one of, empty for any file
+     * @param excludes globs a file must not match
+     * @return combined filter, {@link #ALL} if both lists are empty
+     */
+    static EntryFilter of(List<String> includes, List<String> excludes) {
+        EntryFilter filter = ALL;
+        if (!includes.isEmpty()) {
+            filter = anyOf(includes);
+        }
+        if (!excludes.isEmpty()) {
+            filter = filter.and(anyOf(excludes).negate());
+        }
+        return filter;
+    }
+
+    private static EntryFilter anyOf(List<String> globs) {
+        List<String> regexes = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            regexes.add(globToRegex(glob));
+        }
+        // One pattern with alternatives scans the name once
+        return regex(String.join("|", regexes));
+    }
+
+    /**
+     * Translates a glob pattern to a regular expression.
+     */
+    private static String globToRegex(String glob) {
+        if (glob == null || glob.isEmpty()) {
+            throw new IllegalArgumentException("Glob must not be empty");
+        }
+        StringBuilder regex = new StringBuilder(glob.length() + 8).append("(?:");
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char ch = glob.charAt(i);
+            switch (ch) {
+                case '*' -> regex.append("[^/\\\\]*");
+                case '?' -> regex.append("[^/\\\\]");
+                case '[' -> {
+                    int end = glob.indexOf(']', i + 1);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("Unclosed character set in glob: " + glob);
+                    }
+                    String set = glob.substring(i + 1, end);
+                    regex.append('[');
+                    if (set.startsWith("!")) {
+                        regex.append('^');
+                        set = set.substring(1);
+                    }
+                    regex.append(set.replace("\\", "\\\\").replace("[", "\\[")).append(']');
+                    i = end;
+                }
+                case '{' -> {
+                    if (inGroup) {
+                        throw new IllegalArgumentException("Nested groups are not supported in glob: " + glob);
+                    }
+                    inGroup = true;
+                    regex.append("(?:");
+                }
+                case '}' -> {
+                    if (!inGroup) {
+                        throw new IllegalArgumentException("Unmatched '}' in glob: " + glob);
+                    }
+                    inGroup = false;
+                    regex.append(')');
+                }
+                case ',' -> regex.append(inGroup ? '|' : ',');
+                case '\\' -> {
+                    if (i + 1 < glob.length()) {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    } else {
+                        regex.append("\\\\");
+                    }
+                }
+                default -> {
+                    if ("().+^$|".indexOf(ch) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(ch);
+                }
+            }
+        }
+        if (inGroup) {
+            throw new IllegalArgumentException("Unclosed group in glob: " + glob);
+        }
+        return regex.append(')').toString();
+    }
+}
@@ -2,14 +2,16 @@ package io.github.ckofa.translitrenamer;
 
 import java.io.File;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface to search for files in a specified directory.
  * <p>
- * Provides methods to search for files matching certain criteria.
+ * Provides methods to search for files matching certain criteria. A finder that holds threads releases them
+ * in {@link #close()}.
  * </p>
  */
-public interface FileFinder {
+public interface FileFinder extends AutoCloseable {
 
     /**
      * Finds files in a specified directory that match certain criteria.
@@ -31,4 +33,29 @@ public interface FileFinder {
      * @throws IllegalStateException if could not read the contents of the folder.
      */
     List<File> findFilesOrThrow(String folderPath);
+
+    /**
+     * Finds files in a specified directory that match certain criteria and passes each of them to the action
+     * as soon as it is found, without collecting the whole result first.
+     * <p>
+     * The default implementation delegates to {@link #findFilesOrThrow(String)}. Implementations that scan
+     * several directories at once may call the action from different threads.
+     * </p>
+     *
+     * @param folderPath directory path for searching files
+     * @param action action to be performed for each found file
+     * @throws IllegalArgumentException if the path is invalid
+     * @throws IllegalStateException if could not read the contents of the folder.
+     */
+    default void forEachFileOrThrow(String folderPath, Consumer<File> action) {
+        findFilesOrThrow(folderPath).forEach(action);
+    }
+
+    /**
+     * Releases the resources of the finder, such as its threads; the finder must not be used afterwards.
+     * The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+    }
 }
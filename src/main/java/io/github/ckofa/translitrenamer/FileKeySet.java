@@ -0,0 +1,153 @@
+package io.github.ckofa.translitrenamer;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent set of the file keys seen during a scan, used to visit every folder and file once whatever the number
+ * of paths leading to it: hard links, symbolic links, bind mounts.
+ * <p>
+ * A file key, {@link BasicFileAttributes#fileKey()}, is the device and inode number on Unix. The set does not keep
+ * the key objects: it keeps a 64-bit hash of every key in open-addressing {@code long} tables, 11 to 22 bytes per
+ * key, split into stripes with a lock each, so threads adding keys of different stripes do not wait for each other.
+ * Two different keys with the same hash are taken for one, so a folder may be skipped as a duplicate of another; with
+ * ten million keys the odds of a single such collision are about three in a million.
+ * </p>
+ * <p>
+ * The memory is bounded by the maximum number of keys given when the set is created. Once a stripe is full, its new
+ * keys are not stored and count as not seen: the scan goes on with less deduplication instead of more memory, and
+ * the number of such keys is reported by {@link #getUntrackedCount()}.
+ * </p>
+ */
+final class FileKeySet {
+
+    /**
+     * Default maximum number of keys, at most 64 MB of tables.
+     */
+    static final int DEFAULT_MAX_KEYS = 1 << 22;
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+    private static final long EMPTY = 0;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final int maxKeysPerStripe;
+    private final LongAdder untracked = new LongAdder();
+
+    /**
+     * Creates an empty set.
+     *
+     * @param maxKeys maximum number of keys kept, at least 1
+     */
+    FileKeySet(int maxKeys) {
+        if (maxKeys < 1) {
+            throw new IllegalArgumentException("Maximum number of file keys must be positive: " + maxKeys);
+        }
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds the key of a file or folder.
+     *
+     * @param fileKey file key, may be {@code null} where the file system has none
+     * @return {@code false} if the key has been added before, {@code true} if it is new or cannot be tracked
+     */
+    boolean add(Object fileKey) {
+        if (fileKey == null) {
+            return true;
+        }
+        long hash = hash(fileKey.toString());
+        Stripe stripe = stripes[(int) (hash >>> 58)];
+        synchronized (stripe) {
+            return stripe.add(hash);
+        }
+    }
+
+    /**
+     * @return number of keys in the set
+     */
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of keys not stored because the set was full
+     */
+    long getUntrackedCount() {
+        return untracked.sum();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the text of the key, with the final mix of MurmurHash3 spreading it over all bits.
+     * On Unix the text is {@code (dev=...,ino=...)}, so equal keys give equal texts.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // Zero marks an empty slot
+        return hash == EMPTY ? 1 : hash;
+    }
+
+    /**
+     * Open-addressing table with linear probing, kept at most three quarters full.
+     */
+    private final class Stripe {
+
+        private long[] slots = new long[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        boolean add(long hash) {
+            int mask = slots.length - 1;
+            // The top bits choose the stripe, the low bits choose the slot
+            int index = (int) hash & mask;
+            while (slots[index] != EMPTY) {
+                if (slots[index] == hash) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            if (size >= maxKeysPerStripe) {
+                untracked.increment();
+                return true;
+            }
+            if ((size + 1) * 4L > slots.length * 3L) {
+                grow();
+                return add(hash);
+            }
+            slots[index] = hash;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long hash : old) {
+                if (hash != EMPTY) {
+                    int index = (int) hash & mask;
+                    while (slots[index] != EMPTY) {
+                        index = (index + 1) & mask;
+                    }
+                    slots[index] = hash;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves the files of one batch to their new names in the same folder, as selected by a {@link RenameBackend}.
+ * <p>
+ * Like {@link Files#move(Path, Path, java.nio.file.CopyOption...)} without options, a move never replaces an
+ * existing file. Movers are safe for concurrent moves and must be closed after the batch to release the folder
+ * handles.
+ * </p>
+ */
+interface FileMover extends AutoCloseable {
+
+    /**
+     * Moves with the full paths.
+     */
+    FileMover PATH = Files::move;
+
+    /**
+     * Moves the file.
+     *
+     * @param source file to move
+     * @param target new path of the file
+     * @throws FileAlreadyExistsException if the target exists
+     * @throws IOException                if the file could not be moved
+     */
+    void move(Path source, Path target) throws IOException;
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Creates a mover for one batch.
+     *
+     * @param backend how files are moved
+     * @return new mover, {@link #PATH} for the path backend
+     */
+    static FileMover open(RenameBackend backend) {
+        return backend == RenameBackend.DIRECTORY_HANDLE ? new DirectoryHandleMover() : PATH;
+    }
+
+    /**
+     * Opens every folder once, on its first move, and renames its files relative to the open handle.
+     * Folders that cannot be opened as a {@link SecureDirectoryStream} are moved in by path.
+     */
+    final class DirectoryHandleMover implements FileMover {
+
+        private static final LinkOption[] NO_FOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+
+        /**
+         * Open handle of a folder, {@code null} stream if the folder is moved in by path.
+         */
+        private record Handle(SecureDirectoryStream<Path> stream) {
+        }
+
+        private static final Handle BY_PATH = new Handle(null);
+
+        private final Map<Path, Handle> handles = new ConcurrentHashMap<>();
+
+        private DirectoryHandleMover() {
+        }
+
+        @Override
+        public void move(Path source, Path target) throws IOException {
+            Path folder = source.getParent();
+            if (folder == null || !folder.equals(target.getParent())) {
+                Files.move(source, target);
+                return;
+            }
+            SecureDirectoryStream<Path> stream = handles.computeIfAbsent(folder, DirectoryHandleMover::openHandle)
+                    .stream();
+            if (stream == null) {
+                Files.move(source, target);
+                return;
+            }
+            Path targetName = target.getFileName();
+            if (exists(stream, targetName)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            try {
+                stream.move(source.getFileName(), stream, targetName);
+            } catch (NoSuchFileException e) {
+                // The exception names only the file, not the folder
+                throw new NoSuchFileException(source.toString(), target.toString(), e.getReason());
+            }
+        }
+
+        private static Handle openHandle(Path folder) {
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(folder);
+            } catch (IOException e) {
+                return BY_PATH; // the move by path reports the error
+            }
+            if (stream instanceof SecureDirectoryStream<Path> secure) {
+                return new Handle(secure);
+            }
+            if (stream != null) {
+                closeQuietly(stream);
+            }
+            return BY_PATH;
+        }
+
+        /**
+         * Checks the name in the open folder without following a symbolic link, as the move by path does.
+         */
+        private static boolean exists(SecureDirectoryStream<Path> stream, Path name) throws IOException {
+            try {
+                stream.getFileAttributeView(name, BasicFileAttributeView.class, NO_FOLLOW_LINKS).readAttributes();
+                return true;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() {
+            for (Handle handle : handles.values()) {
+                if (handle.stream() != null) {
+                    closeQuietly(handle.stream());
+                }
+            }
+            handles.clear();
+        }
+
+        private static void closeQuietly(DirectoryStream<Path> stream) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // nothing was written through the handle, so there is nothing to lose
+            }
+        }
+    }
+}
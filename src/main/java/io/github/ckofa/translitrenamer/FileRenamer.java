@@ -16,14 +16,16 @@ public interface FileRenamer {
      * The built-in FileFinder is used.
      *
      * @param folderPath path to the directory where files will be searched
+     * @return result of the renaming, empty if the folder could not be read
      */
-    void renameFiles(String folderPath);
+    RenameResult renameFiles(String folderPath);
 
     /**
      * Rename a specific list of files.
      * Can be used with any file source.
      *
      * @param files file list for renaming
+     * @return result of the renaming with the outcome of every file
      */
-    void renameFiles(List<File> files);
+    RenameResult renameFiles(List<File> files);
 }
@@ -0,0 +1,359 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces the file system operations of a run, moves and folder listings, so that shared storage is not flooded.
+ * <p>
+ * Two limits apply to every operation passed to {@link #call(IoCall)} or {@link #run(IoAction)}:
+ * </p>
+ * <ul>
+ *     <li>a cap on the operations started per second, spread evenly over the second;</li>
+ *     <li>a cap on the operations in flight at once. With {@link Builder#adaptive(boolean) adaptive} concurrency the
+ *     cap moves between the minimum and the maximum with the observed latency (AIMD): it doubles while the storage
+ *     keeps up, as in TCP slow start, then grows by one per round of operations, and halves when the latency of
+ *     recent operations rises well above the long-term average. This way a local disk is driven at the maximum,
+ *     while a busy network share settles at the rate it can serve.</li>
+ * </ul>
+ * <p>
+ * Latency is compared with two moving averages: a short one that follows the last few operations and a long one
+ * that is the baseline. Operations faster than the {@link Builder#latencyFloor(Duration) latency floor} never count
+ * as congestion, so the jitter of microsecond-scale local renames does not throttle them. Instances are thread-safe
+ * and one governor is shared by all the components working on the same storage.
+ * </p>
+ */
+public final class IoGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(IoGovernor.class);
+
+    /** Weight of a new latency sample in the short average: the last 8 or so operations. */
+    private static final double SHORT_WEIGHT = 1.0 / 8;
+    /** Weight of a new latency sample in the long average: the last few hundred operations. */
+    private static final double LONG_WEIGHT = 1.0 / 256;
+
+    /**
+     * File system operation returning a value.
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    public interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * File system operation without a result.
+     */
+    @FunctionalInterface
+    public interface IoAction {
+        void run() throws IOException;
+    }
+
+    private final long intervalNanos;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final boolean adaptive;
+    private final double latencyTolerance;
+    private final long latencyFloorNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private long nextStartNanos = Long.MIN_VALUE;
+    private int limit;
+    private int inFlight;
+    private int peakInFlight;
+    private int completedInRound;
+    private boolean slowStart = true;
+    private double shortLatency;
+    private double longLatency;
+
+    private IoGovernor(Builder builder) {
+        this.intervalNanos = builder.maxOpsPerSecond == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / builder.maxOpsPerSecond;
+        this.minConcurrency = builder.minConcurrency;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.adaptive = builder.adaptive;
+        this.latencyTolerance = builder.latencyTolerance;
+        this.latencyFloorNanos = builder.latencyFloor.toNanos();
+        this.limit = adaptive ? minConcurrency : maxConcurrency;
+    }
+
+    /**
+     * Creates a builder with the default settings: no rate cap, at most one operation at a time, fixed concurrency.
+     *
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the operation once both limits allow it and records its latency.
+     *
+     * @param operation file system operation
+     * @param <T>       type of the result
+     * @return result of the operation
+     * @throws InterruptedIOException if the thread was interrupted while waiting for its turn
+     * @throws IOException            if the operation failed
+     */
+    public <T> T call(IoCall<T> operation) throws IOException {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            return operation.call();
+        } finally {
+            release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs the operation once both limits allow it and records its latency.
+     *
+     * @param operation file system operation
+     * @throws InterruptedIOException if the thread was interrupted while waiting for its turn
+     * @throws IOException            if the operation failed
+     */
+    public void run(IoAction operation) throws IOException {
+        call(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return current maximum number of operations in flight
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a free slot and then for the start time reserved for this operation by the rate cap.
+     * Every acquired slot must be {@link #release(long) released}.
+     */
+    void acquire() throws InterruptedIOException {
+        long startAt;
+        lock.lock();
+        try {
+            while (inFlight >= limit) {
+                slotFreed.await();
+            }
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            startAt = reserveStart();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an I/O slot");
+        } finally {
+            lock.unlock();
+        }
+        if (intervalNanos == 0) {
+            return;
+        }
+        try {
+            sleepUntil(startAt);
+        } catch (InterruptedIOException e) {
+            release(-1);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves the start time of the next operation, one interval after the previous one. An idle period does not
+     * build up credit for a burst: a reservation is never earlier than now.
+     */
+    private long reserveStart() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long start = nextStartNanos == Long.MIN_VALUE || nextStartNanos - now < 0 ? now : nextStartNanos;
+        nextStartNanos = start + intervalNanos;
+        return start;
+    }
+
+    private static void sleepUntil(long startAt) throws InterruptedIOException {
+        long remaining;
+        while ((remaining = startAt - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+            }
+        }
+    }
+
+    /**
+     * Frees the slot of an operation and adjusts the limit to its latency.
+     *
+     * @param latencyNanos latency of the operation, negative if it never ran
+     */
+    void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (adaptive && latencyNanos >= 0) {
+                adjust(latencyNanos);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long latencyNanos) {
+        if (longLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+        } else {
+            shortLatency += (latencyNanos - shortLatency) * SHORT_WEIGHT;
+            longLatency += (latencyNanos - longLatency) * LONG_WEIGHT;
+        }
+        completedInRound++;
+        boolean congested = shortLatency > latencyFloorNanos && shortLatency > longLatency * latencyTolerance;
+        if (congested) {
+            // Once per round: the operations already in flight report the same spike
+            if (completedInRound >= limit && limit > minConcurrency) {
+                int previous = limit;
+                limit = Math.max(minConcurrency, limit / 2);
+                slowStart = false;
+                log.debug("I/O latency {} us above the baseline of {} us, concurrency {} -> {}",
+                        (long) shortLatency / 1000, (long) longLatency / 1000, previous, limit);
+                // The next round is judged by its own operations, not by the spike
+                shortLatency = longLatency;
+                startRound();
+            }
+            return;
+        }
+        // A limit is raised only when it was reached, a sequential caller never needs more
+        if (completedInRound >= limit && limit < maxConcurrency) {
+            if (peakInFlight >= limit) {
+                limit = slowStart ? Math.min(maxConcurrency, limit * 2) : limit + 1;
+            }
+            startRound();
+        }
+    }
+
+    private void startRound() {
+        completedInRound = 0;
+        peakInFlight = inFlight;
+    }
+
+    /**
+     * Builder for {@link IoGovernor}.
+     */
+    public static final class Builder {
+
+        private int maxOpsPerSecond;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 1;
+        private boolean adaptive;
+        private double latencyTolerance = 2.0;
+        private Duration latencyFloor = Duration.ofMillis(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of operations started per second.
+         *
+         * @param maxOpsPerSecond operations per second, {@code 0} for no cap
+         * @return this builder
+         */
+        public Builder maxOpsPerSecond(int maxOpsPerSecond) {
+            if (maxOpsPerSecond < 0) {
+                throw new IllegalArgumentException("Operations per second must not be negative: " + maxOpsPerSecond);
+            }
+            this.maxOpsPerSecond = maxOpsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of operations in flight; with adaptive concurrency, the upper bound of the limit.
+         *
+         * @param maxConcurrency maximum concurrency, at least 1
+         * @return this builder
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            if (maxConcurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrency);
+            }
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets the lower bound of the adaptive limit, which is also where it starts.
+         *
+         * @param minConcurrency minimum concurrency, at least 1
+         * @return this builder
+         */
+        public Builder minConcurrency(int minConcurrency) {
+            if (minConcurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be positive: " + minConcurrency);
+            }
+            this.minConcurrency = minConcurrency;
+            return this;
+        }
+
+        /**
+         * Sets whether the concurrency limit follows the latency of the operations.
+         *
+         * @param adaptive {@code true} for adaptive concurrency, {@code false} to keep the maximum
+         * @return this builder
+         */
+        public Builder adaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+            return this;
+        }
+
+        /**
+         * Sets how many times the recent latency may exceed the baseline before the limit is cut.
+         *
+         * @param latencyTolerance ratio above 1
+         * @return this builder
+         */
+        public Builder latencyTolerance(double latencyTolerance) {
+            if (!(latencyTolerance > 1)) {
+                throw new IllegalArgumentException("Latency tolerance must be above 1: " + latencyTolerance);
+            }
+            this.latencyTolerance = latencyTolerance;
+            return this;
+        }
+
+        /**
+         * Sets the latency that never counts as congestion, however far above the baseline it is.
+         *
+         * @param latencyFloor latency floor
+         * @return this builder
+         */
+        public Builder latencyFloor(Duration latencyFloor) {
+            if (latencyFloor.isNegative()) {
+                throw new IllegalArgumentException("Latency floor must not be negative: " + latencyFloor);
+            }
+            this.latencyFloor = latencyFloor;
+            return this;
+        }
+
+        public IoGovernor build() {
+            if (minConcurrency > maxConcurrency) {
+                throw new IllegalArgumentException(
+                        "Minimum concurrency " + minConcurrency + " is above the maximum " + maxConcurrency);
+            }
+            return new IoGovernor(this);
+        }
+    }
+}
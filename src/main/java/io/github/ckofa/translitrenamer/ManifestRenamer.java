@@ -0,0 +1,264 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Renames the files listed in a manifest, such as the output of {@code find -print0} or a database export.
+ * <p>
+ * The manifest is read as a stream of UTF-8 paths separated by newlines or by NUL characters. Paths whose file
+ * name has no cyrillic characters are dropped right away; the others are collected into a window of at most
+ * {@code batchSize} files, grouped by parent folder so that the files of one folder are planned and moved
+ * together, and passed to {@link FileRenamer#renameFiles(List)}. Only one window and the counters are kept,
+ * so the memory used does not depend on the length of the manifest.
+ * </p>
+ * <p>
+ * The result of every batch is passed to an optional listener, for instance to print a dry-run plan;
+ * {@link #run(InputStream)} itself returns only the totals. Use {@link #builder(FileRenamer)} to create an instance.
+ * </p>
+ */
+public final class ManifestRenamer {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestRenamer.class);
+
+    /**
+     * Default maximum number of files passed to the renamer at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * Separator of the paths in a manifest.
+     */
+    public enum Delimiter {
+        /** One path per line; a trailing carriage return is ignored. */
+        NEWLINE('\n'),
+        /** Paths terminated by NUL characters, as written by {@code find -print0}; allows newlines in names. */
+        NUL('\0');
+
+        private final char character;
+
+        Delimiter(char character) {
+            this.character = character;
+        }
+    }
+
+    /**
+     * Totals of a manifest run.
+     *
+     * @param paths    number of paths read from the manifest
+     * @param ignored  number of paths without cyrillic characters in the file name or not valid as a path
+     * @param renamed  number of renamed files
+     * @param planned  number of files that would be renamed in a dry run
+     * @param skipped  number of files left as is on purpose
+     * @param failed   number of files that could not be renamed
+     */
+    public record Totals(long paths, long ignored, long renamed, long planned, long skipped, long failed) {
+    }
+
+    private final FileRenamer fileRenamer;
+    private final Delimiter delimiter;
+    private final int batchSize;
+    private final CyrillicDetector detector;
+    private final Consumer<RenameResult> batchListener;
+
+    private ManifestRenamer(Builder builder) {
+        this.fileRenamer = builder.fileRenamer;
+        this.delimiter = builder.delimiter;
+        this.batchSize = builder.batchSize;
+        this.detector = builder.detector;
+        this.batchListener = builder.batchListener;
+    }
+
+    /**
+     * Creates a builder with default settings: newline-delimited paths, batches of {@link #DEFAULT_BATCH_SIZE}
+     * files and the basic Cyrillic block detected.
+     *
+     * @param fileRenamer renamer the batches are passed to
+     * @return new builder
+     */
+    public static Builder builder(FileRenamer fileRenamer) {
+        return new Builder(fileRenamer);
+    }
+
+    /**
+     * Reads the manifest to the end and renames the listed files. The stream is not closed.
+     *
+     * @param manifest manifest in UTF-8
+     * @return totals of the run
+     * @throws IOException if the manifest could not be read; the batches read before are already renamed
+     */
+    public Totals run(InputStream manifest) throws IOException {
+        Counter counter = new Counter();
+        List<File> window = new ArrayList<>(batchSize);
+        Reader reader = new InputStreamReader(manifest, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        StringBuilder path = new StringBuilder(256);
+
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                char ch = buffer[i];
+                if (ch != delimiter.character) {
+                    path.append(ch);
+                    continue;
+                }
+                accept(path, window, counter);
+                path.setLength(0);
+            }
+        }
+        accept(path, window, counter); // the last path may have no delimiter
+        flush(window, counter);
+        return counter.totals();
+    }
+
+    private void accept(StringBuilder text, List<File> window, Counter counter) {
+        if (delimiter == Delimiter.NEWLINE && !text.isEmpty() && text.charAt(text.length() - 1) == '\r') {
+            text.setLength(text.length() - 1);
+        }
+        if (text.isEmpty()) {
+            return;
+        }
+        counter.paths++;
+        Path path;
+        try {
+            path = Path.of(text.toString());
+        } catch (InvalidPathException e) {
+            log.error("Invalid path in the manifest, skipping: {}", e.getMessage());
+            counter.ignored++;
+            return;
+        }
+        Path fileName = path.getFileName();
+        if (fileName == null || !detector.containsCyrillic(fileName.toString())) {
+            counter.ignored++;
+            return;
+        }
+        window.add(path.toFile());
+        if (window.size() >= batchSize) {
+            flush(window, counter);
+        }
+    }
+
+    /**
+     * Passes the window to the renamer, the files of each folder together in the order the folders first appeared.
+     */
+    private void flush(List<File> window, Counter counter) {
+        if (window.isEmpty()) {
+            return;
+        }
+        Map<File, List<File>> byParent = new LinkedHashMap<>();
+        for (File file : window) {
+            byParent.computeIfAbsent(file.getAbsoluteFile().getParentFile(), parent -> new ArrayList<>()).add(file);
+        }
+        List<File> batch = new ArrayList<>(window.size());
+        byParent.values().forEach(batch::addAll);
+        window.clear();
+
+        RenameResult result = fileRenamer.renameFiles(batch);
+        counter.add(result);
+        if (batchListener != null) {
+            batchListener.accept(result);
+        }
+    }
+
+    private static final class Counter {
+        private long paths;
+        private long ignored;
+        private long renamed;
+        private long planned;
+        private long skipped;
+        private long failed;
+
+        private void add(RenameResult result) {
+            renamed += result.getRenamedCount();
+            planned += result.getPlannedCount();
+            skipped += result.getSkippedCount();
+            failed += result.getFailedCount();
+        }
+
+        private Totals totals() {
+            return new Totals(paths, ignored, renamed, planned, skipped, failed);
+        }
+    }
+
+    /**
+     * Builder for {@link ManifestRenamer}.
+     */
+    public static final class Builder {
+
+        private final FileRenamer fileRenamer;
+        private Delimiter delimiter = Delimiter.NEWLINE;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private CyrillicDetector detector = CyrillicDetector.BASIC;
+        private Consumer<RenameResult> batchListener;
+
+        private Builder(FileRenamer fileRenamer) {
+            this.fileRenamer = Objects.requireNonNull(fileRenamer, "fileRenamer");
+        }
+
+        /**
+         * Sets the separator of the paths.
+         *
+         * @param delimiter path separator
+         * @return this builder
+         */
+        public Builder delimiter(Delimiter delimiter) {
+            this.delimiter = Objects.requireNonNull(delimiter, "delimiter");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of files passed to the renamer at once.
+         *
+         * @param batchSize batch size, at least 1
+         * @return this builder
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Sets the detector used to check the file names.
+         *
+         * @param detector detector of cyrillic characters
+         * @return this builder
+         */
+        public Builder detector(CyrillicDetector detector) {
+            this.detector = Objects.requireNonNull(detector, "detector");
+            return this;
+        }
+
+        /**
+         * Sets the listener called with the result of every batch, in the calling thread.
+         *
+         * @param batchListener listener, {@code null} for none
+         * @return this builder
+         */
+        public Builder batchListener(Consumer<RenameResult> batchListener) {
+            this.batchListener = batchListener;
+            return this;
+        }
+
+        public ManifestRenamer build() {
+            return new ManifestRenamer(this);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.ckofa.translitrenamer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded cache of new names in front of a transliteration function.
+ * <p>
+ * Trees often repeat the same folder and file names, like {@code Документы} in every user folder; the cache
+ * keeps the most recently used names and evicts the least recently used one when it is full, so memory stays
+ * bounded however large the tree is. Lookups are synchronized, the renamer may call it from several threads.
+ * </p>
+ */
+final class NameCache implements UnaryOperator<String> {
+
+    private final UnaryOperator<String> mapper;
+    private final Map<String, String> names;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param mapper   function that computes the new name on a miss
+     * @param capacity maximum number of cached names, at least 1
+     */
+    NameCache(UnaryOperator<String> mapper, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.mapper = mapper;
+        this.names = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public synchronized String apply(String name) {
+        String result = names.get(name);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        misses++;
+        result = mapper.apply(name);
+        names.put(name, result);
+        return result;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,246 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Compact list of the files found by a scan, read as a {@code List<File>}.
+ * <p>
+ * A list of {@link File}s keeps the full path of every file, so in a deep tree most of the heap holds the same
+ * folder prefixes again and again. The table keeps every folder once, as a node with the index of its parent and
+ * its own name, and every file as the index of its folder and its name. All names are stored one after another in
+ * a single {@code char} array and the nodes and entries are columns of {@code int} arrays, so a file costs two
+ * bytes per character of its name plus twelve bytes, and no object at all. A {@link File} is only created when
+ * {@link #get(int)} is called, typically by {@link TransliterationFileRenamer} just before the file is moved.
+ * </p>
+ * <p>
+ * The files of a folder are added together, so they are adjacent in the table; {@link #directoryRunEnd(int)}
+ * tells where the run of a folder ends. The table is filled by a finder, possibly from several threads, and only
+ * read afterwards; as a list it cannot be modified.
+ * </p>
+ */
+public final class PathTable extends AbstractList<File> implements RandomAccess {
+
+    /**
+     * Index of the folder the table was created for.
+     */
+    public static final int ROOT = 0;
+
+    private static final int NO_PARENT = -1;
+
+    /** Largest array length the JVM reliably allocates. */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private final String root;
+    private final char separator = File.separatorChar;
+
+    private char[] chars = new char[1024];
+    private int charCount;
+
+    private int[] directoryParents = new int[16];
+    private int[] directoryNameStarts = new int[16];
+    private int[] directoryNameLengths = new int[16];
+    private int directoryCount;
+
+    private int[] entryDirectories = new int[64];
+    private int[] entryNameStarts = new int[64];
+    private int[] entryNameLengths = new int[64];
+    private int size;
+
+    /**
+     * Path of the folder materialized last; consecutive files are usually in the same folder.
+     */
+    private volatile DirectoryPath lastDirectory;
+
+    private record DirectoryPath(int directory, String path) {
+    }
+
+    /**
+     * Creates an empty table for the files found in the folder and below it.
+     *
+     * @param root folder of the scan, its node is {@link #ROOT}
+     */
+    public PathTable(Path root) {
+        this.root = root.toString();
+        directoryParents[ROOT] = NO_PARENT;
+        directoryCount = 1;
+    }
+
+    /**
+     * Adds a folder below a folder of the table.
+     *
+     * @param parent index of the parent folder
+     * @param name   name of the folder
+     * @return index of the new folder
+     */
+    synchronized int addDirectory(int parent, String name) {
+        Objects.checkIndex(parent, directoryCount);
+        if (directoryCount == directoryParents.length) {
+            int capacity = grow(directoryCount);
+            directoryParents = Arrays.copyOf(directoryParents, capacity);
+            directoryNameStarts = Arrays.copyOf(directoryNameStarts, capacity);
+            directoryNameLengths = Arrays.copyOf(directoryNameLengths, capacity);
+        }
+        directoryParents[directoryCount] = parent;
+        directoryNameStarts[directoryCount] = appendChars(name);
+        directoryNameLengths[directoryCount] = name.length();
+        return directoryCount++;
+    }
+
+    /**
+     * Adds a file in a folder of the table.
+     *
+     * @param directory index of the folder
+     * @param name      name of the file
+     */
+    synchronized void addFile(int directory, String name) {
+        Objects.checkIndex(directory, directoryCount);
+        addEntry(directory, name);
+    }
+
+    /**
+     * Adds the files of a folder as one run.
+     *
+     * @param directory index of the folder
+     * @param names     names of the files
+     */
+    synchronized void addFiles(int directory, List<String> names) {
+        Objects.checkIndex(directory, directoryCount);
+        for (String name : names) {
+            addEntry(directory, name);
+        }
+    }
+
+    private void addEntry(int directory, String name) {
+        if (size == entryDirectories.length) {
+            int capacity = grow(size);
+            entryDirectories = Arrays.copyOf(entryDirectories, capacity);
+            entryNameStarts = Arrays.copyOf(entryNameStarts, capacity);
+            entryNameLengths = Arrays.copyOf(entryNameLengths, capacity);
+        }
+        entryDirectories[size] = directory;
+        entryNameStarts[size] = appendChars(name);
+        entryNameLengths[size] = name.length();
+        size++;
+    }
+
+    private int appendChars(String name) {
+        int start = charCount;
+        if (chars.length - start < name.length()) {
+            long needed = (long) start + name.length();
+            if (needed > MAX_CAPACITY) {
+                throw new IllegalStateException("Path table is full: " + size + " files");
+            }
+            chars = Arrays.copyOf(chars, Math.max((int) needed, grow(chars.length)));
+        }
+        name.getChars(0, name.length(), chars, start);
+        charCount = start + name.length();
+        return start;
+    }
+
+    /**
+     * @return half again the capacity, at least one more and at most {@link #MAX_CAPACITY}
+     */
+    private static int grow(int capacity) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Path table is full: " + capacity + " entries");
+        }
+        int growth = Math.max(1, capacity >> 1);
+        // Compared before adding, the sum would overflow
+        return capacity > MAX_CAPACITY - growth ? MAX_CAPACITY : capacity + growth;
+    }
+
+    /**
+     * Creates the {@link File} of an entry; the path of its folder is built from the folder nodes.
+     *
+     * @param index index of the entry
+     * @return file of the entry
+     */
+    @Override
+    public File get(int index) {
+        Objects.checkIndex(index, size);
+        return new File(child(directoryPath(entryDirectories[index]), entryNameStarts[index],
+                entryNameLengths[index]));
+    }
+
+    /**
+     * @param index index of the entry
+     * @return name of the file, without its folder
+     */
+    public String getName(int index) {
+        Objects.checkIndex(index, size);
+        return new String(chars, entryNameStarts[index], entryNameLengths[index]);
+    }
+
+    /**
+     * @param index index of the entry
+     * @return index of the folder of the file
+     */
+    public int getDirectory(int index) {
+        Objects.checkIndex(index, size);
+        return entryDirectories[index];
+    }
+
+    /**
+     * Finds the end of the run of files of one folder.
+     *
+     * @param start index of the first entry of the run
+     * @return index after the last entry in the same folder as the entry at {@code start}
+     */
+    public int directoryRunEnd(int start) {
+        Objects.checkIndex(start, size);
+        int directory = entryDirectories[start];
+        int end = start + 1;
+        while (end < size && entryDirectories[end] == directory) {
+            end++;
+        }
+        return end;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of folder nodes, the root included
+     */
+    public int getDirectoryCount() {
+        return directoryCount;
+    }
+
+    private String directoryPath(int directory) {
+        DirectoryPath last = lastDirectory;
+        if (last != null && last.directory() == directory) {
+            return last.path();
+        }
+        String path = buildDirectoryPath(directory);
+        lastDirectory = new DirectoryPath(directory, path);
+        return path;
+    }
+
+    private String buildDirectoryPath(int directory) {
+        if (directory == ROOT) {
+            return root;
+        }
+        return child(buildDirectoryPath(directoryParents[directory]), directoryNameStarts[directory],
+                directoryNameLengths[directory]);
+    }
+
+    private String child(String parent, int nameStart, int nameLength) {
+        if (parent.isEmpty()) {
+            return new String(chars, nameStart, nameLength);
+        }
+        boolean hasSeparator = parent.charAt(parent.length() - 1) == separator;
+        StringBuilder path = new StringBuilder(parent.length() + 1 + nameLength).append(parent);
+        if (!hasSeparator) {
+            path.append(separator);
+        }
+        return path.append(chars, nameStart, nameLength).toString();
+    }
+}
@@ -0,0 +1,534 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * An implementation of the {@link FileFinder} interface that searches a whole directory tree
+ * for files with cyrillic characters in the name.
+ * <p>
+ * Every subdirectory is scanned by a separate {@link RecursiveAction}, so subtrees are spread across the
+ * worker threads of a {@link ForkJoinPool} and idle workers steal pending subtrees from busy ones.
+ * Instances are immutable and can be reused for several searches; use {@link #builder()} to create one.
+ * All the searches of an instance share its pool, whose daemon worker threads are started by the first search
+ * and end after a while without work; {@link #close()} shuts the pool down, so a process that creates a finder
+ * per run or per job does not pile up pools.
+ * </p>
+ * <p>
+ * {@link #forEachFileOrThrow(String, Consumer)} calls the action from the worker threads as soon as a match
+ * is found, so the action must be thread-safe.
+ * </p>
+ * <p>
+ * When symbolic links are followed, a link to a folder that contains it is not entered again, so a loop of links
+ * ends the descent instead of repeating it up to the depth limit. With {@link Builder#deduplicate(boolean)
+ * deduplication} the {@link BasicFileAttributes#fileKey() file keys} of the folders are kept in a {@link FileKeySet},
+ * and a folder already found under another path, a symbolic link or a bind mount, is skipped, so its files are found
+ * once. Files are not deduplicated: every hard link or symbolic link to a file is a name of its own, and is renamed.
+ * The number of skipped folders is logged and recorded in the metrics.
+ * </p>
+ */
+public class RecursiveCyrillicFileFinder implements FileFinder {
+
+    private static final Logger log = LoggerFactory.getLogger(RecursiveCyrillicFileFinder.class);
+
+    private static final LinkOption[] NO_FOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+    private static final LinkOption[] FOLLOW_LINKS = {};
+
+    private final int maxDepth;
+    private final int parallelism;
+    private final boolean followLinks;
+    private final CyrillicDetector detector;
+    private final DirectoryStateIndex stateIndex;
+    private final RunMetrics metrics;
+    private final EntryFilter filter;
+    private final IoGovernor governor;
+    private final boolean deduplicate;
+    private final int maxTrackedKeys;
+    private final ForkJoinPool pool;
+
+    private RecursiveCyrillicFileFinder(Builder builder) {
+        this.maxDepth = builder.maxDepth;
+        this.parallelism = builder.parallelism;
+        this.followLinks = builder.followLinks;
+        this.detector = builder.detector;
+        this.stateIndex = builder.stateIndex;
+        this.metrics = builder.metrics;
+        this.filter = builder.filter;
+        this.governor = builder.governor;
+        this.deduplicate = builder.deduplicate;
+        this.maxTrackedKeys = builder.maxTrackedKeys;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates a builder with default settings: unlimited depth, one worker per available processor,
+     * symbolic links not followed, the basic Cyrillic block detected and no filter.
+     *
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<File> findFiles(String folderPath) {
+        try {
+            return findFilesOrThrow(folderPath);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid folder path: {}", e.getMessage());
+        } catch (IllegalStateException e) {
+            log.error("Could not read folder contents: {}", e.getMessage());
+        }
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<File> findFilesOrThrow(String folderPath) {
+        Path root = rootOf(folderPath);
+        PathTable table = new PathTable(root);
+        scan(root, folderPath, null, table);
+        return table;
+    }
+
+    @Override
+    public void forEachFileOrThrow(String folderPath, Consumer<File> action) {
+        scan(rootOf(folderPath), folderPath, action, null);
+    }
+
+    private Path rootOf(String folderPath) {
+        Path root = Paths.get(folderPath);
+        if (stateIndex != null) {
+            // The index is keyed by path, so the same folder must give the same keys whatever the working directory
+            root = root.toAbsolutePath().normalize();
+        }
+        return root;
+    }
+
+    /**
+     * Scans the tree, passing the matches either to the action or, when it is {@code null}, to the table.
+     */
+    private void scan(Path root, String folderPath, Consumer<File> action, PathTable table) {
+        BasicFileAttributes rootAttrs;
+        try {
+            // The root given by the user is always resolved, as File#isDirectory does; the link policy is for entries
+            rootAttrs = Files.readAttributes(root, BasicFileAttributes.class);
+        } catch (IOException e) {
+            rootAttrs = null;
+        }
+        if (rootAttrs == null || !rootAttrs.isDirectory()) {
+            throw new IllegalArgumentException("Path is not a valid directory: " + folderPath);
+        }
+
+        Scan scan = new Scan(action, table, deduplicate ? new FileKeySet(maxTrackedKeys) : null);
+        if (scan.keys != null) {
+            scan.keys.add(rootAttrs.fileKey());
+        }
+        pool.invoke(new ScanTask(scan, null, root, rootAttrs, 0, PathTable.ROOT));
+        scan.report();
+    }
+
+    /**
+     * Shuts the pool down; a search already running completes, new searches are rejected.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private LinkOption[] linkOptions() {
+        return followLinks ? FOLLOW_LINKS : NO_FOLLOW_LINKS;
+    }
+
+    /**
+     * What the tasks of one scan share: where the matches go and the keys of the entries found so far.
+     */
+    private static final class Scan {
+
+        private final Consumer<File> action;
+        private final PathTable table;
+        private final FileKeySet keys;
+        private final LongAdder duplicateDirectories = new LongAdder();
+
+        private Scan(Consumer<File> action, PathTable table, FileKeySet keys) {
+            this.action = action;
+            this.table = table;
+            this.keys = keys;
+        }
+
+        private void report() {
+            long directories = duplicateDirectories.sum();
+            if (directories > 0) {
+                log.info("Skipped {} folders already found under another path.", directories);
+            }
+            if (keys != null && keys.getUntrackedCount() > 0) {
+                log.warn("{} file keys were not tracked because the set of {} keys was full, "
+                        + "some duplicates may have been renamed twice.", keys.getUntrackedCount(), keys.size());
+            }
+        }
+    }
+
+    /**
+     * Scans a single directory, passes its matches to the action or adds them to the table, and forks a task for
+     * every subdirectory. In a table, the matches of a directory are added at once, as one run.
+     * With a state index, a directory that has not changed since the previous run is not listed; only its known
+     * subdirectories are visited.
+     */
+    private final class ScanTask extends RecursiveAction {
+
+        private final Scan scan;
+        private final ScanTask parent;
+        private final Path directory;
+        private final FileTime lastModified;
+        private final Object directoryKey;
+        private final int depth;
+        private final boolean root;
+        private final int tableDirectory;
+        private final List<ScanTask> subtasks = new ArrayList<>();
+
+        private ScanTask(Scan scan, ScanTask parent, Path directory, BasicFileAttributes attrs, int depth,
+                         int tableDirectory) {
+            this.scan = scan;
+            this.parent = parent;
+            this.directory = directory;
+            this.lastModified = attrs.lastModifiedTime();
+            this.directoryKey = attrs.fileKey();
+            this.depth = depth;
+            this.root = parent == null;
+            this.tableDirectory = tableDirectory;
+        }
+
+        @Override
+        protected void compute() {
+            if (stateIndex != null && stateIndex.isUnchanged(directory, lastModified)) {
+                for (Path child : stateIndex.carryOver(directory)) {
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(child, BasicFileAttributes.class, linkOptions());
+                        if (attrs.isDirectory()) {
+                            forkSubtask(child, attrs);
+                        }
+                    } catch (IOException e) {
+                        log.debug("Known subfolder '{}' is gone, skipping.", child);
+                    }
+                }
+            } else {
+                listDirectory();
+            }
+
+            for (ScanTask subtask : subtasks) {
+                subtask.join();
+            }
+        }
+
+        private void listDirectory() {
+            RenamerEvents.DirectoryScan event = new RenamerEvents.DirectoryScan();
+            event.begin();
+            long listStart = metrics.start();
+            long nameChars = 0;
+            int names = 0;
+            int matchCount = 0;
+            int entryCount = 0;
+            boolean dirty = false;
+            List<String> matchedNames = null;
+
+            try (DirectoryStream<Path> entries = openDirectory()) {
+                for (Path entry : entries) {
+                    entryCount++;
+                    boolean matches;
+                    String name;
+                    try {
+                        BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, linkOptions());
+                        if (attrs.isDirectory()) {
+                            if (!forkSubtask(entry, attrs)) {
+                                // Skipped as found under another path, which may be gone next time: scan again
+                                dirty = true;
+                            }
+                            continue;
+                        }
+                        if (!attrs.isRegularFile()) {
+                            continue;
+                        }
+                        name = entry.getFileName().toString();
+                        matches = detector.containsCyrillic(name);
+                        nameChars += name.length();
+                        names++;
+                        if (matches && !filter.accept(name, attrs)) {
+                            // Filtered out for now, like a file younger than --older-than: scan again next time
+                            matches = false;
+                            dirty = true;
+                        }
+                    } catch (Exception e) {
+                        log.error("Error processing file entry '{}', skipping.", entry, e);
+                        dirty = true;
+                        continue;
+                    }
+                    if (matches) {
+                        dirty = true;
+                        matchCount++;
+                        if (scan.table == null) {
+                            scan.action.accept(entry.toFile());
+                        } else {
+                            if (matchedNames == null) {
+                                matchedNames = new ArrayList<>();
+                            }
+                            matchedNames.add(name);
+                        }
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                metrics.recordError(RunMetrics.Phase.LIST, listStart);
+                if (stateIndex != null) {
+                    stateIndex.recordFailure(directory);
+                }
+                if (root) {
+                    throw new IllegalStateException("Unable to list files in folder: " + directory, e);
+                }
+                log.error("Unable to list files in folder '{}', skipping.", directory, e);
+                return;
+            }
+            if (matchedNames != null) {
+                scan.table.addFiles(tableDirectory, matchedNames);
+            }
+
+            // The time of the name checks is reported separately, not as a part of the listing
+            metrics.recordBatch(RunMetrics.Phase.LIST, metrics.elapsedSince(listStart), 1);
+            metrics.recordCount(RunMetrics.Phase.DETECT, names);
+            metrics.addNameChars(nameChars);
+            event.end();
+            if (event.shouldCommit()) {
+                event.directory = directory.toString();
+                event.entries = entryCount;
+                event.matches = matchCount;
+                event.nameChars = nameChars;
+                event.commit();
+            }
+            if (stateIndex != null) {
+                stateIndex.record(directory, lastModified, entryCount, dirty);
+            }
+        }
+
+        /**
+         * With a governor the opening of the folder is paced, as one operation; reading its entries is not.
+         */
+        private DirectoryStream<Path> openDirectory() throws IOException {
+            return governor == null
+                    ? Files.newDirectoryStream(directory)
+                    : governor.call(() -> Files.newDirectoryStream(directory));
+        }
+
+        /**
+         * @return {@code false} if the subdirectory was skipped as a folder already found
+         */
+        private boolean forkSubtask(Path subdirectory, BasicFileAttributes attrs) {
+            if (depth >= maxDepth) {
+                return true;
+            }
+            if (isFirstVisit(subdirectory, attrs)) {
+                int subdirectoryId = scan.table == null
+                        ? PathTable.ROOT
+                        : scan.table.addDirectory(tableDirectory, subdirectory.getFileName().toString());
+                ScanTask subtask = new ScanTask(scan, this, subdirectory, attrs, depth + 1, subdirectoryId);
+                subtask.fork();
+                subtasks.add(subtask);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Checks that a folder is not one of the folders being scanned, reached again through a symbolic link, and
+         * with deduplication that it has not been found under another path. The loop check walks up the ancestors,
+         * so it holds even when the set of keys is full or not used.
+         */
+        private boolean isFirstVisit(Path directory, BasicFileAttributes attrs) {
+            Object key = attrs.fileKey();
+            if (key == null) {
+                return true;
+            }
+            if (followLinks) {
+                for (ScanTask ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                    if (key.equals(ancestor.directoryKey)) {
+                        log.debug("Folder '{}' links back to '{}', skipping.", directory, ancestor.directory);
+                        recordDuplicate();
+                        return false;
+                    }
+                }
+            }
+            if (scan.keys == null || scan.keys.add(key)) {
+                return true;
+            }
+            log.debug("Folder '{}' has already been found under another path, skipping.", directory);
+            recordDuplicate();
+            return false;
+        }
+
+        private void recordDuplicate() {
+            scan.duplicateDirectories.increment();
+            metrics.addDuplicateDirectory();
+        }
+    }
+
+    /**
+     * Builder for {@link RecursiveCyrillicFileFinder}.
+     */
+    public static final class Builder {
+
+        private int maxDepth = Integer.MAX_VALUE;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private boolean followLinks;
+        private CyrillicDetector detector = CyrillicDetector.BASIC;
+        private DirectoryStateIndex stateIndex;
+        private RunMetrics metrics = RunMetrics.disabled();
+        private EntryFilter filter = EntryFilter.ALL;
+        private IoGovernor governor;
+        private boolean deduplicate;
+        private int maxTrackedKeys = FileKeySet.DEFAULT_MAX_KEYS;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets how many directory levels below the root are scanned.
+         * {@code 0} scans only the root directory itself.
+         *
+         * @param maxDepth maximum depth, not negative
+         * @return this builder
+         */
+        public Builder maxDepth(int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("Max depth must not be negative: " + maxDepth);
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * Sets the number of worker threads used for the scan.
+         *
+         * @param parallelism number of worker threads, at least 1
+         * @return this builder
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets whether symbolic links to files and directories are followed.
+         *
+         * @param followLinks {@code true} to follow symbolic links
+         * @return this builder
+         */
+        public Builder followLinks(boolean followLinks) {
+            this.followLinks = followLinks;
+            return this;
+        }
+
+        /**
+         * Sets the detector used to check file names.
+         *
+         * @param detector detector of cyrillic characters
+         * @return this builder
+         */
+        public Builder detector(CyrillicDetector detector) {
+            this.detector = Objects.requireNonNull(detector, "detector");
+            return this;
+        }
+
+        /**
+         * Enables incremental scanning: directories unchanged according to the index are not listed,
+         * and the state of every visited directory is recorded in it. The caller saves the index after the run.
+         *
+         * @param stateIndex directory state index, {@code null} to scan everything
+         * @return this builder
+         */
+        public Builder stateIndex(DirectoryStateIndex stateIndex) {
+            this.stateIndex = stateIndex;
+            return this;
+        }
+
+        /**
+         * Sets the metrics the listing of directories and the checks of names are recorded in.
+         *
+         * @param metrics run metrics
+         * @return this builder
+         */
+        public Builder metrics(RunMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Sets the filter checked with the attributes of every file with a cyrillic name.
+         *
+         * @param filter filter of the files
+         * @return this builder
+         */
+        public Builder filter(EntryFilter filter) {
+            this.filter = Objects.requireNonNull(filter, "filter");
+            return this;
+        }
+
+        /**
+         * Sets the governor the listings of the folders are paced by.
+         *
+         * @param governor I/O governor, {@code null} to list at full speed
+         * @return this builder
+         */
+        public Builder governor(IoGovernor governor) {
+            this.governor = governor;
+            return this;
+        }
+
+        /**
+         * Sets whether folders found under several paths, through symbolic links or bind mounts, are scanned only
+         * once. Files are always reported under every path.
+         *
+         * @param deduplicate {@code true} to track the file keys of folders
+         * @return this builder
+         */
+        public Builder deduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of file keys tracked by deduplication; beyond it, new entries are not checked.
+         *
+         * @param maxTrackedKeys maximum number of keys, at least 1
+         * @return this builder
+         */
+        public Builder maxTrackedKeys(int maxTrackedKeys) {
+            if (maxTrackedKeys < 1) {
+                throw new IllegalArgumentException("Maximum number of tracked keys must be positive: " + maxTrackedKeys);
+            }
+            this.maxTrackedKeys = maxTrackedKeys;
+            return this;
+        }
+
+        public RecursiveCyrillicFileFinder build() {
+            return new RecursiveCyrillicFileFinder(this);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit trail of renames written off the hot path.
+ * <p>
+ * The renamer hands over the outcomes of a whole batch with one {@link #record(List)} call; a single writer
+ * thread takes the batches from a bounded queue, drains everything that has accumulated, and writes it with
+ * one flush. When the writer falls behind, the queue fills up and {@link #record(List)} blocks, so no record
+ * is ever dropped and the memory held by the sink stays bounded.
+ * </p>
+ * <p>
+ * The file is appended to, in one of two formats:
+ * </p>
+ * <ul>
+ *     <li>{@link Format#CSV}: {@code time,status,source,target,message}, one line per file, quoted
+ *     as in RFC 4180; the time is the epoch millis at which the record was written;</li>
+ *     <li>{@link Format#BINARY}: per file a {@code long} epoch millis, a {@code byte} status ordinal and
+ *     three {@link DataOutputStream#writeUTF(String) modified UTF-8} strings, an empty string for no value.</li>
+ * </ul>
+ */
+public final class RenameAuditSink implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RenameAuditSink.class);
+
+    /**
+     * Default number of batches that may wait for the writer.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final List<RenameOutcome> END_OF_AUDIT = new ArrayList<>(0);
+
+    /**
+     * Format of the audit file.
+     */
+    public enum Format {
+        /** Comma-separated values with a header line. */
+        CSV,
+        /** Compact binary records. */
+        BINARY
+    }
+
+    private final Path file;
+    private final Format format;
+    private final BlockingQueue<List<RenameOutcome>> queue;
+    private final Thread writerThread;
+    private volatile boolean closed;
+    private volatile boolean failed;
+    private long written;
+
+    private RenameAuditSink(Path file, Format format, int queueCapacity) {
+        this.file = file;
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::writeLoop, "translit-audit");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Opens an audit file for appending and starts the writer thread.
+     *
+     * @param file          audit file, created if it does not exist
+     * @param format        format of the records
+     * @param queueCapacity number of batches that may wait for the writer, at least 1
+     * @return started sink
+     */
+    public static RenameAuditSink open(Path file, Format format, int queueCapacity) {
+        Objects.requireNonNull(file, "file");
+        Objects.requireNonNull(format, "format");
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        RenameAuditSink sink = new RenameAuditSink(file, format, queueCapacity);
+        sink.writerThread.start();
+        return sink;
+    }
+
+    /**
+     * Queues the outcomes of a batch for writing. Blocks while the queue is full; does nothing after
+     * {@link #close()} or after the writer has failed.
+     *
+     * @param outcomes outcomes to write
+     */
+    public void record(List<RenameOutcome> outcomes) {
+        if (outcomes.isEmpty() || closed || failed) {
+            return;
+        }
+        try {
+            while (!queue.offer(outcomes, 100, TimeUnit.MILLISECONDS)) {
+                if (failed) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while writing the audit, {} records are lost.", outcomes.size());
+        }
+    }
+
+    /**
+     * Writes all queued records and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!failed) {
+                queue.put(END_OF_AUDIT);
+            }
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Wrote {} audit records to '{}'.", written, file);
+    }
+
+    private void writeLoop() {
+        try (OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            boolean empty = Files.size(file) == 0;
+            RecordWriter writer = format == Format.CSV ? new CsvWriter(stream, empty) : new BinaryWriter(stream);
+            List<List<RenameOutcome>> batches = new ArrayList<>();
+            while (true) {
+                batches.add(queue.take());
+                queue.drainTo(batches);
+                boolean end = false;
+                long time = System.currentTimeMillis();
+                for (List<RenameOutcome> batch : batches) {
+                    if (batch == END_OF_AUDIT) {
+                        end = true;
+                        continue;
+                    }
+                    for (RenameOutcome outcome : batch) {
+                        writer.write(time, outcome);
+                    }
+                    written += batch.size();
+                }
+                batches.clear();
+                writer.flush();
+                if (end) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failed = true;
+            queue.clear();
+            log.error("Failed to write the audit file '{}', further records are dropped.", file, e);
+        } catch (InterruptedException e) {
+            failed = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface RecordWriter {
+        void write(long time, RenameOutcome outcome) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class CsvWriter implements RecordWriter {
+        private final Writer out;
+
+        private CsvWriter(OutputStream stream, boolean writeHeader) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+            if (writeHeader) {
+                out.write("time,status,source,target,message\n");
+            }
+        }
+
+        @Override
+        public void write(long time, RenameOutcome outcome) throws IOException {
+            out.write(Long.toString(time));
+            out.write(',');
+            out.write(outcome.status().name());
+            out.write(',');
+            writeField(outcome.source());
+            out.write(',');
+            writeField(outcome.target());
+            out.write(',');
+            writeField(outcome.message());
+            out.write('\n');
+        }
+
+        private void writeField(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char ch = text.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                out.write(text);
+                return;
+            }
+            out.write('"');
+            out.write(text.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static final class BinaryWriter implements RecordWriter {
+        private final DataOutputStream out;
+
+        private BinaryWriter(OutputStream stream) {
+            this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        }
+
+        @Override
+        public void write(long time, RenameOutcome outcome) throws IOException {
+            out.writeLong(time);
+            out.writeByte(outcome.status().ordinal());
+            out.writeUTF(outcome.source() != null ? outcome.source().toString() : "");
+            out.writeUTF(outcome.target() != null ? outcome.target().toString() : "");
+            out.writeUTF(outcome.message() != null ? outcome.message() : "");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
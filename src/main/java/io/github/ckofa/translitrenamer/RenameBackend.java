@@ -0,0 +1,21 @@
+package io.github.ckofa.translitrenamer;
+
+/**
+ * How files are moved to their new names.
+ */
+public enum RenameBackend {
+
+    /**
+     * {@link java.nio.file.Files#move} with the full paths; the file system resolves both paths from the root
+     * for every file.
+     */
+    PATH,
+
+    /**
+     * Every folder is opened once per batch as a {@link java.nio.file.SecureDirectoryStream} and its files are
+     * renamed relative to that handle, by name. The folder path is not resolved again for each file, and if the
+     * folder is moved or replaced while the batch runs, the renames still happen in the folder that was opened.
+     * Where the platform has no secure directory streams, as on Windows, files are moved as with {@link #PATH}.
+     */
+    DIRECTORY_HANDLE
+}
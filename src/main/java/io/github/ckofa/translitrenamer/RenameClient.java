@@ -0,0 +1,153 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client of {@link RenameServer}: sends a job and prints the outcomes the server reports.
+ * <p>
+ * The manifest of a {@code --manifest=-} job is copied from the standard input by a separate thread while the
+ * outcomes are read, so neither side waits for the other with a full socket buffer.
+ * </p>
+ */
+public final class RenameClient {
+
+    private RenameClient() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Turns the command line of the client into the arguments of the job: drops {@code --client} and makes the
+     * folder, manifest and scheme file paths absolute, since the server resolves them in its own working directory.
+     *
+     * @param args command line arguments of the client
+     * @return arguments of the job
+     */
+    public static List<String> jobArguments(String[] args) {
+        List<String> result = new ArrayList<>(args.length);
+        for (String arg : args) {
+            if (arg.startsWith("--client=")) {
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                result.add(Path.of(arg).toAbsolutePath().toString());
+            } else if (arg.startsWith("--manifest=") && !arg.equals("--manifest=-")) {
+                result.add("--manifest=" + Path.of(arg.substring("--manifest=".length())).toAbsolutePath());
+            } else if (arg.startsWith("--scheme=")
+                    && !TransliterationScheme.builtInNames().contains(arg.substring("--scheme=".length()))) {
+                result.add("--scheme=" + Path.of(arg.substring("--scheme=".length())).toAbsolutePath());
+            } else {
+                result.add(arg);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends a job to the server and prints its outcomes as they arrive.
+     *
+     * @param socketFile socket the server listens on
+     * @param arguments  arguments of the job, see {@link #jobArguments(String[])}
+     * @param manifest   manifest sent with a {@code --manifest=-} job
+     * @param out        where the outcomes are printed
+     * @return {@code true} if the job was done, {@code false} if the server rejected it
+     * @throws IOException if the server is not available or the connection failed
+     */
+    public static boolean send(Path socketFile, List<String> arguments, InputStream manifest, PrintStream out)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketFile))) {
+            OutputStream request = RenameProtocol.outputStream(channel);
+            StringBuilder header = new StringBuilder(256);
+            for (String argument : arguments) {
+                header.append(RenameProtocol.escape(argument)).append('\n');
+            }
+            IOException requestFailure = null;
+            try {
+                request.write(header.append('\n').toString().getBytes(StandardCharsets.UTF_8));
+                if (arguments.contains("--manifest=-")) {
+                    Thread upload = new Thread(() -> upload(manifest, request, channel), "translit-client-upload");
+                    upload.setDaemon(true);
+                    upload.start();
+                } else {
+                    channel.shutdownOutput();
+                }
+            } catch (IOException e) {
+                // A busy server answers and closes the connection without reading the request
+                requestFailure = e;
+            }
+            try {
+                return printResponse(RenameProtocol.inputStream(channel), out);
+            } catch (IOException e) {
+                if (requestFailure != null) {
+                    e.addSuppressed(requestFailure);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static void upload(InputStream manifest, OutputStream request, SocketChannel channel) {
+        try {
+            manifest.transferTo(request);
+            channel.shutdownOutput();
+        } catch (IOException e) {
+            // The server has answered or closed the connection, the response tells why
+        }
+    }
+
+    private static boolean printResponse(InputStream response, PrintStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split("\t", -1);
+            switch (fields[0]) {
+                case RenameProtocol.DONE -> {
+                    printTotals(fields, out);
+                    return true;
+                }
+                case RenameProtocol.ERROR, RenameProtocol.BUSY -> {
+                    out.println("Error: " + RenameProtocol.unescape(fields[1]));
+                    return false;
+                }
+                default -> printOutcome(fields, out);
+            }
+        }
+        throw new IOException("Connection closed before the job was done");
+    }
+
+    /**
+     * Prints the {@code name=count} fields of the final line as {@code Name: count, name: count}.
+     */
+    private static void printTotals(String[] fields, PrintStream out) {
+        StringBuilder totals = new StringBuilder();
+        for (int i = 1; i < fields.length; i++) {
+            String[] counter = fields[i].split("=", 2);
+            String name = i == 1
+                    ? Character.toUpperCase(counter[0].charAt(0)) + counter[0].substring(1)
+                    : ", " + counter[0];
+            totals.append(name).append(": ").append(counter.length > 1 ? counter[1] : "");
+        }
+        out.println(totals);
+    }
+
+    private static void printOutcome(String[] fields, PrintStream out) {
+        String source = RenameProtocol.unescape(fields[1]);
+        String target = RenameProtocol.unescape(fields[2]);
+        String message = RenameProtocol.unescape(fields[3]);
+        switch (fields[0]) {
+            case "RENAMED", "PLANNED" -> out.println(source + " -> " + Path.of(target).getFileName());
+            case "SKIPPED" -> out.println(source + " (skip: " + message + ")");
+            default -> out.println(source + " (failed: " + message + ")");
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of renames, used to resume an interrupted run and to undo a finished one.
+ * <p>
+ * Before a batch is moved, a {@code PLANNED} record with the source and the target of every move is appended
+ * and the journal is committed to disk. Every finished move appends a {@code COMPLETED} record, an undone move
+ * a {@code REVERTED} record. Records are buffered in memory and written with a single {@code fsync} per
+ * {@link #commit()}, so the cost of journaling does not grow with the number of files.
+ * </p>
+ * <p>
+ * Every record carries a CRC32. When the journal is opened, reading stops at the first incomplete or damaged
+ * record, which is what a crash in the middle of a write leaves behind, and the file is truncated there.
+ * A move planned but not completed may or may not have happened; {@link TransliterationFileRenamer#resume}
+ * checks the disk before moving it.
+ * </p>
+ * <p>
+ * Only the records read when the journal is opened are kept in memory, for a resume or an undo; appended records
+ * go to the file only, so the memory of a journaled run does not grow with the number of files.
+ * </p>
+ * <p>
+ * Appending is thread-safe.
+ * </p>
+ */
+public final class RenameJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RenameJournal.class);
+
+    private static final int MAGIC = 0x54524A4C; // "TRJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte PLANNED = 1;
+    private static final byte COMPLETED = 2;
+    private static final byte REVERTED = 3;
+
+    /**
+     * A move recorded in the journal.
+     *
+     * @param id     sequence number of the move in the journal
+     * @param source original path of the file
+     * @param target new path of the file
+     */
+    public record Entry(long id, Path source, Path target) {
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final Map<Long, Entry> planned = new LinkedHashMap<>();
+    private final Set<Long> completed = new HashSet<>();
+    private final Set<Long> reverted = new HashSet<>();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer record = ByteBuffer.allocate(512);
+    private long nextId = 1;
+
+    private RenameJournal(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        long validLength = read();
+        if (validLength < channel.size()) {
+            log.warn("Journal '{}' ends with an incomplete record, discarding the last {} bytes.", file,
+                    channel.size() - validLength);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        if (validLength == 0) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            commit();
+        }
+    }
+
+    /**
+     * Opens a journal for appending, creating it if it does not exist. The records of an existing journal
+     * are read into memory, for {@link #getPending()} and {@link #getCompleted()}.
+     *
+     * @param file journal file
+     * @return opened journal
+     * @throws IOException              if the file could not be opened or read
+     * @throws IllegalArgumentException if the file is not a rename journal
+     */
+    public static RenameJournal open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new RenameJournal(file, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads all valid records and returns the length of the valid part of the file.
+     */
+    private long read() throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        InputStream channelStream = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(channelStream, 1 << 16));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IllegalArgumentException("Not a rename journal: " + file);
+        }
+        long position = HEADER_SIZE;
+        try {
+            while (true) {
+                byte type = in.readByte();
+                long id = in.readLong();
+                Entry entry = null;
+                if (type == PLANNED) {
+                    byte[] source = readBytes(in);
+                    byte[] target = readBytes(in);
+                    prepareRecord(type, id, source, target);
+                    entry = new Entry(id, Path.of(new String(source, StandardCharsets.UTF_8)),
+                            Path.of(new String(target, StandardCharsets.UTF_8)));
+                } else if (type == COMPLETED || type == REVERTED) {
+                    prepareRecord(type, id, null, null);
+                } else {
+                    break;
+                }
+                record.flip();
+                crc.reset();
+                crc.update(record.array(), 0, record.limit());
+                if (in.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+                position += record.limit() + Integer.BYTES;
+                apply(type, id, entry);
+            }
+        } catch (EOFException e) {
+            // The last record was not written completely
+        }
+        return position;
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 1 << 16) {
+            throw new EOFException("Invalid path length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private void apply(byte type, long id, Entry entry) {
+        switch (type) {
+            case PLANNED -> {
+                planned.put(id, entry);
+                nextId = Math.max(nextId, id + 1);
+            }
+            case COMPLETED -> completed.add(id);
+            case REVERTED -> reverted.add(id);
+            default -> throw new IllegalStateException("Unknown record type: " + type);
+        }
+    }
+
+    /**
+     * Appends a planned move. The record is durable only after the next {@link #commit()}.
+     *
+     * @param source original path of the file
+     * @param target new path of the file
+     * @return id of the move in the journal
+     * @throws IOException if the record could not be written
+     */
+    public synchronized long appendPlanned(Path source, Path target) throws IOException {
+        long id = nextId++;
+        byte[] sourceBytes = source.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        byte[] targetBytes = target.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        prepareRecord(PLANNED, id, sourceBytes, targetBytes);
+        writeRecord();
+        return id;
+    }
+
+    /**
+     * Appends the completion of a planned move.
+     *
+     * @param id id of the move returned by {@link #appendPlanned(Path, Path)}
+     * @throws IOException if the record could not be written
+     */
+    public synchronized void appendCompleted(long id) throws IOException {
+        appendMark(COMPLETED, id);
+    }
+
+    /**
+     * Appends the undo of a completed move.
+     *
+     * @param id id of the move
+     * @throws IOException if the record could not be written
+     */
+    public synchronized void appendReverted(long id) throws IOException {
+        appendMark(REVERTED, id);
+    }
+
+    private void appendMark(byte type, long id) throws IOException {
+        prepareRecord(type, id, null, null);
+        writeRecord();
+    }
+
+    /**
+     * Puts a record without its checksum into the reusable buffer; the paths are given only for a planned move.
+     */
+    private void prepareRecord(byte type, long id, byte[] source, byte[] target) {
+        int length = 1 + Long.BYTES + (source == null ? 0 : 2 * Integer.BYTES + source.length + target.length);
+        if (record.capacity() < length) {
+            record = ByteBuffer.allocate(Math.max(length, record.capacity() * 2));
+        }
+        record.clear();
+        record.put(type).putLong(id);
+        if (source != null) {
+            record.putInt(source.length).put(source).putInt(target.length).put(target);
+        }
+    }
+
+    /**
+     * Writes the record prepared in the buffer followed by its CRC32.
+     */
+    private void writeRecord() throws IOException {
+        record.flip();
+        crc.reset();
+        crc.update(record.array(), 0, record.limit());
+        out.write(record.array(), 0, record.limit());
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes the buffered records and forces them to disk.
+     *
+     * @throws IOException if the records could not be written
+     */
+    public synchronized void commit() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    /**
+     * @return moves that were planned but not completed when the journal was opened, in the order they were
+     * planned
+     */
+    public synchronized List<Entry> getPending() {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : planned.values()) {
+            if (!completed.contains(entry.id())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return moves that were completed and not undone when the journal was opened, in the order they were
+     * planned
+     */
+    public synchronized List<Entry> getCompleted() {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : planned.values()) {
+            if (completed.contains(entry.id()) && !reverted.contains(entry.id())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return journal file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Commits the buffered records and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package io.github.ckofa.translitrenamer;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Settings of {@link TransliterationFileRenamer}.
+ * <p>
+ * Instances are immutable; use {@link #builder()} to create one or {@link #defaults()} for the default settings.
+ * </p>
+ */
+public final class RenameOptions {
+
+    private static final RenameOptions DEFAULTS = builder().build();
+
+    private final int concurrency;
+    private final CollisionStrategy collisionStrategy;
+    private final boolean dryRun;
+    private final RenameJournal journal;
+    private final RunMetrics metrics;
+    private final RenameAuditSink auditSink;
+    private final TransliterationScheme scheme;
+    private final int nameCacheSize;
+    private final RenameBackend backend;
+    private final IoGovernor governor;
+    private final Consumer<RenameResult> batchListener;
+
+    private RenameOptions(Builder builder) {
+        this.concurrency = builder.concurrency;
+        this.collisionStrategy = builder.collisionStrategy;
+        this.dryRun = builder.dryRun;
+        this.journal = builder.journal;
+        this.metrics = builder.metrics;
+        this.auditSink = builder.auditSink;
+        this.scheme = builder.scheme;
+        this.nameCacheSize = builder.nameCacheSize;
+        this.backend = builder.backend;
+        this.governor = builder.governor;
+        this.batchListener = builder.batchListener;
+    }
+
+    /**
+     * Returns the default settings: files are renamed one at a time
+     * and name collisions are resolved with a numeric suffix.
+     *
+     * @return default settings
+     */
+    public static RenameOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Creates a builder initialized with the default settings.
+     *
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return maximum number of files renamed at the same time
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return how name collisions are resolved
+     */
+    public CollisionStrategy getCollisionStrategy() {
+        return collisionStrategy;
+    }
+
+    /**
+     * @return {@code true} if the renames are only planned and nothing is moved
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return journal the renames are recorded in, {@code null} if they are not recorded
+     */
+    public RenameJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @return metrics the transliterations and moves are recorded in
+     */
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return sink the outcome of every file is written to, {@code null} if there is no audit
+     */
+    public RenameAuditSink getAuditSink() {
+        return auditSink;
+    }
+
+    /**
+     * @return scheme the new names are transliterated with
+     */
+    public TransliterationScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * @return maximum number of new names kept in the cache, {@code 0} if every name is transliterated
+     */
+    public int getNameCacheSize() {
+        return nameCacheSize;
+    }
+
+    /**
+     * @return how files are moved to their new names
+     */
+    public RenameBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return governor the moves are paced by, {@code null} if they are not paced
+     */
+    public IoGovernor getGovernor() {
+        return governor;
+    }
+
+    /**
+     * @return listener called with the result of every batch, {@code null} if there is none
+     */
+    public Consumer<RenameResult> getBatchListener() {
+        return batchListener;
+    }
+
+    /**
+     * Builder for {@link RenameOptions}.
+     */
+    public static final class Builder {
+
+        private int concurrency = 1;
+        private CollisionStrategy collisionStrategy = CollisionStrategy.SUFFIX;
+        private boolean dryRun;
+        private RenameJournal journal;
+        private RunMetrics metrics = RunMetrics.disabled();
+        private RenameAuditSink auditSink;
+        private TransliterationScheme scheme = TransliterationScheme.defaultScheme();
+        private int nameCacheSize;
+        private RenameBackend backend = RenameBackend.DIRECTORY_HANDLE;
+        private IoGovernor governor;
+        private Consumer<RenameResult> batchListener;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the maximum number of files renamed at the same time.
+         *
+         * @param concurrency maximum number of concurrent renames, at least 1
+         * @return this builder
+         */
+        public Builder concurrency(int concurrency) {
+            if (concurrency < 1) {
+                throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+            }
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Sets how name collisions are resolved.
+         *
+         * @param collisionStrategy collision strategy
+         * @return this builder
+         */
+        public Builder collisionStrategy(CollisionStrategy collisionStrategy) {
+            this.collisionStrategy = Objects.requireNonNull(collisionStrategy, "collisionStrategy");
+            return this;
+        }
+
+        /**
+         * Sets whether the renames are only planned, without moving anything.
+         *
+         * @param dryRun {@code true} for a dry run
+         * @return this builder
+         */
+        public Builder dryRun(boolean dryRun) {
+            this.dryRun = dryRun;
+            return this;
+        }
+
+        /**
+         * Sets the journal every planned and completed move is recorded in. The caller opens and closes it.
+         *
+         * @param journal rename journal, {@code null} to rename without a journal
+         * @return this builder
+         */
+        public Builder journal(RenameJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Sets the metrics the transliterations and moves are recorded in.
+         *
+         * @param metrics run metrics
+         * @return this builder
+         */
+        public Builder metrics(RunMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Sets the sink the outcome of every file is written to. The caller opens and closes it.
+         *
+         * @param auditSink audit sink, {@code null} for no audit
+         * @return this builder
+         */
+        public Builder auditSink(RenameAuditSink auditSink) {
+            this.auditSink = auditSink;
+            return this;
+        }
+
+        /**
+         * Sets the scheme the new names are transliterated with.
+         *
+         * @param scheme transliteration scheme
+         * @return this builder
+         */
+        public Builder scheme(TransliterationScheme scheme) {
+            this.scheme = Objects.requireNonNull(scheme, "scheme");
+            return this;
+        }
+
+        /**
+         * Sets how many new names are kept in a bounded LRU cache, for trees that repeat the same names.
+         *
+         * @param nameCacheSize maximum number of cached names, {@code 0} for no cache
+         * @return this builder
+         */
+        public Builder nameCacheSize(int nameCacheSize) {
+            if (nameCacheSize < 0) {
+                throw new IllegalArgumentException("Name cache size must not be negative: " + nameCacheSize);
+            }
+            this.nameCacheSize = nameCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets how files are moved to their new names.
+         *
+         * @param backend rename backend
+         * @return this builder
+         */
+        public Builder backend(RenameBackend backend) {
+            this.backend = Objects.requireNonNull(backend, "backend");
+            return this;
+        }
+
+        /**
+         * Sets the governor every move is paced by; share it with the finder to pace the listings as well.
+         *
+         * @param governor I/O governor, {@code null} to move at full speed
+         * @return this builder
+         */
+        public Builder governor(IoGovernor governor) {
+            this.governor = governor;
+            return this;
+        }
+
+        /**
+         * Sets the listener called with the result of every batch the renamer executes, resumes or undoes, in the
+         * renaming thread. Results of whole runs, such as those of {@link StreamingRenamePipeline}, keep only the
+         * counters, so this is where the outcome of every file can be seen.
+         *
+         * @param batchListener listener, {@code null} for none
+         * @return this builder
+         */
+        public Builder batchListener(Consumer<RenameResult> batchListener) {
+            this.batchListener = batchListener;
+            return this;
+        }
+
+        public RenameOptions build() {
+            return new RenameOptions(this);
+        }
+    }
+}
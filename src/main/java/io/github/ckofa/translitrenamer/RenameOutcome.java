@@ -0,0 +1,44 @@
+package io.github.ckofa.translitrenamer;
+
+import java.nio.file.Path;
+
+/**
+ * Outcome of renaming a single file.
+ *
+ * @param source  original path of the file
+ * @param target  new path of the file, {@code null} if it could not be determined
+ * @param status  what happened to the file
+ * @param message why the file was skipped or failed, {@code null} otherwise
+ */
+public record RenameOutcome(Path source, Path target, Status status, String message) {
+
+    /**
+     * Status of a single rename.
+     */
+    public enum Status {
+        /** The file was renamed. */
+        RENAMED,
+        /** The file would be renamed, nothing was moved because of a dry run. */
+        PLANNED,
+        /** The file was left as is on purpose, see {@link RenameOutcome#message()}. */
+        SKIPPED,
+        /** The file could not be renamed, see {@link RenameOutcome#message()}. */
+        FAILED
+    }
+
+    static RenameOutcome renamed(Path source, Path target) {
+        return new RenameOutcome(source, target, Status.RENAMED, null);
+    }
+
+    static RenameOutcome planned(Path source, Path target) {
+        return new RenameOutcome(source, target, Status.PLANNED, null);
+    }
+
+    static RenameOutcome skipped(Path source, Path target, String message) {
+        return new RenameOutcome(source, target, Status.SKIPPED, message);
+    }
+
+    static RenameOutcome failed(Path source, Path target, String message) {
+        return new RenameOutcome(source, target, Status.FAILED, message);
+    }
+}
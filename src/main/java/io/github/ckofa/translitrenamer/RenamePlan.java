@@ -0,0 +1,153 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Source-to-target mapping computed for a batch of files before any of them is moved.
+ * <p>
+ * For every folder of the batch the names of its current entries are read once into a hash set, and every
+ * planned target name is added to the same set. A collision with an existing file or with another planned
+ * rename is therefore found with a single lookup and resolved with the configured {@link CollisionStrategy}.
+ * The sets may come from a {@link TakenNames} cache shared by the plans of several batches, so a folder split
+ * over many batches is not listed for each of them.
+ * </p>
+ */
+public final class RenamePlan {
+
+    /**
+     * Planned action for a single file.
+     */
+    public enum Action {
+        /** The file will be moved to the target. */
+        MOVE,
+        /** The file will be left as is, see {@link Entry#reason()}. */
+        SKIP,
+        /** The target name is taken and the strategy is {@link CollisionStrategy#FAIL}. */
+        CONFLICT
+    }
+
+    /**
+     * Planned rename of a single file.
+     *
+     * @param source original path of the file
+     * @param target path the file will be moved to, or the taken path for a conflict
+     * @param action planned action
+     * @param reason why the file is skipped or in conflict, {@code null} for a move
+     */
+    public record Entry(Path source, Path target, Action action, String reason) {
+    }
+
+    private final List<Entry> entries;
+    private final boolean conflicts;
+
+    private RenamePlan(List<Entry> entries, boolean conflicts) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.conflicts = conflicts;
+    }
+
+    /**
+     * Builds a plan for the specified files.
+     *
+     * @param files      files to rename
+     * @param strategy   how to resolve name collisions
+     * @param nameMapper function that gives the new name for an original file name
+     * @return plan with one entry per file, in the order of the files
+     */
+    public static RenamePlan build(List<File> files, CollisionStrategy strategy, UnaryOperator<String> nameMapper) {
+        return build(files, strategy, nameMapper, new TakenNames(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Builds a plan for the specified files, taking the names of their folders from a cache that the targets of
+     * the plan are added to.
+     *
+     * @param files      files to rename
+     * @param strategy   how to resolve name collisions
+     * @param nameMapper function that gives the new name for an original file name
+     * @param takenNames cache of the taken names, shared with the other plans of the renamer
+     * @return plan with one entry per file, in the order of the files
+     */
+    static RenamePlan build(List<File> files, CollisionStrategy strategy, UnaryOperator<String> nameMapper,
+                            TakenNames takenNames) {
+        synchronized (takenNames) {
+            return buildLocked(files, strategy, nameMapper, takenNames);
+        }
+    }
+
+    private static RenamePlan buildLocked(List<File> files, CollisionStrategy strategy,
+                                          UnaryOperator<String> nameMapper, TakenNames cache) {
+        List<Entry> entries = new ArrayList<>(files.size());
+        // Every folder is looked up in the cache once per plan
+        Map<Path, Set<String>> takenNamesByFolder = new HashMap<>();
+        boolean conflicts = false;
+
+        for (File file : files) {
+            Path source = file.toPath();
+            String originalName = file.getName();
+            String newName = nameMapper.apply(originalName);
+            if (newName.isEmpty() || newName.equals(originalName)) {
+                entries.add(new Entry(source, source, Action.SKIP, "Name does not change"));
+                continue;
+            }
+
+            Set<String> takenNames = takenNamesByFolder.computeIfAbsent(source.getParent(), cache::get);
+            if (takenNames.add(newName)) {
+                entries.add(new Entry(source, source.resolveSibling(newName), Action.MOVE, null));
+                continue;
+            }
+
+            Path taken = source.resolveSibling(newName);
+            switch (strategy) {
+                case SUFFIX -> {
+                    String freeName = freeName(newName, takenNames);
+                    takenNames.add(freeName);
+                    entries.add(new Entry(source, source.resolveSibling(freeName), Action.MOVE, null));
+                }
+                case SKIP -> entries.add(new Entry(source, taken, Action.SKIP, "Target name is already taken"));
+                case FAIL -> {
+                    entries.add(new Entry(source, taken, Action.CONFLICT, "Target name is already taken"));
+                    conflicts = true;
+                }
+            }
+        }
+        return new RenamePlan(entries, conflicts);
+    }
+
+    /**
+     * Finds the first name of the form {@code stem_N.ext} that is not taken.
+     */
+    static String freeName(String name, Set<String> takenNames) {
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 1; ; i++) {
+            String candidate = stem + "_" + i + extension;
+            if (!takenNames.contains(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * @return entries of the plan, one per file, unmodifiable
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return {@code true} if the plan was built with {@link CollisionStrategy#FAIL} and has conflicts,
+     * in which case nothing must be moved
+     */
+    public boolean hasConflicts() {
+        return conflicts;
+    }
+}
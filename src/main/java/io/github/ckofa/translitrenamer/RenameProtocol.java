@@ -0,0 +1,132 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Line format and socket streams shared by {@link RenameServer} and {@link RenameClient}, see the description of
+ * the protocol in {@link RenameServer}.
+ * <p>
+ * Kept apart from the server, so a client does not load the server class and start the logging framework.
+ * </p>
+ */
+final class RenameProtocol {
+
+    static final String DONE = "DONE";
+    static final String ERROR = "ERROR";
+    static final String BUSY = "BUSY";
+
+    private RenameProtocol() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Reads from the channel without the lock that {@link Channels#newInputStream} holds while blocked,
+     * which would stop a concurrent write to the same channel.
+     */
+    static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                return channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Writes to the channel without the lock that {@link Channels#newOutputStream} holds,
+     * so a concurrent blocked read does not stop the write.
+     */
+    static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Escapes backslashes, tabs and newlines, so a value fits in one field of a line.
+     */
+    static String escape(String value) {
+        StringBuilder result = null;
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            String replacement = switch (ch) {
+                case '\\' -> "\\\\";
+                case '\t' -> "\\t";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null && result == null) {
+                result = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (result != null) {
+                if (replacement != null) {
+                    result.append(replacement);
+                } else {
+                    result.append(ch);
+                }
+            }
+        }
+        return result != null ? result.toString() : value;
+    }
+
+    /**
+     * Reverts {@link #escape(String)}.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch != '\\' || i + 1 == value.length()) {
+                result.append(ch);
+                continue;
+            }
+            char next = value.charAt(++i);
+            result.append(switch (next) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> next;
+            });
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.ckofa.translitrenamer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregated result of renaming a batch of files: counters per status and the outcome of every file.
+ * <p>
+ * A run over many batches adds up the results of its batches with a {@link Counter}, which keeps the counters
+ * only; the outcomes of the files are passed on batch by batch, see {@link RenameOptions.Builder#batchListener}.
+ * </p>
+ */
+public final class RenameResult {
+
+    private static final RenameResult EMPTY = new RenameResult(Collections.emptyList());
+
+    private final List<RenameOutcome> outcomes;
+    private final int renamedCount;
+    private final int plannedCount;
+    private final int skippedCount;
+    private final int failedCount;
+
+    private RenameResult(List<RenameOutcome> outcomes, int renamedCount, int plannedCount, int skippedCount,
+                         int failedCount) {
+        this.outcomes = outcomes;
+        this.renamedCount = renamedCount;
+        this.plannedCount = plannedCount;
+        this.skippedCount = skippedCount;
+        this.failedCount = failedCount;
+    }
+
+    private RenameResult(List<RenameOutcome> outcomes) {
+        this.outcomes = outcomes;
+        int renamed = 0;
+        int planned = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (RenameOutcome outcome : outcomes) {
+            switch (outcome.status()) {
+                case RENAMED -> renamed++;
+                case PLANNED -> planned++;
+                case SKIPPED -> skipped++;
+                case FAILED -> failed++;
+            }
+        }
+        this.renamedCount = renamed;
+        this.plannedCount = planned;
+        this.skippedCount = skipped;
+        this.failedCount = failed;
+    }
+
+    /**
+     * Returns a result for a batch in which nothing was done.
+     *
+     * @return empty result
+     */
+    public static RenameResult empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a result from the outcomes of single files.
+     *
+     * @param outcomes outcomes in the order of the processed files
+     * @return aggregated result
+     */
+    public static RenameResult of(List<RenameOutcome> outcomes) {
+        return outcomes.isEmpty() ? EMPTY : new RenameResult(List.copyOf(outcomes));
+    }
+
+    /**
+     * @return number of renamed files
+     */
+    public int getRenamedCount() {
+        return renamedCount;
+    }
+
+    /**
+     * @return number of files that would be renamed in a dry run
+     */
+    public int getPlannedCount() {
+        return plannedCount;
+    }
+
+    /**
+     * @return number of files left as is on purpose
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return number of files that could not be renamed
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return outcomes of all processed files, unmodifiable; empty in a result made by a {@link Counter}
+     */
+    public List<RenameOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Adds up the counters of results without keeping their outcomes, so memory does not grow with the number of
+     * files. Not thread-safe.
+     */
+    public static final class Counter {
+
+        private int renamed;
+        private int planned;
+        private int skipped;
+        private int failed;
+
+        /**
+         * Adds the counters of a result.
+         *
+         * @param result result of a batch
+         */
+        public void add(RenameResult result) {
+            renamed += result.getRenamedCount();
+            planned += result.getPlannedCount();
+            skipped += result.getSkippedCount();
+            failed += result.getFailedCount();
+        }
+
+        /**
+         * @return result with the counters added so far and no outcomes
+         */
+        public RenameResult toResult() {
+            if (renamed == 0 && planned == 0 && skipped == 0 && failed == 0) {
+                return EMPTY;
+            }
+            return new RenameResult(Collections.emptyList(), renamed, planned, skipped, failed);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RenameResult{renamed=" + renamedCount + ", planned=" + plannedCount
+                + ", skipped=" + skippedCount + ", failed=" + failedCount + '}';
+    }
+}
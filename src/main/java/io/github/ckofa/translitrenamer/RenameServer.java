@@ -0,0 +1,500 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running renamer that accepts jobs over a Unix domain socket, so a job does not pay the start of a JVM.
+ * <p>
+ * Every connection carries one job. The client sends the command line arguments of the job, one per line in
+ * UTF-8, and an empty line; for {@code --manifest=-} the manifest follows until the client shuts down its output.
+ * The server answers with one line per file, {@code STATUS<TAB>source<TAB>target<TAB>message}, and a final
+ * {@code DONE<TAB>renamed=n<TAB>planned=n<TAB>skipped=n<TAB>failed=n} line; a job that cannot run gets a single
+ * {@code ERROR<TAB>message} line. Tabs, newlines and backslashes in the values are escaped with a backslash.
+ * </p>
+ * <p>
+ * Jobs run on a fixed number of workers. Jobs that find all workers busy wait in a bounded queue; when the
+ * queue is full too, the job is answered at once with {@code BUSY<TAB>message}, so a burst of clients cannot
+ * exhaust the memory of the server. Metrics and the audit sink of the server are shared by all jobs; options
+ * that need a file per run, like {@code --journal} or {@code --incremental}, are rejected.
+ * </p>
+ * <p>
+ * A client must send its arguments within the request timeout, otherwise the connection is closed and the worker
+ * is free again. The socket is readable and writable by the owner of the server only; a missing parent folder is
+ * created accessible to the owner only.
+ * </p>
+ */
+public final class RenameServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RenameServer.class);
+
+    /**
+     * Default number of jobs that may wait for a worker.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /**
+     * Default time a client has to send the arguments of its job.
+     */
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Path socketFile;
+    private final int workers;
+    private final int queueCapacity;
+    private final Duration requestTimeout;
+    private final RunMetrics metrics;
+    private final RenameAuditSink auditSink;
+    private final AtomicLong jobIds = new AtomicLong();
+    private ServerSocketChannel serverChannel;
+    private ThreadPoolExecutor executor;
+    private ScheduledThreadPoolExecutor deadlines;
+    private Thread acceptor;
+    private volatile boolean closed;
+
+    private RenameServer(Builder builder) {
+        this.socketFile = builder.socketFile;
+        this.workers = builder.workers;
+        this.queueCapacity = builder.queueCapacity;
+        this.requestTimeout = builder.requestTimeout;
+        this.metrics = builder.metrics;
+        this.auditSink = builder.auditSink;
+    }
+
+    /**
+     * Creates a builder with default settings: one worker per available processor
+     * and {@link #DEFAULT_QUEUE_CAPACITY} waiting jobs.
+     *
+     * @param socketFile path of the socket to listen on
+     * @return new builder
+     */
+    public static Builder builder(Path socketFile) {
+        return new Builder(socketFile);
+    }
+
+    /**
+     * Binds the socket and starts accepting jobs. A socket file left by a server that is no longer running
+     * is replaced.
+     *
+     * @throws IOException if the socket could not be bound, for instance because another server is running
+     */
+    public synchronized void start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server is already started");
+        }
+        createParentFolder();
+        removeStaleSocket();
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            serverChannel.bind(UnixDomainSocketAddress.of(socketFile));
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+        try {
+            restrictToOwner(socketFile, "rw-------");
+        } catch (IOException e) {
+            serverChannel.close();
+            Files.deleteIfExists(socketFile);
+            throw e;
+        }
+        deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "translit-request-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "translit-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        acceptor = new Thread(this::acceptLoop, "translit-accept");
+        acceptor.start();
+        log.info("Accepting rename jobs on '{}' with {} workers.", socketFile, workers);
+    }
+
+    private void createParentFolder() throws IOException {
+        Path parent = socketFile.toAbsolutePath().getParent();
+        if (parent == null || Files.isDirectory(parent)) {
+            return;
+        }
+        Files.createDirectories(parent);
+        restrictToOwner(parent, "rwx------");
+    }
+
+    /**
+     * Sets the permissions of a file; a file system without POSIX permissions keeps its own.
+     */
+    private static void restrictToOwner(Path file, String permissions) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString(permissions));
+        } catch (UnsupportedOperationException e) {
+            log.debug("Permissions of '{}' are not supported by the file system.", file);
+        }
+    }
+
+    private void removeStaleSocket() throws IOException {
+        if (!Files.exists(socketFile)) {
+            return;
+        }
+        boolean listening;
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socketFile))) {
+            listening = probe.isConnected();
+        } catch (IOException e) {
+            listening = false;
+        }
+        if (listening) {
+            throw new IOException("Another server is listening on " + socketFile);
+        }
+        Files.delete(socketFile);
+    }
+
+    /**
+     * Blocks until the server is closed.
+     */
+    public void awaitTermination() {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting jobs, lets the running and queued jobs finish and removes the socket file.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed || serverChannel == null) {
+            closed = true;
+            return;
+        }
+        closed = true;
+        try {
+            serverChannel.close();
+            acceptor.join();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            deadlines.shutdownNow();
+            Files.deleteIfExists(socketFile);
+        } catch (IOException e) {
+            log.error("Failed to stop the server on '{}'.", socketFile, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Stopped accepting rename jobs on '{}'.", socketFile);
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            SocketChannel client;
+            try {
+                client = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Failed to accept a connection on '{}'.", socketFile, e);
+                continue;
+            }
+            try {
+                executor.execute(() -> serve(client));
+            } catch (RejectedExecutionException e) {
+                reject(client);
+            }
+        }
+    }
+
+    private void reject(SocketChannel client) {
+        log.warn("Rejected a job, {} jobs are already waiting.", queueCapacity);
+        try (client; Writer out = writer(client)) {
+            out.write(RenameProtocol.BUSY + '\t'
+                    + RenameProtocol.escape("Server is busy, " + queueCapacity + " jobs are already waiting") + '\n');
+        } catch (IOException e) {
+            log.debug("Failed to reject a job: {}", e.getMessage());
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        long jobId = jobIds.incrementAndGet();
+        try (client; Writer out = writer(client)) {
+            InputStream in = new BufferedInputStream(RenameProtocol.inputStream(client));
+            List<String> arguments = readArguments(in, client);
+            AppOptions options;
+            try {
+                options = AppOptions.parse(arguments.toArray(new String[0]));
+                checkSupported(options);
+            } catch (IllegalArgumentException e) {
+                out.write(RenameProtocol.ERROR + '\t' + RenameProtocol.escape(e.getMessage()) + '\n');
+                return;
+            }
+            log.info("Job {} started: {}", jobId, arguments);
+            long start = System.nanoTime();
+            Counter totals = runJob(options, in, out);
+            log.info("Job {} finished in {} ms, renamed: {}, planned: {}, skipped: {}, failed: {}", jobId,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), totals.renamed, totals.planned,
+                    totals.skipped, totals.failed);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Job {} failed: {}", jobId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Job {} failed.", jobId, e);
+        }
+    }
+
+    /**
+     * Runs a job and writes its outcomes; returns only the counters, the outcomes are not kept.
+     */
+    private Counter runJob(AppOptions options, InputStream in, Writer out) throws IOException {
+        Counter counter = new Counter();
+        RenameOptions renameOptions = App.renameOptions(options)
+                .metrics(metrics)
+                .auditSink(options.isDryRun() ? null : auditSink)
+                .batchListener(result -> {
+                    try {
+                        writeOutcomes(result, out, counter);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .build();
+
+        if (options.getManifest() != null) {
+            InputStream manifest;
+            try {
+                manifest = "-".equals(options.getManifest()) ? in : Files.newInputStream(Path.of(options.getManifest()));
+            } catch (IOException | InvalidPathException e) {
+                out.write(RenameProtocol.ERROR + '\t'
+                        + RenameProtocol.escape("Manifest could not be read: " + e.getMessage()) + '\n');
+                return counter;
+            }
+            try (TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null, renameOptions)) {
+                App.manifestRenamer(options, fileRenamer).run(manifest);
+            } finally {
+                // The manifest sent with the request is a part of the connection, closed with it
+                if (manifest != in) {
+                    manifest.close();
+                }
+            }
+        } else {
+            try (FileFinder fileFinder = App.createFileFinder(options, null, metrics);
+                 TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(fileFinder, renameOptions)) {
+                App.renameFolder(options, metrics, fileFinder, fileRenamer);
+            }
+        }
+
+        out.write(RenameProtocol.DONE + "\trenamed=" + counter.renamed + "\tplanned=" + counter.planned
+                + "\tskipped=" + counter.skipped + "\tfailed=" + counter.failed + '\n');
+        return counter;
+    }
+
+    private static void writeOutcomes(RenameResult result, Writer out, Counter counter) throws IOException {
+        for (RenameOutcome outcome : result.getOutcomes()) {
+            out.write(outcome.status().name());
+            out.write('\t');
+            out.write(outcome.source() != null ? RenameProtocol.escape(outcome.source().toString()) : "");
+            out.write('\t');
+            out.write(outcome.target() != null ? RenameProtocol.escape(outcome.target().toString()) : "");
+            out.write('\t');
+            out.write(outcome.message() != null ? RenameProtocol.escape(outcome.message()) : "");
+            out.write('\n');
+        }
+        out.flush();
+        counter.add(result);
+    }
+
+    private static void checkSupported(AppOptions options) {
+        if (options.getJournalFile() != null || options.getResumeJournal() != null || options.getUndoJournal() != null
+                || options.isWatch() || options.getIndexFile() != null || options.getMetricsFile() != null
+                || options.getAuditFile() != null || options.getShardDirectory() != null
+                || options.getServerSocket() != null || options.getClientSocket() != null) {
+            // A job renames its folder in one pass, without the leases other workers of a shard folder rely on
+            throw new IllegalArgumentException("Options --journal, --resume, --undo, --watch, --incremental, "
+                    + "--metrics, --audit, --shard-dir, --serve and --client are not supported in a job");
+        }
+    }
+
+    /**
+     * Reads the lines of the request up to the empty line that ends it; the channel is closed if they do not
+     * arrive within the request timeout.
+     */
+    private List<String> readArguments(InputStream in, SocketChannel client) throws IOException {
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.debug("Failed to close a timed out connection: {}", e.getMessage());
+            }
+        }, requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            return readArguments(in);
+        } catch (IOException e) {
+            if (deadline.isDone()) {
+                throw new IOException("Request not received within " + requestTimeout.toMillis() + " ms", e);
+            }
+            throw e;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    private static List<String> readArguments(InputStream in) throws IOException {
+        List<String> arguments = new ArrayList<>();
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            if (line.size() == 0) {
+                return arguments;
+            }
+            arguments.add(RenameProtocol.unescape(line.toString(StandardCharsets.UTF_8)));
+            line.reset();
+        }
+        throw new IOException("Request ended before the empty line");
+    }
+
+    private static Writer writer(SocketChannel client) {
+        return new BufferedWriter(new OutputStreamWriter(RenameProtocol.outputStream(client),
+                StandardCharsets.UTF_8));
+    }
+
+    private static final class Counter {
+        private long renamed;
+        private long planned;
+        private long skipped;
+        private long failed;
+
+        private void add(RenameResult batch) {
+            renamed += batch.getRenamedCount();
+            planned += batch.getPlannedCount();
+            skipped += batch.getSkippedCount();
+            failed += batch.getFailedCount();
+        }
+    }
+
+    /**
+     * Builder for {@link RenameServer}.
+     */
+    public static final class Builder {
+
+        private final Path socketFile;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+        private RunMetrics metrics = RunMetrics.disabled();
+        private RenameAuditSink auditSink;
+
+        private Builder(Path socketFile) {
+            this.socketFile = Objects.requireNonNull(socketFile, "socketFile");
+        }
+
+        /**
+         * Sets the number of jobs run at the same time.
+         *
+         * @param workers number of workers, at least 1
+         * @return this builder
+         */
+        public Builder workers(int workers) {
+            if (workers < 1) {
+                throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Sets the number of jobs that may wait for a worker before new jobs are rejected.
+         *
+         * @param queueCapacity number of waiting jobs, at least 1
+         * @return this builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the time a client has to send the arguments of its job before the connection is closed.
+         *
+         * @param requestTimeout request timeout, positive
+         * @return this builder
+         */
+        public Builder requestTimeout(Duration requestTimeout) {
+            if (requestTimeout == null || requestTimeout.isNegative() || requestTimeout.isZero()) {
+                throw new IllegalArgumentException("Request timeout must be positive: " + requestTimeout);
+            }
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the metrics all jobs are recorded in.
+         *
+         * @param metrics run metrics
+         * @return this builder
+         */
+        public Builder metrics(RunMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * Sets the sink the outcome of every file of every job is written to. The caller opens and closes it.
+         *
+         * @param auditSink audit sink, {@code null} for no audit
+         * @return this builder
+         */
+        public Builder auditSink(RenameAuditSink auditSink) {
+            this.auditSink = auditSink;
+            return this;
+        }
+
+        public RenameServer build() {
+            return new RenameServer(this);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.ckofa.translitrenamer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JDK Flight Recorder events of the renamer.
+ * <p>
+ * The events are disabled unless a recording enables them, e.g.
+ * {@code -XX:StartFlightRecording:settings=profile,filename=run.jfr}; a disabled event is not committed
+ * and its fields are not filled.
+ * </p>
+ */
+final class RenamerEvents {
+
+    private static final String CATEGORY = "Translit Renamer";
+
+    private RenamerEvents() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Listing of a single directory, including the check of the names of its entries.
+     */
+    @Name("io.github.ckofa.translitrenamer.DirectoryScan")
+    @Label("Directory Scan")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class DirectoryScan extends Event {
+
+        @Label("Directory")
+        String directory;
+
+        @Label("Entries")
+        int entries;
+
+        @Label("Matches")
+        @Description("Files with cyrillic characters in the name")
+        int matches;
+
+        @Label("Name Chars")
+        long nameChars;
+    }
+
+    /**
+     * Move of a single file to its new name.
+     */
+    @Name("io.github.ckofa.translitrenamer.FileMove")
+    @Label("File Move")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class FileMove extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Target")
+        String target;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
@@ -0,0 +1,398 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters and latency histograms of a run, per phase of the work.
+ * <p>
+ * Every {@link Phase} keeps the number of operations, the number of failed ones, the total time and a histogram
+ * of the latency of a single operation. Counters are {@link LongAdder}s and the histogram is a fixed array of
+ * power-of-two buckets, so recording from many threads costs a few uncontended atomic adds and no allocation.
+ * Operations that are too short to time, like the check of a name, are only counted, a batch per directory;
+ * their time is part of the listing of the directory.
+ * </p>
+ * <p>
+ * The instance returned by {@link #disabled()} records nothing and {@link #start()} does not even read the clock,
+ * so components can be instrumented unconditionally.
+ * </p>
+ */
+public final class RunMetrics implements RunMetricsMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RunMetrics.class);
+
+    private static final String OBJECT_NAME = "io.github.ckofa.translitrenamer:type=RunMetrics";
+    private static final RunMetrics DISABLED = new RunMetrics(false);
+
+    /**
+     * Phase of the work a measurement belongs to.
+     */
+    public enum Phase {
+        /** Listing of a directory and reading the attributes of its entries, one operation per directory. */
+        LIST,
+        /** Check of a file name for cyrillic characters, one operation per name; counted only, not timed. */
+        DETECT,
+        /** Transliteration of a file name, one operation per name. */
+        TRANSLITERATE,
+        /** Move of a file to its new name, one operation per file. */
+        MOVE;
+
+        private final String key = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final boolean enabled;
+    private final long startNanos = System.nanoTime();
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+    private final LongAdder nameChars = new LongAdder();
+    private final LongAdder duplicateDirectories = new LongAdder();
+    private ObjectName registeredName;
+    private Thread pendingRegistration;
+
+    private RunMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new PhaseStats());
+        }
+    }
+
+    /**
+     * Creates metrics for a new run; the elapsed time is counted from this call.
+     *
+     * @return new metrics
+     */
+    public static RunMetrics create() {
+        return new RunMetrics(true);
+    }
+
+    /**
+     * Returns metrics that record nothing.
+     *
+     * @return shared disabled metrics
+     */
+    public static RunMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return {@code true} if measurements are recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return current {@link System#nanoTime()}, or {@code 0} if the metrics are disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param startNanos value returned by {@link #start()}
+     * @return nanoseconds since the start, or {@code 0} if the metrics are disabled
+     */
+    long elapsedSince(long startNanos) {
+        return enabled ? System.nanoTime() - startNanos : 0;
+    }
+
+    /**
+     * Records a single successful operation started at {@code startNanos}.
+     */
+    void record(Phase phase, long startNanos) {
+        if (enabled) {
+            phases.get(phase).record(System.nanoTime() - startNanos, 1);
+        }
+    }
+
+    /**
+     * Records a batch of operations that took {@code totalNanos} together.
+     */
+    void recordBatch(Phase phase, long totalNanos, long operations) {
+        if (enabled && operations > 0) {
+            phases.get(phase).record(totalNanos, operations);
+        }
+    }
+
+    /**
+     * Counts operations that are not timed.
+     */
+    void recordCount(Phase phase, long operations) {
+        if (enabled) {
+            phases.get(phase).count.add(operations);
+        }
+    }
+
+    /**
+     * Records a failed operation started at {@code startNanos}.
+     */
+    void recordError(Phase phase, long startNanos) {
+        if (enabled) {
+            PhaseStats stats = phases.get(phase);
+            stats.record(System.nanoTime() - startNanos, 1);
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * Adds the length of checked file names.
+     */
+    void addNameChars(long chars) {
+        if (enabled) {
+            nameChars.add(chars);
+        }
+    }
+
+    /**
+     * Counts a folder skipped because it had been found under another path.
+     */
+    void addDuplicateDirectory() {
+        if (enabled) {
+            duplicateDirectories.increment();
+        }
+    }
+
+    /**
+     * @param phase phase of the work
+     * @return number of operations of the phase
+     */
+    public long getCount(Phase phase) {
+        return phases.get(phase).count.sum();
+    }
+
+    /**
+     * @param phase phase of the work
+     * @return number of failed operations of the phase
+     */
+    public long getErrors(Phase phase) {
+        return phases.get(phase).errors.sum();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public double getRenamedPerSecond() {
+        long renamed = getCount(Phase.MOVE) - getErrors(Phase.MOVE);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? renamed / seconds : 0;
+    }
+
+    @Override
+    public long getNameChars() {
+        return nameChars.sum();
+    }
+
+    @Override
+    public long getDuplicateDirectories() {
+        return duplicateDirectories.sum();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        return perPhase(stats -> stats.count.sum());
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return perPhase(stats -> stats.errors.sum());
+    }
+
+    @Override
+    public Map<String, Long> getTotalMillis() {
+        return perPhase(stats -> TimeUnit.NANOSECONDS.toMillis(stats.totalNanos.sum()));
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        phases.forEach((phase, stats) -> result.put(phase.key, stats.percentileMicros(0.99)));
+        return result;
+    }
+
+    private Map<String, Long> perPhase(ToLongFunction<PhaseStats> value) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        phases.forEach((phase, stats) -> result.put(phase.key, value.applyAsLong(stats)));
+        return result;
+    }
+
+    @Override
+    public String getSummaryJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"elapsedMillis\":").append(getElapsedMillis())
+                .append(",\"renamedPerSecond\":").append(format(getRenamedPerSecond()))
+                .append(",\"nameChars\":").append(getNameChars())
+                .append(",\"duplicateDirectories\":").append(getDuplicateDirectories())
+                .append(",\"phases\":{");
+        boolean first = true;
+        for (Map.Entry<Phase, PhaseStats> entry : phases.entrySet()) {
+            PhaseStats stats = entry.getValue();
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(entry.getKey().key).append("\":{")
+                    .append("\"count\":").append(stats.count.sum())
+                    .append(",\"errors\":").append(stats.errors.sum())
+                    .append(",\"totalMillis\":").append(format(stats.totalNanos.sum() / 1e6))
+                    .append(",\"p50Micros\":").append(format(stats.percentileMicros(0.50)))
+                    .append(",\"p99Micros\":").append(format(stats.percentileMicros(0.99)))
+                    .append(",\"maxMicros\":").append(format(stats.maxNanos.get() / 1e3))
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server; a failure is only logged.
+     */
+    public synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e) {
+            log.warn("Failed to register run metrics MBean: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Registers the metrics on the platform MBean server after the delay, from a daemon thread.
+     * <p>
+     * Starting the platform MBean server takes a noticeable part of a short run, while the metrics are only worth
+     * watching in a long one; a run that ends within the delay never starts it.
+     * </p>
+     *
+     * @param delay time after which the metrics are registered
+     */
+    public synchronized void registerMBeanAfter(Duration delay) {
+        Thread registration = new Thread(() -> {
+            try {
+                Thread.sleep(delay.toMillis());
+            } catch (InterruptedException e) {
+                return; // unregistered before the delay
+            }
+            synchronized (this) {
+                if (pendingRegistration == Thread.currentThread()) {
+                    pendingRegistration = null;
+                    registerMBean();
+                }
+            }
+        }, "translit-metrics-mbean");
+        registration.setDaemon(true);
+        pendingRegistration = registration;
+        registration.start();
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server if they were registered, or cancels a pending registration.
+     */
+    public synchronized void unregisterMBean() {
+        if (pendingRegistration != null) {
+            pendingRegistration.interrupt();
+            pendingRegistration = null;
+        }
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (JMException e) {
+            log.warn("Failed to unregister run metrics MBean: {}", e.getMessage());
+        }
+        registeredName = null;
+    }
+
+    @Override
+    public String toString() {
+        return getSummaryJson();
+    }
+
+    private static final class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private void record(long nanos, long operations) {
+            count.add(operations);
+            totalNanos.add(nanos);
+            long perOperation = nanos / operations;
+            maxNanos.accumulate(perOperation);
+            histogram.record(perOperation, operations);
+        }
+
+        /**
+         * The bucket bound can exceed the slowest operation, so the maximum caps it.
+         */
+        private double percentileMicros(double quantile) {
+            return Math.min(histogram.percentile(quantile), maxNanos.get()) / 1e3;
+        }
+    }
+
+    /**
+     * Histogram with one bucket per power of two nanoseconds; a percentile is reported as the upper bound
+     * of its bucket, which is precise to a factor of two and enough to see which phase dominates.
+     */
+    static final class LatencyHistogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        void record(long nanos, long count) {
+            buckets.addAndGet(bucketOf(nanos), count);
+        }
+
+        private static int bucketOf(long nanos) {
+            return nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos) - 1;
+        }
+
+        /**
+         * @param quantile quantile between 0 and 1
+         * @return upper bound in nanoseconds of the bucket the quantile falls into, {@code 0} if nothing was recorded
+         */
+        long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                total += buckets.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return i >= Long.SIZE - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
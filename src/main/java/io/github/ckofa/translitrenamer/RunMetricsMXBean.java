@@ -0,0 +1,57 @@
+package io.github.ckofa.translitrenamer;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link RunMetrics}, registered on the platform MBean server while the application runs.
+ * <p>
+ * Maps are keyed by the lower-case name of a {@link RunMetrics.Phase}.
+ * </p>
+ */
+public interface RunMetricsMXBean {
+
+    /**
+     * @return milliseconds since the run started
+     */
+    long getElapsedMillis();
+
+    /**
+     * @return files renamed per second since the run started
+     */
+    double getRenamedPerSecond();
+
+    /**
+     * @return total length in chars of all file names checked for cyrillic characters
+     */
+    long getNameChars();
+
+    /**
+     * @return number of folders skipped because they had been found under another path
+     */
+    long getDuplicateDirectories();
+
+    /**
+     * @return number of operations per phase
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * @return number of failed operations per phase
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return total time per phase in milliseconds
+     */
+    Map<String, Long> getTotalMillis();
+
+    /**
+     * @return 99th percentile of the latency of a single operation per phase in microseconds
+     */
+    Map<String, Double> getP99Micros();
+
+    /**
+     * @return all metrics as a JSON object
+     */
+    String getSummaryJson();
+}
@@ -0,0 +1,587 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renames one tree together with other processes, on the same host or on several hosts sharing the storage.
+ * <p>
+ * The tree is split into units: the files directly in the root, and every top-level subfolder with everything
+ * below it. The workers coordinate through files in a shared shard folder, and nothing else: a worker claims a
+ * unit by creating its lease file, which fails if the file exists, renames the unit, writes its done marker and
+ * deletes the leases of the unit. Every worker starts at a different unit and goes round all of them until every
+ * unit is done, waiting for the units leased by others.
+ * </p>
+ * <p>
+ * The leases of a unit are numbered generations. A worker renews its lease in the background; a lease not renewed
+ * for the lease duration is expired, and the first worker to create the next generation takes the unit over. The
+ * creation fails if the file exists, so only one worker wins the handoff, and no lease is ever moved or deleted by
+ * a worker that does not own it. A worker whose lease has a next generation has lost it. So the units of a crashed
+ * worker are renamed by the others, at most one lease duration later, and a renamed file is simply not found again.
+ * The lease duration must be well above the clock difference of the hosts. A worker too slow to renew may lose its
+ * lease while it still works; it logs a warning, and since a move never replaces a file the overlap only shows as
+ * failed moves.
+ * </p>
+ * <p>
+ * Done markers stay in the shard folder, so a second run with the same shard folder skips the done units; every
+ * run needs a new, or emptied, shard folder. The first worker records the root in the shard folder: a worker of
+ * another tree fails, and a worker that finds every unit already done warns that the folder is left from an earlier
+ * run. The names of the lease and done files are hashes of the unit names, their first lines name the owner and
+ * the unit.
+ * </p>
+ */
+public final class ShardedRenamer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedRenamer.class);
+
+    /**
+     * Default time after which a lease that is not renewed expires.
+     */
+    public static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(60);
+
+    /** Unit of the files directly in the root. */
+    static final String ROOT_UNIT = "";
+
+    private static final String LEASE_SUFFIX = ".lease";
+    private static final String DONE_SUFFIX = ".done";
+    private static final String INFO_FILE = "shard.info";
+    private static final Duration INFO_WAIT = Duration.ofSeconds(5);
+    private static final Duration INFO_RETRY = Duration.ofMillis(50);
+    private static final LinkOption[] NO_FOLLOW_LINKS = {LinkOption.NOFOLLOW_LINKS};
+    private static final LinkOption[] FOLLOW_LINKS = {};
+
+    /**
+     * State of a unit found by {@link #claim(String)}.
+     */
+    enum Claim {
+        /** The unit is leased to this worker now. */
+        ACQUIRED,
+        /** Another worker holds a live lease on the unit. */
+        HELD,
+        /** The unit has been renamed. */
+        DONE
+    }
+
+    private final Path root;
+    private final Path shardDirectory;
+    private final String workerId;
+    private final String token;
+    private final Duration leaseDuration;
+    private final Duration pollInterval;
+    private final boolean followLinks;
+    /** Generation of the lease of every unit held by this worker. */
+    private final Map<String, Integer> heldUnits = new ConcurrentHashMap<>();
+
+    private ShardedRenamer(Builder builder) {
+        this.root = builder.root;
+        this.shardDirectory = builder.shardDirectory;
+        this.workerId = Objects.requireNonNullElseGet(builder.workerId, ShardedRenamer::defaultWorkerId);
+        // Two runs with the same worker id must not mistake each other's leases for their own
+        this.token = workerId + " " + UUID.randomUUID();
+        this.leaseDuration = builder.leaseDuration;
+        this.pollInterval = Objects.requireNonNullElse(builder.pollInterval, leaseDuration.dividedBy(4));
+        this.followLinks = builder.followLinks;
+    }
+
+    /**
+     * Creates a builder for a sharded run over the tree.
+     *
+     * @param root           root folder of the tree
+     * @param shardDirectory folder for the lease files and done markers, shared by all the workers
+     * @return new builder
+     */
+    public static Builder builder(Path root, Path shardDirectory) {
+        return new Builder(root, shardDirectory);
+    }
+
+    /**
+     * Renames the units of the tree not renamed by other workers and waits until all of them are done.
+     *
+     * @param subtreeRenamer renamer of a whole top-level subfolder
+     * @param rootRenamer    renamer of the files directly in the root, without its subfolders
+     * @return result with the counters of the units renamed by this worker
+     * @throws IllegalStateException if the root cannot be listed or the shard folder cannot be used, or belongs to
+     *                               a run over another tree
+     */
+    public RenameResult run(FileRenamer subtreeRenamer, FileRenamer rootRenamer) {
+        try {
+            Files.createDirectories(shardDirectory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create shard folder: " + shardDirectory, e);
+        }
+        checkShardInfo();
+        List<String> units = listUnits();
+        if (units.stream().allMatch(unit -> Files.exists(marker(unit, DONE_SUFFIX)))) {
+            log.warn("All {} units of '{}' are already done in shard folder '{}'; it is left from an earlier run, "
+                    + "a new run needs a new or empty shard folder.", units.size(), root, shardDirectory);
+        }
+        log.info("Worker {} sharing {} units of '{}' through '{}'.", workerId, units.size(), root, shardDirectory);
+
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "translit-shard-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewMillis = Math.max(1, leaseDuration.toMillis() / 3);
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+
+        RenameResult.Counter counter = new RenameResult.Counter();
+        Set<String> failedUnits = new HashSet<>();
+        int renamedUnits = 0;
+        try {
+            // Workers start at different units, so they do not all compete for the first one
+            int start = Math.floorMod(token.hashCode(), units.size());
+            boolean waiting = true;
+            while (waiting) {
+                waiting = false;
+                for (int i = 0; i < units.size(); i++) {
+                    String unit = units.get((start + i) % units.size());
+                    if (failedUnits.contains(unit)) {
+                        continue;
+                    }
+                    switch (claim(unit)) {
+                        case ACQUIRED -> {
+                            RenameResult result = renameUnit(unit, subtreeRenamer, rootRenamer);
+                            if (result == null) {
+                                failedUnits.add(unit);
+                            } else {
+                                counter.add(result);
+                                renamedUnits++;
+                            }
+                        }
+                        case HELD -> waiting = true;
+                        case DONE -> {
+                        }
+                    }
+                }
+                if (waiting && !sleep(pollInterval)) {
+                    log.warn("Worker {} interrupted while waiting for the units of other workers.", workerId);
+                    break;
+                }
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        log.info("Worker {} renamed {} of {} units.", workerId, renamedUnits, units.size());
+        return counter.toResult();
+    }
+
+    /**
+     * Records the root in the shard folder, or checks that a folder already used was used for the same root.
+     */
+    private void checkShardInfo() {
+        Path info = shardDirectory.resolve(INFO_FILE);
+        String rootPath = root.toAbsolutePath().normalize().toString();
+        // Created like the leases, since shared mounts such as SMB often have no hard links to publish a whole file
+        try (SeekableByteChannel channel = Files.newByteChannel(info,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(StandardCharsets.UTF_8.encode(rootPath + "\n"));
+            return;
+        } catch (FileAlreadyExistsException e) {
+            // Another worker recorded the root
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to use shard folder: " + shardDirectory, e);
+        }
+        String recorded = readShardInfo(info);
+        if (!recorded.equals(rootPath)) {
+            throw new IllegalStateException("Shard folder " + shardDirectory + " belongs to a run over '"
+                    + recorded + "', use a new or empty shard folder");
+        }
+    }
+
+    /**
+     * Reads the root recorded in the shard folder; the line is complete once it ends with a line break, so a file
+     * still being written by another worker is read again.
+     */
+    private String readShardInfo(Path info) {
+        long deadline = System.nanoTime() + INFO_WAIT.toNanos();
+        while (true) {
+            try {
+                String content = Files.readString(info);
+                if (content.endsWith("\n")) {
+                    return content.strip();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to use shard folder: " + shardDirectory, e);
+            }
+            if (System.nanoTime() - deadline > 0 || !sleep(INFO_RETRY)) {
+                throw new IllegalStateException("Root recorded in shard folder " + shardDirectory
+                        + " is incomplete, use a new or empty shard folder");
+            }
+        }
+    }
+
+    /**
+     * Lists the units: the root files first, then the top-level subfolders by name, without the shard folder.
+     */
+    List<String> listUnits() {
+        List<String> units = new ArrayList<>();
+        Path shardFolder = shardDirectory.toAbsolutePath().normalize();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                if (Files.isDirectory(entry, followLinks ? FOLLOW_LINKS : NO_FOLLOW_LINKS)
+                        && !entry.toAbsolutePath().normalize().equals(shardFolder)) {
+                    units.add(entry.getFileName().toString());
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            throw new IllegalStateException("Unable to list files in folder: " + root, e);
+        }
+        Collections.sort(units);
+        units.add(0, ROOT_UNIT);
+        return units;
+    }
+
+    /**
+     * @return result of the unit, {@code null} if the renamer failed
+     */
+    private RenameResult renameUnit(String unit, FileRenamer subtreeRenamer, FileRenamer rootRenamer) {
+        String label = unit.equals(ROOT_UNIT) ? "(root files)" : unit;
+        log.debug("Worker {} renaming unit '{}'.", workerId, label);
+        RenameResult result;
+        try {
+            result = unit.equals(ROOT_UNIT)
+                    ? rootRenamer.renameFiles(root.toString())
+                    : subtreeRenamer.renameFiles(root.resolve(unit).toString());
+        } catch (RuntimeException e) {
+            // Left to the other workers, or to the next run
+            log.error("Renaming unit '{}' failed, releasing its lease.", label, e);
+            release(unit);
+            return null;
+        }
+        complete(unit, result);
+        return result;
+    }
+
+    /**
+     * Tries to lease the unit to this worker, taking over an expired lease.
+     *
+     * @param unit unit name, {@link #ROOT_UNIT} for the files in the root
+     * @return state of the unit
+     * @throws IllegalStateException if the shard folder cannot be written
+     */
+    Claim claim(String unit) {
+        Path done = marker(unit, DONE_SUFFIX);
+        if (Files.exists(done)) {
+            return Claim.DONE;
+        }
+        int current = latestGeneration(unit);
+        if (current >= 0 && !isExpired(lease(unit, current))) {
+            return Claim.HELD;
+        }
+        int generation = current + 1;
+        if (!tryCreateLease(lease(unit, generation), unit)) {
+            // Another worker took the same handoff first
+            return Claim.HELD;
+        }
+        if (current >= 0) {
+            log.warn("Lease of unit '{}' held by {} expired, taking the unit over.", unit,
+                    readOwnerQuietly(lease(unit, current)));
+        }
+        if (Files.exists(done)) {
+            // The previous owner finished between the two checks
+            deleteLeases(unit, generation);
+            return Claim.DONE;
+        }
+        heldUnits.put(unit, generation);
+        return Claim.ACQUIRED;
+    }
+
+    /**
+     * Writes the done marker of a unit leased to this worker and then deletes its lease. The marker is written to
+     * a temporary file first, so a marker is never seen half written.
+     *
+     * @param unit   unit name
+     * @param result result of the unit, recorded in the marker
+     */
+    void complete(String unit, RenameResult result) {
+        Path done = marker(unit, DONE_SUFFIX);
+        Path temporary = done.resolveSibling(done.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.writeString(temporary, token + "\n" + unit + "\n" + result + "\n");
+            moveAtomically(temporary, done);
+        } catch (IOException e) {
+            // Without the marker the unit is renamed again after the lease expires, which finds nothing left to do
+            log.error("Failed to write the done marker of unit '{}'.", unit, e);
+            deleteQuietly(temporary);
+        }
+        Integer generation = heldUnits.remove(unit);
+        if (generation != null) {
+            // The unit is done, no other worker needs its leases
+            deleteLeases(unit, generation);
+        }
+    }
+
+    /**
+     * Gives up the lease of a unit leased to this worker: the lease is left in place but expired, so the next
+     * worker takes the unit over with the next generation.
+     *
+     * @param unit unit name
+     */
+    void release(String unit) {
+        Integer generation = heldUnits.remove(unit);
+        if (generation == null || Files.exists(lease(unit, generation + 1))) {
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(lease(unit, generation), FileTime.fromMillis(0));
+        } catch (IOException e) {
+            log.warn("Failed to release the lease of unit '{}', it expires in {}.", unit, leaseDuration);
+        }
+    }
+
+    /**
+     * Renews the leases of this worker; a lease with a next generation was taken over by another worker.
+     */
+    void renewLeases() {
+        for (Map.Entry<String, Integer> held : heldUnits.entrySet()) {
+            String unit = held.getKey();
+            int generation = held.getValue();
+            if (!Files.exists(lease(unit, generation + 1))) {
+                try {
+                    // Touching a lease taken over meanwhile is harmless: its next generation stays the live one
+                    Files.setLastModifiedTime(lease(unit, generation), FileTime.fromMillis(System.currentTimeMillis()));
+                    continue;
+                } catch (NoSuchFileException e) {
+                    // Deleted by a worker that completed the unit
+                } catch (IOException e) {
+                    log.warn("Failed to renew the lease of unit '{}': {}", unit, e.getMessage());
+                    continue;
+                }
+            }
+            heldUnits.remove(unit);
+            log.warn("Lease of unit '{}' was lost, another worker may be renaming the same files.", unit);
+        }
+    }
+
+    /**
+     * @return highest generation of the leases of the unit, {@code -1} if it has none
+     */
+    private int latestGeneration(String unit) {
+        // Leases are deleted only once the unit is done, so the generations are contiguous from 0
+        int generation = -1;
+        while (Files.exists(lease(unit, generation + 1))) {
+            generation++;
+        }
+        return generation;
+    }
+
+    /**
+     * Deletes the leases of a done unit up to the generation.
+     */
+    private void deleteLeases(String unit, int generation) {
+        for (int i = generation; i >= 0; i--) {
+            deleteQuietly(lease(unit, i));
+        }
+    }
+
+    private boolean tryCreateLease(Path lease, String unit) {
+        try (SeekableByteChannel channel = Files.newByteChannel(lease,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(StandardCharsets.UTF_8.encode(token + "\n" + unit + "\n"));
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write lease file: " + lease, e);
+        }
+    }
+
+    private boolean isExpired(Path lease) {
+        try {
+            long age = System.currentTimeMillis() - Files.getLastModifiedTime(lease).toMillis();
+            return age > leaseDuration.toMillis();
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read lease file: " + lease, e);
+        }
+    }
+
+    /**
+     * @return owner token in the first line of the lease, {@code null} if there is no lease
+     */
+    private static String readOwner(Path lease) throws IOException {
+        String content;
+        try {
+            content = Files.readString(lease);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        int end = content.indexOf('\n');
+        return end < 0 ? content : content.substring(0, end);
+    }
+
+    private static String readOwnerQuietly(Path lease) {
+        try {
+            return readOwner(lease);
+        } catch (IOException e) {
+            return "unknown worker";
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete '{}'.", file);
+        }
+    }
+
+    private Path lease(String unit, int generation) {
+        return marker(unit, "." + generation + LEASE_SUFFIX);
+    }
+
+    /**
+     * The file of a unit in the shard folder; the unit name may contain any character, so the file is named after
+     * its hash.
+     */
+    private Path marker(String unit, String suffix) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(unit.getBytes(StandardCharsets.UTF_8));
+            return shardDirectory.resolve(HexFormat.of().formatHex(hash, 0, 16) + suffix);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the default worker id, the process id and the host name.
+     *
+     * @return worker id
+     */
+    public static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+
+    /**
+     * Builder for {@link ShardedRenamer}.
+     */
+    public static final class Builder {
+
+        private final Path root;
+        private final Path shardDirectory;
+        private String workerId;
+        private Duration leaseDuration = DEFAULT_LEASE_DURATION;
+        private Duration pollInterval;
+        private boolean followLinks;
+
+        private Builder(Path root, Path shardDirectory) {
+            this.root = Objects.requireNonNull(root, "root");
+            this.shardDirectory = Objects.requireNonNull(shardDirectory, "shardDirectory");
+        }
+
+        /**
+         * Sets the name of this worker in the leases and the log; by default the process id and the host name.
+         *
+         * @param workerId worker id
+         * @return this builder
+         */
+        public Builder workerId(String workerId) {
+            if (workerId.isBlank() || workerId.indexOf('\n') >= 0) {
+                throw new IllegalArgumentException("Worker id must be a non-blank single line: " + workerId);
+            }
+            this.workerId = workerId;
+            return this;
+        }
+
+        /**
+         * Sets the time after which a lease that is not renewed expires and its unit is taken over.
+         *
+         * @param leaseDuration lease duration, at least one second
+         * @return this builder
+         */
+        public Builder leaseDuration(Duration leaseDuration) {
+            if (leaseDuration.compareTo(Duration.ofSeconds(1)) < 0) {
+                throw new IllegalArgumentException("Lease duration must be at least one second: " + leaseDuration);
+            }
+            this.leaseDuration = leaseDuration;
+            return this;
+        }
+
+        /**
+         * Sets how often the units leased by other workers are checked; by default a quarter of the lease duration.
+         *
+         * @param pollInterval poll interval
+         * @return this builder
+         */
+        public Builder pollInterval(Duration pollInterval) {
+            if (pollInterval.isNegative() || pollInterval.isZero()) {
+                throw new IllegalArgumentException("Poll interval must be positive: " + pollInterval);
+            }
+            this.pollInterval = pollInterval;
+            return this;
+        }
+
+        /**
+         * Sets whether symbolic links to folders in the root are units of their own.
+         *
+         * @param followLinks {@code true} to follow links
+         * @return this builder
+         */
+        public Builder followLinks(boolean followLinks) {
+            this.followLinks = followLinks;
+            return this;
+        }
+
+        public ShardedRenamer build() {
+            return new ShardedRenamer(this);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.ckofa.translitrenamer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects a {@link FileFinder} and a {@link FileRenamer} through a bounded queue, so that files are renamed
+ * while the folder is still being scanned.
+ * <p>
+ * The scan runs in a separate producer thread and pushes every match into the queue, the calling thread takes
+ * the matches out in small batches and passes them to {@link FileRenamer#renameFiles(List)}. When the queue is
+ * full the scan waits for the renamer, so memory use does not depend on the size of the folder: only the counters
+ * of the renamed batches are kept, and the outcome of every file is left to the renamer, for instance to the
+ * {@link RenameOptions#getBatchListener() batch listener} of a {@link TransliterationFileRenamer}.
+ * </p>
+ */
+public class StreamingRenamePipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingRenamePipeline.class);
+
+    /**
+     * Marker put into the queue by the producer when the scan is over.
+     */
+    private static final File END_OF_SCAN = new File("");
+
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final FileFinder fileFinder;
+    private final FileRenamer fileRenamer;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    /**
+     * Creates a pipeline with the default queue capacity and rename batch size.
+     *
+     * @param fileFinder  finder that produces the files
+     * @param fileRenamer renamer that consumes the files
+     */
+    public StreamingRenamePipeline(FileFinder fileFinder, FileRenamer fileRenamer) {
+        this(fileFinder, fileRenamer, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a pipeline with the specified queue capacity and rename batch size.
+     *
+     * @param fileFinder    finder that produces the files
+     * @param fileRenamer   renamer that consumes the files
+     * @param queueCapacity maximum number of found files waiting to be renamed, at least 1
+     * @param batchSize     maximum number of files passed to the renamer at once, at least 1
+     */
+    public StreamingRenamePipeline(FileFinder fileFinder, FileRenamer fileRenamer, int queueCapacity, int batchSize) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.fileFinder = fileFinder;
+        this.fileRenamer = fileRenamer;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Scans the specified folder and renames the found files as they arrive.
+     * Returns when all found files have been passed to the renamer.
+     *
+     * @param folderPath path to the directory where files will be searched
+     * @return counters of all renamed batches, without the outcomes of the files
+     */
+    public RenameResult run(String folderPath) {
+        BlockingQueue<File> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Producer producer = new Producer(folderPath, queue);
+        Thread producerThread = new Thread(producer, "translit-scan");
+        producerThread.setDaemon(true);
+        producerThread.start();
+
+        List<File> batch = new ArrayList<>(batchSize);
+        RenameResult.Counter counter = new RenameResult.Counter();
+        try {
+            boolean endOfScan = false;
+            while (!endOfScan) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+
+                int last = batch.size() - 1;
+                if (batch.get(last) == END_OF_SCAN) {
+                    batch.remove(last);
+                    endOfScan = true;
+                }
+                if (!batch.isEmpty()) {
+                    counter.add(fileRenamer.renameFiles(batch));
+                    batch.clear();
+                }
+            }
+            producerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Renaming of folder '{}' was interrupted.", folderPath);
+            return counter.toResult();
+        } finally {
+            // Unblocks the producer if the consumer stopped early
+            producer.stopped = true;
+            producerThread.interrupt();
+        }
+
+        if (producer.failure != null) {
+            log.error("Skipping folder due to error: {}", producer.failure.getMessage());
+        }
+        return counter.toResult();
+    }
+
+    /**
+     * Runs the scan and feeds the queue; always finishes with {@link #END_OF_SCAN}.
+     */
+    private final class Producer implements Runnable {
+
+        private final String folderPath;
+        private final BlockingQueue<File> queue;
+        private volatile RuntimeException failure;
+        private volatile boolean stopped;
+
+        private Producer(String folderPath, BlockingQueue<File> queue) {
+            this.folderPath = folderPath;
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            try {
+                fileFinder.forEachFileOrThrow(folderPath, this::put);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                try {
+                    queue.put(END_OF_SCAN);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Puts a match into the queue. The finder may call this from its own worker threads,
+         * which are not interrupted together with the producer thread, so the wait is done in short steps.
+         */
+        private void put(File file) {
+            try {
+                while (!queue.offer(file, 100, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        throw new IllegalStateException("Renaming of folder '" + folderPath + "' was stopped");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Scan of folder '" + folderPath + "' was interrupted", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bounded cache of the names taken in the folders of a renamer, shared by the {@link RenamePlan}s of its batches.
+ * <p>
+ * A plan needs the names of the current entries of every folder of its batch. A folder renamed in several batches,
+ * like a large folder of a {@link PathTable}, of a stream or of a manifest, would be listed again for every batch,
+ * so the work would grow with the square of the folder size. The cache keeps the names of the most recently used
+ * folders, with the planned targets added and the sources of completed moves removed, and evicts the least
+ * recently used folder when it is full.
+ * </p>
+ * <p>
+ * A folder is listed again when its modification time differs from the one recorded when it was listed or when the
+ * renamer last moved files in it, so the names added by other processes between two batches are seen. A change
+ * made in the same clock tick as a move of the renamer may be missed; it then only makes a move fail, since a move
+ * never replaces a file. Lookups are synchronized, the renamer may plan and move from several threads.
+ * </p>
+ */
+final class TakenNames {
+
+    /**
+     * Default maximum number of folders kept.
+     */
+    static final int DEFAULT_MAX_FOLDERS = 256;
+
+    private final Map<Path, Folder> folders;
+
+    private static final class Folder {
+        private final Set<String> names;
+        private FileTime lastModified;
+
+        private Folder(Set<String> names, FileTime lastModified) {
+            this.names = names;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * @param maxFolders maximum number of folders kept, at least 1
+     */
+    TakenNames(int maxFolders) {
+        if (maxFolders < 1) {
+            throw new IllegalArgumentException("Maximum number of folders must be positive: " + maxFolders);
+        }
+        this.folders = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Folder> eldest) {
+                return size() > maxFolders;
+            }
+        };
+    }
+
+    /**
+     * Returns the taken names of a folder, listing it if it is not cached or has changed since. The set may be
+     * changed by the caller while it holds the lock of this cache.
+     *
+     * @param folder folder, {@code null} for the working directory
+     * @return names of the entries of the folder and of the targets planned in it
+     */
+    synchronized Set<String> get(Path folder) {
+        FileTime lastModified = lastModified(folder);
+        Folder cached = folders.get(folder);
+        if (cached != null && lastModified != null && lastModified.equals(cached.lastModified)) {
+            return cached.names;
+        }
+        Set<String> names = listNames(folder);
+        folders.put(folder, new Folder(names, lastModified));
+        return names;
+    }
+
+    /**
+     * Updates the cache with the outcomes of an executed plan: the names of the moved files are freed and the
+     * modification times of their folders after the moves recorded, so the next batch does not list them again.
+     * A folder with a planned move that did not happen is dropped, as its planned target is not taken after all.
+     *
+     * @param entries  entries of the executed plan
+     * @param outcomes outcomes of the entries, in the same order
+     */
+    synchronized void recordOutcomes(List<RenamePlan.Entry> entries, RenameOutcome[] outcomes) {
+        Path refreshed = null;
+        for (int i = 0; i < outcomes.length; i++) {
+            RenamePlan.Entry entry = entries.get(i);
+            if (entry.action() != RenamePlan.Action.MOVE || outcomes[i] == null
+                    || outcomes[i].status() == RenameOutcome.Status.PLANNED) {
+                continue;
+            }
+            Path parent = entry.source().getParent();
+            Folder folder = folders.get(parent);
+            if (folder == null) {
+                continue;
+            }
+            if (outcomes[i].status() != RenameOutcome.Status.RENAMED) {
+                folders.remove(parent);
+                continue;
+            }
+            folder.names.remove(entry.source().getFileName().toString());
+            // The files of a folder are adjacent in a plan, so its time is usually read once
+            if (!Objects.equals(parent, refreshed)) {
+                folder.lastModified = lastModified(parent);
+                refreshed = parent;
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path folder) {
+        try {
+            return Files.getLastModifiedTime(folder != null ? folder : Path.of(""));
+        } catch (IOException e) {
+            // Not cached: the folder is listed again next time
+            return null;
+        }
+    }
+
+    /**
+     * Reads the names of all entries of the folder; an unreadable folder gives an empty set,
+     * the moves into it will then fail on their own.
+     */
+    private static Set<String> listNames(Path folder) {
+        File directory = folder != null ? folder.toFile() : new File(".");
+        String[] names = directory.list();
+        if (names == null) {
+            return new HashSet<>();
+        }
+        Set<String> result = new HashSet<>(Math.max(16, (int) (names.length / 0.75f) + 1));
+        Collections.addAll(result, names);
+        return result;
+    }
+}
@@ -5,63 +5,488 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * An implementation of the {@link FileRenamer} interface designed to rename files with cyrillic characters in the name.
  * <p>
  * Uses transliteration to convert file names to Latin.
  * </p>
+ * <p>
+ * Every batch is first turned into a {@link RenamePlan}, which detects name collisions with existing files and
+ * between the files of the batch; only then are the files moved. A move never replaces an existing file.
+ * </p>
+ * <p>
+ * With a concurrency above 1 the moves of a batch run in parallel, which pays off on network shares where every
+ * rename is a round trip. Virtual threads are used when the runtime provides them, otherwise a fixed pool of
+ * daemon threads; in both cases no more than {@code concurrency} moves are in flight at once.
+ * See {@link RenameOptions} for all settings.
+ * </p>
+ * <p>
+ * With a {@link RenameJournal} every move is recorded before and after it happens, so an interrupted run can be
+ * continued with {@link #resume(RenameJournal)} and a finished one reverted with {@link #undo(RenameJournal)}.
+ * </p>
+ * <p>
+ * Transliterations and moves are timed in the {@link RunMetrics} of the options, and every move is emitted
+ * as a {@link RenamerEvents.FileMove} Flight Recorder event. Single renames are logged only at debug level;
+ * a record of every file goes to the {@link RenameAuditSink}, if one is set, and the result of every batch to the
+ * {@link RenameOptions#getBatchListener() batch listener}.
+ * </p>
+ * <p>
+ * With a {@link RenameOptions#getNameCacheSize() name cache} the new names of repeated file and folder names are
+ * transliterated once and then taken from a bounded LRU cache.
+ * </p>
+ * <p>
+ * The moves of a batch go through the {@link RenameOptions#getBackend() rename backend}; by default every folder
+ * is opened once per batch and its files are renamed relative to that handle. With an {@link IoGovernor} every move
+ * waits for its turn under the rate and concurrency limits of the governor.
+ * </p>
+ * <p>
+ * A {@link PathTable} from a finder is renamed in batches of whole folders, and the path of a file is only built
+ * when its batch is planned.
+ * </p>
  */
-public class TransliterationFileRenamer implements FileRenamer{
+public class TransliterationFileRenamer implements FileRenamer, AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(TransliterationFileRenamer.class);
+
+    /** Number of files of a {@link PathTable} planned and moved together. */
+    static final int TABLE_BATCH_SIZE = 4096;
     private final FileFinder fileFinder;
+    private final int concurrency;
+    private final CollisionStrategy collisionStrategy;
+    private final boolean dryRun;
+    private final RenameJournal journal;
+    private final RunMetrics metrics;
+    private final RenameAuditSink auditSink;
+    private final RenameBackend backend;
+    private final IoGovernor governor;
+    private final UnaryOperator<String> nameMapper;
+    private final Consumer<RenameResult> batchListener;
+    private final TakenNames takenNames = new TakenNames(TakenNames.DEFAULT_MAX_FOLDERS);
+    private ExecutorService executor;
 
     /**
-     * Creates an instance of {@code TransliterationFileRenamer} with the specified {@code FileFinder}.
+     * Creates an instance of {@code TransliterationFileRenamer} with the specified {@code FileFinder}
+     * and the default settings.
      *
      * @param fileFinder interface implementation {@code FileFinder}
      */
     public TransliterationFileRenamer(FileFinder fileFinder) {
+        this(fileFinder, RenameOptions.defaults());
+    }
+
+    /**
+     * Creates an instance of {@code TransliterationFileRenamer} with the specified {@code FileFinder} and settings.
+     *
+     * @param fileFinder interface implementation {@code FileFinder}
+     * @param options    renamer settings, {@code null} means the default settings
+     */
+    public TransliterationFileRenamer(FileFinder fileFinder, RenameOptions options) {
+        RenameOptions effective = options != null ? options : RenameOptions.defaults();
         this.fileFinder = fileFinder;
+        this.concurrency = effective.getConcurrency();
+        this.collisionStrategy = effective.getCollisionStrategy();
+        this.dryRun = effective.isDryRun();
+        this.journal = effective.getJournal();
+        this.metrics = effective.getMetrics();
+        this.auditSink = effective.getAuditSink();
+        this.backend = effective.getBackend();
+        this.governor = effective.getGovernor();
+        this.batchListener = effective.getBatchListener();
+        TransliterationScheme scheme = effective.getScheme();
+        this.nameMapper = effective.getNameCacheSize() > 0
+                ? new NameCache(scheme::transliterate, effective.getNameCacheSize())
+                : scheme::transliterate;
     }
 
     @Override
-    public void renameFiles(String folderPath) {
+    public RenameResult renameFiles(String folderPath) {
         List<File> files;
         try {
             files = fileFinder.findFilesOrThrow(folderPath);
         } catch (RuntimeException e) {
             log.error("Skipping folder due to error: {}", e.getMessage());
-            return;
+            return RenameResult.empty();
         }
 
-        renameFiles(files);
+        return renameFiles(files);
     }
 
     @Override
-    public void renameFiles(List<File> files) {
-        for (File file : files) {
-            String originalName = null;
+    public RenameResult renameFiles(List<File> files) {
+        if (files instanceof PathTable table && collisionStrategy != CollisionStrategy.FAIL
+                && table.size() > TABLE_BATCH_SIZE) {
+            return renameInBatches(table);
+        }
+        return execute(plan(files));
+    }
+
+    /**
+     * Plans and moves the files of a table a few thousand at a time, so only the paths, plan entries and journal
+     * records of one batch are in memory at once. A batch ends where the files of a folder end, so the collisions
+     * of a folder are still resolved together. With {@link CollisionStrategy#FAIL} the files are not split: a
+     * conflict anywhere must stop every move. The result keeps the counters only, the outcomes of every batch go
+     * to the batch listener.
+     */
+    private RenameResult renameInBatches(PathTable table) {
+        RenameResult.Counter counter = new RenameResult.Counter();
+        int start = 0;
+        while (start < table.size()) {
+            int end = start;
+            do {
+                end = table.directoryRunEnd(end);
+            } while (end < table.size() && end - start < TABLE_BATCH_SIZE);
+            counter.add(execute(plan(table.subList(start, end))));
+            start = end;
+        }
+        return counter.toResult();
+    }
+
+    /**
+     * Computes the new name of every file and resolves name collisions, without moving anything. The names taken
+     * in the folders are cached across the plans of this renamer, see {@link TakenNames}.
+     *
+     * @param files file list for renaming
+     * @return rename plan with one entry per file
+     */
+    public RenamePlan plan(List<File> files) {
+        if (!metrics.isEnabled()) {
+            return RenamePlan.build(files, collisionStrategy, nameMapper, takenNames);
+        }
+        return RenamePlan.build(files, collisionStrategy, name -> {
+            long start = metrics.start();
+            String result = nameMapper.apply(name);
+            metrics.record(RunMetrics.Phase.TRANSLITERATE, start);
+            return result;
+        }, takenNames);
+    }
+
+    /**
+     * Executes a rename plan. In a dry run, or if the plan has conflicts, nothing is moved.
+     * With a journal, the moves of the plan are committed to it before the first file is moved.
+     *
+     * @param plan rename plan
+     * @return result of the renaming with the outcome of every entry of the plan
+     */
+    public RenameResult execute(RenamePlan plan) {
+        List<RenamePlan.Entry> entries = plan.getEntries();
+        RenameOutcome[] outcomes = new RenameOutcome[entries.size()];
+        if (dryRun || plan.hasConflicts()) {
+            if (plan.hasConflicts()) {
+                log.error("Name collisions found, no files will be renamed.");
+            }
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = outcomeWithoutMove(entries.get(i), plan.hasConflicts());
+            }
+            takenNames.recordOutcomes(entries, outcomes);
+            return audited(Arrays.asList(outcomes));
+        }
+
+        long[] ids = null;
+        if (journal != null) {
             try {
-                originalName = file.getName();
-                String newName = TransliteratorUtils.transliterate(originalName);
+                ids = new long[entries.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    RenamePlan.Entry entry = entries.get(i);
+                    if (entry.action() == RenamePlan.Action.MOVE) {
+                        ids[i] = journal.appendPlanned(entry.source(), entry.target());
+                    }
+                }
+                journal.commit();
+            } catch (IOException e) {
+                log.error("Failed to write the rename journal '{}', no files will be renamed.", journal.getFile(), e);
+                for (int i = 0; i < outcomes.length; i++) {
+                    RenamePlan.Entry entry = entries.get(i);
+                    outcomes[i] = entry.action() == RenamePlan.Action.MOVE
+                            ? RenameOutcome.failed(entry.source(), entry.target(), "Journal could not be written")
+                            : outcomeWithoutMove(entry, false);
+                }
+                takenNames.recordOutcomes(entries, outcomes);
+                return audited(Arrays.asList(outcomes));
+            }
+        }
+        moveAll(entries, journal, ids, outcomes);
+        return audited(Arrays.asList(outcomes));
+    }
 
-                Path source = file.toPath();
-                Path target = source.resolveSibling(newName);
+    /**
+     * Continues an interrupted run from its journal without scanning: every move that was planned but not
+     * completed is checked against the disk and executed if it has not happened yet.
+     *
+     * @param runJournal journal of the interrupted run, the completed moves are appended to it
+     * @return result with the outcome of every pending move
+     */
+    public RenameResult resume(RenameJournal runJournal) {
+        List<RenameJournal.Entry> pending = runJournal.getPending();
+        List<RenamePlan.Entry> entries = new ArrayList<>(pending.size());
+        long[] ids = new long[pending.size()];
+        for (RenameJournal.Entry entry : pending) {
+            Path source = entry.source();
+            Path target = entry.target();
+            boolean moved = !Files.exists(source, LinkOption.NOFOLLOW_LINKS)
+                    && Files.exists(target, LinkOption.NOFOLLOW_LINKS);
+            if (moved) {
+                // The move finished before the crash, only its record is missing
+                entries.add(new RenamePlan.Entry(source, target, RenamePlan.Action.SKIP, "Already renamed"));
+                if (!dryRun) {
+                    appendCompleted(runJournal, entry.id());
+                }
+            } else {
+                entries.add(new RenamePlan.Entry(source, target, RenamePlan.Action.MOVE, null));
+            }
+            ids[entries.size() - 1] = entry.id();
+        }
+        log.info("Resuming {} pending renames from journal '{}'.", entries.size(), runJournal.getFile());
 
-                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
-                log.info("Renamed: {} -> {}", originalName, newName);
+        RenameOutcome[] outcomes = new RenameOutcome[entries.size()];
+        if (dryRun) {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = outcomeWithoutMove(entries.get(i), false);
+            }
+        } else {
+            moveAll(entries, runJournal, ids, outcomes);
+        }
+        return audited(Arrays.asList(outcomes));
+    }
+
+    /**
+     * Reverts the completed moves of a journal in reverse order, so renames that depend on each other are
+     * undone correctly. A file is not moved back if its original name has been taken in the meantime.
+     *
+     * @param runJournal journal of the run to undo, the undone moves are appended to it
+     * @return result with the outcome of every undone move, sources and targets are swapped
+     */
+    public RenameResult undo(RenameJournal runJournal) {
+        List<RenameJournal.Entry> completed = runJournal.getCompleted();
+        log.info("Undoing {} renames from journal '{}'.", completed.size(), runJournal.getFile());
+        List<RenameOutcome> outcomes = new ArrayList<>(completed.size());
+        for (int i = completed.size() - 1; i >= 0; i--) {
+            RenameJournal.Entry entry = completed.get(i);
+            Path current = entry.target();
+            Path original = entry.source();
+            if (dryRun) {
+                outcomes.add(RenameOutcome.planned(current, original));
+                continue;
+            }
+            long start = metrics.start();
+            try {
+                Files.move(current, original);
+                metrics.record(RunMetrics.Phase.MOVE, start);
+                runJournal.appendReverted(entry.id());
+                log.debug("Restored: {} -> {}", current.getFileName(), original.getFileName());
+                outcomes.add(RenameOutcome.renamed(current, original));
+            } catch (FileAlreadyExistsException e) {
+                outcomes.add(RenameOutcome.skipped(current, original, "Original name is already taken"));
             } catch (IOException e) {
-                log.error("Failed to rename file '{}' due to an I/O error, skipping.", originalName != null ? originalName : file.toString(), e);
-            } catch (Exception e) {
-                log.error("An unexpected error occurred while processing file '{}', skipping.", file.toString(), e);
+                log.error("Failed to restore file '{}', skipping.", current, e);
+                outcomes.add(RenameOutcome.failed(current, original, e.toString()));
             }
         }
+        commitJournal(runJournal);
+        return audited(outcomes);
+    }
+
+    /**
+     * Hands the outcomes over to the audit sink, if any, and builds the result, which is passed to the batch
+     * listener, if any.
+     */
+    private RenameResult audited(List<RenameOutcome> outcomes) {
+        if (auditSink != null) {
+            auditSink.record(outcomes);
+        }
+        RenameResult result = RenameResult.of(outcomes);
+        if (batchListener != null) {
+            batchListener.accept(result);
+        }
+        return result;
+    }
+
+    private static RenameOutcome outcomeWithoutMove(RenamePlan.Entry entry, boolean conflicts) {
+        return switch (entry.action()) {
+            case MOVE -> conflicts
+                    ? RenameOutcome.skipped(entry.source(), entry.target(), "Not renamed because of name collisions")
+                    : RenameOutcome.planned(entry.source(), entry.target());
+            case SKIP -> RenameOutcome.skipped(entry.source(), entry.target(), entry.reason());
+            case CONFLICT -> RenameOutcome.failed(entry.source(), entry.target(), entry.reason());
+        };
+    }
+
+    /**
+     * Moves the entries of a plan, sequentially or concurrently. The completions are appended to the journal,
+     * if any, and committed once at the end, and the freed names are recorded in the cache of taken names.
+     *
+     * @param ids journal ids of the entries, {@code null} without a journal
+     */
+    private void moveAll(List<RenamePlan.Entry> entries, RenameJournal runJournal, long[] ids, RenameOutcome[] outcomes) {
+        try (FileMover opened = FileMover.open(backend)) {
+            FileMover mover = governor == null
+                    ? opened
+                    : (source, target) -> governor.run(() -> opened.move(source, target));
+            if (concurrency == 1 || entries.size() < 2) {
+                for (int i = 0; i < outcomes.length; i++) {
+                    outcomes[i] = renameFile(entries.get(i), mover, runJournal, ids == null ? 0 : ids[i]);
+                }
+            } else {
+                renameConcurrently(entries, mover, runJournal, ids, outcomes);
+            }
+        }
+        takenNames.recordOutcomes(entries, outcomes);
+        if (runJournal != null) {
+            commitJournal(runJournal);
+        }
+    }
+
+    private void renameConcurrently(List<RenamePlan.Entry> entries, FileMover mover, RenameJournal runJournal,
+                                    long[] ids, RenameOutcome[] outcomes) {
+        ExecutorService executorService = executor();
+        Semaphore permits = new Semaphore(concurrency);
+        try {
+            for (int i = 0; i < outcomes.length; i++) {
+                int index = i;
+                RenamePlan.Entry entry = entries.get(i);
+                long id = ids == null ? 0 : ids[i];
+                permits.acquire();
+                try {
+                    executorService.execute(() -> {
+                        try {
+                            outcomes[index] = renameFile(entry, mover, runJournal, id);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    outcomes[index] = renameFile(entry, mover, runJournal, id);
+                }
+            }
+            // All permits are back only when every submitted rename has finished
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Renaming was interrupted, {} files were not processed.",
+                    Arrays.stream(outcomes).filter(outcome -> outcome == null).count());
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] == null) {
+                    outcomes[i] = RenameOutcome.failed(entries.get(i).source(), entries.get(i).target(), "Interrupted");
+                }
+            }
+        }
+    }
+
+    /**
+     * Renames a single file of the plan; never throws, every error is turned into a failed outcome.
+     * The move never replaces an existing file: if the target appeared after planning, the move fails.
+     *
+     * @param id journal id of the entry, {@code 0} if it is not journaled
+     */
+    private RenameOutcome renameFile(RenamePlan.Entry entry, FileMover mover, RenameJournal runJournal, long id) {
+        Path source = entry.source();
+        Path target = entry.target();
+        if (entry.action() != RenamePlan.Action.MOVE) {
+            return outcomeWithoutMove(entry, false);
+        }
+        RenamerEvents.FileMove event = new RenamerEvents.FileMove();
+        event.begin();
+        long start = metrics.start();
+        try {
+            mover.move(source, target);
+            metrics.record(RunMetrics.Phase.MOVE, start);
+            commitEvent(event, entry, true);
+            log.debug("Renamed: {} -> {}", source.getFileName(), target.getFileName());
+            if (runJournal != null && id != 0) {
+                appendCompleted(runJournal, id);
+            }
+            return RenameOutcome.renamed(source, target);
+        } catch (IOException e) {
+            metrics.recordError(RunMetrics.Phase.MOVE, start);
+            commitEvent(event, entry, false);
+            log.error("Failed to rename file '{}' due to an I/O error, skipping.", source.getFileName(), e);
+            return RenameOutcome.failed(source, target, e.toString());
+        } catch (Exception e) {
+            metrics.recordError(RunMetrics.Phase.MOVE, start);
+            commitEvent(event, entry, false);
+            log.error("An unexpected error occurred while processing file '{}', skipping.", source, e);
+            return RenameOutcome.failed(source, target, e.toString());
+        }
+    }
+
+    private static void commitEvent(RenamerEvents.FileMove event, RenamePlan.Entry entry, boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = entry.source().toString();
+            event.target = entry.target().toString();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    /**
+     * A lost completion record only makes {@link #resume} check the file on disk again, so it is not an error
+     * of the rename itself.
+     */
+    private static void appendCompleted(RenameJournal runJournal, long id) {
+        try {
+            runJournal.appendCompleted(id);
+        } catch (IOException e) {
+            log.error("Failed to record a completed rename in journal '{}'.", runJournal.getFile(), e);
+        }
+    }
+
+    private static void commitJournal(RenameJournal runJournal) {
+        try {
+            runJournal.commit();
+        } catch (IOException e) {
+            log.error("Failed to commit journal '{}'.", runJournal.getFile(), e);
+        }
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = createExecutor(concurrency);
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads of concurrent moves, if any were started; they are started again if the renamer is used
+     * afterwards. Renamers that live as long as the application need not be closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Creates an executor with virtual threads when the runtime supports them (JDK 21+),
+     * otherwise a fixed pool of daemon threads.
+     */
+    private static ExecutorService createExecutor(int concurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Virtual threads are not available, using a pool of {} platform threads.", concurrency);
+        }
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "translit-rename");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
 }
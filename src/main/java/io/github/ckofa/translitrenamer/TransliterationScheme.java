@@ -0,0 +1,637 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled transliteration scheme: which Latin string replaces each cyrillic character, optionally depending on
+ * the neighbouring characters.
+ * <p>
+ * Schemes are defined in text files, one rule per line, {@code #} starts a comment:
+ * </p>
+ * <pre>
+ * я = ia           # default replacement
+ * ^я = ya          # at the beginning of a word, an apostrophe does not start one
+ * [аеиоу]я = ya    # after one of the listed characters
+ * ц[еиы] = c       # before one of the listed characters
+ * </pre>
+ * <p>
+ * A rule for a lower-case letter also defines the upper-case letter, with the first character of the replacement
+ * capitalized, unless the file has its own rule for it. Context rules of a character are tried in the order of
+ * the file; the first match wins, otherwise the default replacement is used.
+ * </p>
+ * <p>
+ * Compiling puts the default replacements into an array indexed by the character code, as a single map did
+ * before, and keeps context rules only for the characters that have them; a name without such characters costs
+ * the same for every scheme. Instances are immutable and safe to share between threads; a built-in scheme is
+ * compiled once, when it first transliterates a name, so selecting a scheme costs nothing at startup.
+ * </p>
+ * <p>
+ * Besides single names, a scheme transliterates text of any size into an {@link Appendable}, a {@link CharBuffer}
+ * or from a {@link Reader} to a {@link Writer}, without intermediate strings.
+ * </p>
+ */
+public final class TransliterationScheme {
+
+    /**
+     * Name of the scheme used when none is selected; extends the original table of the application with the
+     * letters of Ukrainian, Belarusian and Serbian.
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    private static final String RESOURCE_DIRECTORY = "schemes/";
+    private static final String RESOURCE_EXTENSION = ".tr";
+    private static final List<String> BUILT_IN = List.of(
+            DEFAULT_NAME, "gost-7.79", "iso-9", "bgn-pcgn", "ukrainian", "belarusian", "serbian");
+    private static final Map<String, TransliterationScheme> COMPILED = new ConcurrentHashMap<>();
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private final String name;
+    private volatile Tables tables;
+
+    /**
+     * Replacement of a character in a context.
+     *
+     * @param wordStart   {@code true} if the rule applies only at the beginning of a word
+     * @param before      characters one of which must precede, {@code null} for any
+     * @param after       characters one of which must follow, {@code null} for any
+     * @param replacement Latin replacement
+     */
+    private record Rule(boolean wordStart, String before, String after, char[] replacement) {
+
+        private boolean matches(CharSequence text, int index) {
+            char previous = index > 0 ? text.charAt(index - 1) : 0;
+            if (wordStart && index > 0 && isWordCharacter(previous)) {
+                return false;
+            }
+            if (before != null && (index == 0 || before.indexOf(previous) < 0)) {
+                return false;
+            }
+            return after == null || (index + 1 < text.length() && after.indexOf(text.charAt(index + 1)) >= 0);
+        }
+
+        /**
+         * An apostrophe is part of a word, as in Ukrainian and Belarusian.
+         */
+        private static boolean isWordCharacter(char ch) {
+            return Character.isLetter(ch) || ch == '\'' || ch == '\u2019' || ch == '\u02BC';
+        }
+    }
+
+    /**
+     * Compiled rules: default replacements indexed by the character code minus {@code start}, and the context rules
+     * of the characters that have them at the same index.
+     */
+    private record Tables(char start, char[][] replacements, Rule[][] contextRules) {
+
+        private boolean hasReplacement(char ch) {
+            int index = ch - start;
+            return index >= 0 && index < replacements.length && replacements[index] != null;
+        }
+
+        private int longestReplacement() {
+            int longest = 1;
+            for (int i = 0; i < replacements.length; i++) {
+                if (replacements[i] != null) {
+                    longest = Math.max(longest, replacements[i].length);
+                }
+                if (contextRules[i] != null) {
+                    for (Rule rule : contextRules[i]) {
+                        longest = Math.max(longest, rule.replacement().length);
+                    }
+                }
+            }
+            return longest;
+        }
+
+        /**
+         * Returns the replacement of the character at the index, {@code null} if it is kept as is.
+         */
+        private char[] replacementAt(CharSequence text, int index) {
+            int tableIndex = text.charAt(index) - start;
+            if (tableIndex < 0 || tableIndex >= replacements.length) {
+                return null;
+            }
+            Rule[] rules = contextRules[tableIndex];
+            if (rules != null) {
+                for (Rule rule : rules) {
+                    if (rule.matches(text, index)) {
+                        return rule.replacement();
+                    }
+                }
+            }
+            return replacements[tableIndex];
+        }
+    }
+
+    /**
+     * @param tables compiled rules, {@code null} for a built-in scheme compiled on first use
+     */
+    private TransliterationScheme(String name, Tables tables) {
+        this.name = name;
+        this.tables = tables;
+    }
+
+    /**
+     * Returns the default scheme.
+     *
+     * @return default scheme
+     */
+    public static TransliterationScheme defaultScheme() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * Holder of the default scheme.
+     */
+    private static final class DefaultHolder {
+        private static final TransliterationScheme DEFAULT = forName(DEFAULT_NAME);
+    }
+
+    /**
+     * @return names of the built-in schemes
+     */
+    public static List<String> builtInNames() {
+        return BUILT_IN;
+    }
+
+    /**
+     * Returns a built-in scheme; its rules are compiled when it first transliterates a name.
+     *
+     * @param name name of the scheme, see {@link #builtInNames()}
+     * @return scheme
+     * @throws IllegalArgumentException if there is no such scheme
+     */
+    public static TransliterationScheme forName(String name) {
+        if (!BUILT_IN.contains(name)) {
+            throw new IllegalArgumentException("Unknown transliteration scheme: " + name
+                    + ", available: " + String.join(", ", BUILT_IN));
+        }
+        return COMPILED.computeIfAbsent(name, builtIn -> new TransliterationScheme(builtIn, null));
+    }
+
+    private static Tables loadBuiltIn(String name) {
+        String resource = RESOURCE_DIRECTORY + name + RESOURCE_EXTENSION;
+        InputStream stream = TransliterationScheme.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalStateException("Scheme resource is missing: " + resource);
+        }
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return compile(name, reader).tables;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read scheme resource: " + resource, e);
+        }
+    }
+
+    /**
+     * Compiles a scheme from a file with rules.
+     *
+     * @param file scheme file in UTF-8
+     * @return compiled scheme, named after the file
+     * @throws IOException              if the file could not be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static TransliterationScheme load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return compile(file.getFileName().toString(), reader);
+        }
+    }
+
+    /**
+     * Returns a built-in scheme by name, or else loads a scheme file from the given path.
+     *
+     * @param nameOrPath name of a built-in scheme or path to a scheme file
+     * @return compiled scheme
+     * @throws IllegalArgumentException if there is no such scheme or the file is invalid
+     */
+    public static TransliterationScheme resolve(String nameOrPath) {
+        if (BUILT_IN.contains(nameOrPath)) {
+            return forName(nameOrPath);
+        }
+        Path file = Path.of(nameOrPath);
+        if (!Files.isRegularFile(file)) {
+            return forName(nameOrPath);
+        }
+        try {
+            return load(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read scheme file: " + nameOrPath, e);
+        }
+    }
+
+    /**
+     * Compiles a scheme from rules.
+     *
+     * @param name   name of the scheme
+     * @param reader rules, one per line
+     * @return compiled scheme
+     * @throws IOException              if the rules could not be read
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    static TransliterationScheme compile(String name, Reader reader) throws IOException {
+        // Keyed by source character and context, so a later rule for the same key replaces an earlier one
+        Map<String, ParsedRule> rules = new LinkedHashMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf(" #");
+            String text = (comment >= 0 ? line.substring(0, comment) : line).strip();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            ParsedRule rule = ParsedRule.parse(text);
+            if (rule == null) {
+                throw new IllegalArgumentException("Invalid rule at line " + lineNumber + " of scheme " + name
+                        + ": " + line);
+            }
+            rules.put(rule.key(), rule);
+        }
+
+        List<ParsedRule> all = new ArrayList<>(rules.values());
+        for (ParsedRule rule : rules.values()) {
+            ParsedRule upper = rule.toUpperCase();
+            if (upper != null && !rules.containsKey(upper.key())) {
+                all.add(upper);
+            }
+        }
+        return build(name, all);
+    }
+
+    private static TransliterationScheme build(String name, List<ParsedRule> rules) {
+        if (rules.isEmpty()) {
+            return new TransliterationScheme(name, new Tables((char) 0, new char[0][], new Rule[0][]));
+        }
+        char min = Character.MAX_VALUE;
+        char max = 0;
+        for (ParsedRule rule : rules) {
+            min = (char) Math.min(min, rule.source());
+            max = (char) Math.max(max, rule.source());
+        }
+        char[][] replacements = new char[max - min + 1][];
+        List<List<Rule>> contexts = new ArrayList<>(replacements.length);
+        for (int i = 0; i < replacements.length; i++) {
+            contexts.add(null);
+        }
+        for (ParsedRule rule : rules) {
+            int index = rule.source() - min;
+            char[] replacement = rule.replacement().toCharArray();
+            if (!rule.hasContext()) {
+                replacements[index] = replacement;
+                continue;
+            }
+            if (contexts.get(index) == null) {
+                contexts.set(index, new ArrayList<>());
+            }
+            contexts.get(index).add(new Rule(rule.wordStart(), withUpperCase(rule.before()),
+                    withUpperCase(rule.after()), replacement));
+        }
+        Rule[][] contextRules = new Rule[replacements.length][];
+        for (int i = 0; i < contextRules.length; i++) {
+            List<Rule> list = contexts.get(i);
+            if (list != null) {
+                contextRules[i] = list.toArray(new Rule[0]);
+                if (replacements[i] == null) {
+                    // Without a default the character is kept as is when no context matches
+                    replacements[i] = new char[]{(char) (min + i)};
+                }
+            }
+        }
+        return new TransliterationScheme(name, new Tables(min, replacements, contextRules));
+    }
+
+    /**
+     * Context sets are written in lower case and match both cases.
+     */
+    private static String withUpperCase(String set) {
+        return set == null ? null : set + set.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return name of the scheme
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Transliterates the specified string. If nothing has to be replaced, the same instance is returned.
+     *
+     * @param text the string to be transliterated, may be {@code null}
+     * @return transliterated string, or an empty string if the input was {@code null}
+     */
+    public String transliterate(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        Tables tables = tables();
+        int length = text.length();
+        int first = 0;
+        while (first < length && !tables.hasReplacement(text.charAt(first))) {
+            first++;
+        }
+        if (first == length) {
+            return text; // nothing to replace, no copy needed
+        }
+
+        int resultLength = first;
+        for (int i = first; i < length; i++) {
+            char[] replacement = tables.replacementAt(text, i);
+            resultLength += replacement == null ? 1 : replacement.length;
+        }
+
+        char[] result = new char[resultLength];
+        text.getChars(0, first, result, 0);
+        int position = first;
+        for (int i = first; i < length; i++) {
+            char[] replacement = tables.replacementAt(text, i);
+            if (replacement == null) {
+                result[position++] = text.charAt(i);
+            } else {
+                System.arraycopy(replacement, 0, result, position, replacement.length);
+                position += replacement.length;
+            }
+        }
+        return new String(result);
+    }
+
+    /**
+     * Appends the transliteration of the text to the destination, without building an intermediate string.
+     * Runs of characters that are kept as they are go to the destination in one call; a {@link StringBuilder} or a
+     * {@link Writer} receives them, and the replacements, without any copy.
+     *
+     * @param text text to transliterate
+     * @param out  destination
+     * @param <A>  type of the destination
+     * @return the destination
+     * @throws IOException if the destination could not be written
+     */
+    public <A extends Appendable> A transliterate(CharSequence text, A out) throws IOException {
+        Tables tables = tables();
+        int length = text.length();
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char[] replacement = tables.replacementAt(text, i);
+            if (replacement != null) {
+                appendRun(text, run, i, out);
+                appendReplacement(replacement, out);
+                run = i + 1;
+            }
+        }
+        appendRun(text, run, length, out);
+        return out;
+    }
+
+    /**
+     * Transliterates the text from the index into the buffer, as far as the buffer has room. A replacement is never
+     * split: the buffer is left with less room than the next one needs. Call again from the returned index after
+     * draining the buffer, as with a {@link java.nio.charset.CharsetEncoder}; context rules see the whole text, so
+     * the result does not depend on where the buffer was full.
+     *
+     * @param text  text to transliterate
+     * @param start index of the first character to transliterate
+     * @param out   buffer the result is put into
+     * @return index of the first character not transliterated, {@code text.length()} when done
+     */
+    public int transliterate(CharSequence text, int start, CharBuffer out) {
+        return transliterate(text, start, text.length(), out);
+    }
+
+    /**
+     * Transliterates everything the reader has to the writer, through two fixed buffers: memory use does not depend
+     * on the size of the input. Neither stream is closed and the writer is not flushed.
+     *
+     * @param in  text to transliterate
+     * @param out destination
+     * @return number of characters written
+     * @throws IOException if reading or writing failed
+     */
+    public long transliterate(Reader in, Writer out) throws IOException {
+        return transliterate(in, out, STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize size of the input and the output buffer, in characters
+     */
+    long transliterate(Reader in, Writer out, int bufferSize) throws IOException {
+        int longest = tables().longestReplacement();
+        // A context rule looks at one character on each side, so the input keeps the character before the next one
+        // to write and the last character read is written only once the character after it is known
+        CharArrayText text = new CharArrayText(new char[Math.max(bufferSize, 4)]);
+        CharBuffer buffer = CharBuffer.allocate(Math.max(bufferSize, longest));
+        int next = 0;
+        long written = 0;
+        while (true) {
+            int read = in.read(text.chars, text.length, text.chars.length - text.length);
+            boolean end = read < 0;
+            if (!end) {
+                text.length += read;
+            }
+            int limit = end ? text.length : text.length - 1;
+            while (next < limit) {
+                next = transliterate(text, next, limit, buffer);
+                written += drain(buffer, out);
+            }
+            if (end) {
+                return written;
+            }
+            int keep = Math.max(next - 1, 0);
+            System.arraycopy(text.chars, keep, text.chars, 0, text.length - keep);
+            text.length -= keep;
+            next -= keep;
+        }
+    }
+
+    private int transliterate(CharSequence text, int start, int end, CharBuffer out) {
+        Tables tables = tables();
+        int i = start;
+        for (; i < end; i++) {
+            char[] replacement = tables.replacementAt(text, i);
+            if (replacement == null) {
+                if (!out.hasRemaining()) {
+                    break;
+                }
+                out.put(text.charAt(i));
+            } else {
+                if (out.remaining() < replacement.length) {
+                    break;
+                }
+                out.put(replacement);
+            }
+        }
+        return i;
+    }
+
+    private static int drain(CharBuffer buffer, Writer out) throws IOException {
+        int count = buffer.position();
+        out.write(buffer.array(), buffer.arrayOffset(), count);
+        buffer.clear();
+        return count;
+    }
+
+    private static void appendRun(CharSequence text, int start, int end, Appendable out) throws IOException {
+        if (start == end) {
+            return;
+        }
+        if (out instanceof StringBuilder builder) {
+            builder.append(text, start, end);
+        } else if (out instanceof Writer writer && text instanceof String string) {
+            writer.write(string, start, end - start);
+        } else if (out instanceof Writer writer) {
+            for (int i = start; i < end; i++) {
+                writer.write(text.charAt(i));
+            }
+        } else {
+            out.append(text, start, end);
+        }
+    }
+
+    private static void appendReplacement(char[] replacement, Appendable out) throws IOException {
+        if (out instanceof StringBuilder builder) {
+            builder.append(replacement);
+        } else if (out instanceof Writer writer) {
+            writer.write(replacement);
+        } else {
+            for (char ch : replacement) {
+                out.append(ch);
+            }
+        }
+    }
+
+    /**
+     * Input buffer of {@link #transliterate(Reader, Writer)} seen as text, so that the context rules read it in place.
+     */
+    private static final class CharArrayText implements CharSequence {
+
+        private final char[] chars;
+        private int length;
+
+        private CharArrayText(char[] chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
+        }
+    }
+
+    private Tables tables() {
+        Tables compiled = tables;
+        if (compiled == null) {
+            synchronized (this) {
+                compiled = tables;
+                if (compiled == null) {
+                    compiled = loadBuiltIn(name);
+                    tables = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    @Override
+    public String toString() {
+        return "TransliterationScheme[" + name + "]";
+    }
+
+    /**
+     * Rule as written in the scheme file.
+     */
+    private record ParsedRule(boolean wordStart, String before, char source, String after, String replacement) {
+
+        /**
+         * Parses {@code [^|[set]]X[[set]] = replacement}; returns {@code null} if the line is not a valid rule.
+         */
+        private static ParsedRule parse(String text) {
+            int separator = text.indexOf('=');
+            if (separator <= 0) {
+                return null;
+            }
+            String pattern = text.substring(0, separator).strip();
+            String replacement = text.substring(separator + 1).strip();
+
+            boolean wordStart = false;
+            String before = null;
+            int position = 0;
+            if (pattern.startsWith("^")) {
+                wordStart = true;
+                position = 1;
+            } else if (pattern.startsWith("[")) {
+                int end = pattern.indexOf(']');
+                if (end <= 1) {
+                    return null;
+                }
+                before = pattern.substring(1, end);
+                position = end + 1;
+            }
+            if (position >= pattern.length()) {
+                return null;
+            }
+            char source = pattern.charAt(position++);
+            String after = null;
+            if (position < pattern.length()) {
+                if (pattern.charAt(position) != '[' || !pattern.endsWith("]") || pattern.length() - position < 3) {
+                    return null;
+                }
+                after = pattern.substring(position + 1, pattern.length() - 1);
+            }
+            return new ParsedRule(wordStart, before, source, after, replacement);
+        }
+
+        private boolean hasContext() {
+            return wordStart || before != null || after != null;
+        }
+
+        private String key() {
+            return (wordStart ? "^" : "") + (before != null ? "[" + before + "]" : "") + source
+                    + (after != null ? "[" + after + "]" : "");
+        }
+
+        /**
+         * Returns the same rule for the upper-case letter, {@code null} if the source is not a lower-case letter.
+         */
+        private ParsedRule toUpperCase() {
+            char upper = Character.toUpperCase(source);
+            if (upper == source) {
+                return null;
+            }
+            String capitalized = replacement.isEmpty()
+                    ? replacement
+                    : Character.toUpperCase(replacement.charAt(0)) + replacement.substring(1);
+            return new ParsedRule(wordStart, before, upper, after, capitalized);
+        }
+    }
+}
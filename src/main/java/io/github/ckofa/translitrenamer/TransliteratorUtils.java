@@ -1,42 +1,20 @@
 package io.github.ckofa.translitrenamer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
 /**
  * Utility class for transliteration of strings with cyrillic characters into Latin.
  * <p>
- * Provides a method for converting strings containing cyrillic characters to their Latin equivalents.
+ * Provides methods for converting strings and streams of text containing cyrillic characters to their Latin
+ * equivalents with the {@link TransliterationScheme#defaultScheme() default scheme}; other schemes are used through
+ * {@link TransliterationScheme} directly.
  * </p>
  */
 public final class TransliteratorUtils {
 
-    private static final Map<Character, String> translitMap = new HashMap<>();
-
-    static {
-        String[] cyrillic = {
-                "А", "Б", "В", "Г", "Д", "Е", "Ё", "Ж", "З", "И", "Й",
-                "К", "Л", "М", "Н", "О", "П", "Р", "С", "Т", "У", "Ф",
-                "Х", "Ц", "Ч", "Ш", "Щ", "Ъ", "Ы", "Ь", "Э", "Ю", "Я",
-                "а", "б", "в", "г", "д", "е", "ё", "ж", "з", "и", "й",
-                "к", "л", "м", "н", "о", "п", "р", "с", "т", "у", "ф",
-                "х", "ц", "ч", "ш", "щ", "ъ", "ы", "ь", "э", "ю", "я"
-        };
-
-        String[] latin = {
-                "A", "B", "V", "G", "D", "E", "E", "Zh", "Z", "I", "Y",
-                "K", "L", "M", "N", "O", "P", "R", "S", "T", "U", "F",
-                "Kh", "Ts", "Ch", "Sh", "Sch", "", "Y", "", "E", "Yu", "Ya",
-                "a", "b", "v", "g", "d", "e", "e", "zh", "z", "i", "y",
-                "k", "l", "m", "n", "o", "p", "r", "s", "t", "u", "f",
-                "kh", "ts", "ch", "sh", "sch", "", "y", "", "e", "yu", "ya"
-        };
-
-        for(int i = 0; i < cyrillic.length; i++) {
-            translitMap.put(cyrillic[i].charAt(0), latin[i]);
-        }
-    }
-
     private TransliteratorUtils() {
         throw new UnsupportedOperationException("Utility class");
     }
@@ -49,14 +27,49 @@ public final class TransliteratorUtils {
      * @return transliterated string, or an empty string if the input was {@code null}
      */
     public static String transliterate(String text) {
-        if (text == null) {
-            return "";
-        }
-        StringBuilder result = new StringBuilder();
-        for(char ch : text.toCharArray()) {
-            result.append(translitMap.getOrDefault(ch, String.valueOf(ch)));
-        }
-        return result.toString();
+        return TransliterationScheme.defaultScheme().transliterate(text);
+    }
+
+    /**
+     * Appends the transliteration of the text to the destination, without building an intermediate string.
+     *
+     * @param text text to transliterate
+     * @param out  destination, such as a {@link StringBuilder} or a {@link Writer}
+     * @param <A>  type of the destination
+     * @return the destination
+     * @throws IOException if the destination could not be written
+     * @see TransliterationScheme#transliterate(CharSequence, Appendable)
+     */
+    public static <A extends Appendable> A transliterate(CharSequence text, A out) throws IOException {
+        return TransliterationScheme.defaultScheme().transliterate(text, out);
+    }
+
+    /**
+     * Transliterates the text from the index into the buffer, as far as the buffer has room; call again from the
+     * returned index after draining the buffer.
+     *
+     * @param text  text to transliterate
+     * @param start index of the first character to transliterate
+     * @param out   buffer the result is put into
+     * @return index of the first character not transliterated, {@code text.length()} when done
+     * @see TransliterationScheme#transliterate(CharSequence, int, CharBuffer)
+     */
+    public static int transliterate(CharSequence text, int start, CharBuffer out) {
+        return TransliterationScheme.defaultScheme().transliterate(text, start, out);
+    }
+
+    /**
+     * Transliterates everything the reader has to the writer in constant memory, for text of any size such as
+     * exported lists of file names. Neither stream is closed and the writer is not flushed.
+     *
+     * @param in  text to transliterate
+     * @param out destination
+     * @return number of characters written
+     * @throws IOException if reading or writing failed
+     * @see TransliterationScheme#transliterate(Reader, Writer)
+     */
+    public static long transliterate(Reader in, Writer out) throws IOException {
+        return TransliterationScheme.defaultScheme().transliterate(in, out);
     }
 
 }
@@ -0,0 +1,18 @@
+@echo off
+rem Starts TranslitRenamer with the class data sharing archive built by "mvn -P appcds package".
+rem Without the archive the jar is started as is. The JVM options tuned for short runs can be replaced
+rem with the TRANSLIT_JAVA_OPTS environment variable, e.g. set TRANSLIT_JAVA_OPTS=-Xmx2g for a large tree.
+setlocal
+
+set "DIR=%~dp0"
+set "JAVA=java"
+if defined JAVA_HOME set "JAVA=%JAVA_HOME%\bin\java"
+
+rem C1 only and the serial collector: a run over a small folder ends before C2 or a parallel GC would pay off
+if not defined TRANSLIT_JAVA_OPTS set "TRANSLIT_JAVA_OPTS=-XX:TieredStopAtLevel=1 -XX:+UseSerialGC"
+
+set SHARING=
+if exist "%DIR%TranslitRenamer.jsa" set SHARING="-XX:SharedArchiveFile=%DIR%TranslitRenamer.jsa"
+
+"%JAVA%" %SHARING% %TRANSLIT_JAVA_OPTS% -jar "%DIR%TranslitRenamer.jar" %*
+exit /b %ERRORLEVEL%
@@ -0,0 +1,186 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the whole application, scan plus rename, over a synthetic tree and fails when the throughput or the peak
+ * heap regress past the thresholds.
+ * <p>
+ * Run with {@code mvn -P perf test}; every setting is a system property that can be overridden with {@code -D},
+ * see the {@code perf} profile in the pom for the defaults. The tree is created on {@code /dev/shm} when it is
+ * available, so the suite measures the application rather than the disk, otherwise in the temporary folder;
+ * {@code -Dperf.dir=...} picks another place. After the warm-up runs each iteration renames a fresh copy of the
+ * same tree and the median iteration is compared with the thresholds. The results are written as JSON to
+ * {@code perf.resultFile} and a summary line to the application log.
+ * </p>
+ */
+@Tag("performance")
+class EndToEndPerformanceTest {
+
+    static {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, before the logger is created
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(EndToEndPerformanceTest.class);
+
+    private static Path baseDir;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        baseDir = Files.createTempDirectory(workDir(), "translit-perf");
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        SyntheticTree.deleteRecursively(baseDir);
+    }
+
+    @Test
+    @DisplayName("Scan and rename of a synthetic tree should keep up the throughput within the heap limit")
+    void renameTree_shouldMeetThresholds() throws IOException {
+        //---- Preparation ----
+        SyntheticTree tree = SyntheticTree.builder()
+                .depth(intProperty("perf.depth"))
+                .fanOut(intProperty("perf.fanOut"))
+                .filesPerFolder(intProperty("perf.filesPerFolder"))
+                .nameLength(intProperty("perf.nameLength"))
+                .cyrillicRatio(Double.parseDouble(property("perf.cyrillicRatio")))
+                .seed(Long.parseLong(property("perf.seed")))
+                .build();
+        int iterations = intProperty("perf.iterations");
+        double minFilesPerSecond = Double.parseDouble(property("perf.minFilesPerSecond"));
+        long maxPeakHeapMb = Long.parseLong(property("perf.maxPeakHeapMb"));
+        // The first runs load and compile the code, they are not measured
+        for (int i = 0; i < intProperty("perf.warmups"); i++) {
+            run(tree, baseDir.resolve("warmup" + i));
+        }
+
+        // --- Action ---
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < iterations; i++) {
+            results.add(run(tree, baseDir.resolve("run" + i)));
+        }
+
+        // --- Check ---
+        Result median = results.stream()
+                .sorted(Comparator.comparingDouble(Result::filesPerSecond))
+                .toList().get(results.size() / 2);
+        long peakHeapMb = results.stream().mapToLong(Result::peakHeapBytes).max().orElse(0) >> 20;
+        String summary = String.format(Locale.ROOT,
+                "%d files (%d cyrillic) in %s: median %.0f files/s (%.0f renames/s), peak heap %d MB",
+                tree.fileCount(), median.renamed(), tree, median.filesPerSecond(), median.renamesPerSecond(),
+                peakHeapMb);
+        log.info("Performance run: {}", summary);
+        writeResult(tree, results, median, peakHeapMb);
+        assertTrue(median.filesPerSecond() >= minFilesPerSecond,
+                "Throughput regressed below " + minFilesPerSecond + " files/s: " + summary);
+        assertTrue(peakHeapMb <= maxPeakHeapMb, "Peak heap regressed above " + maxPeakHeapMb + " MB: " + summary);
+    }
+
+    /**
+     * Creates the tree, renames it through {@link App#main(String[])} and deletes it again.
+     */
+    private static Result run(SyntheticTree tree, Path root) throws IOException {
+        long cyrillic = tree.create(root);
+        List<String> args = new ArrayList<>(List.of("--recursive"));
+        String extraArgs = System.getProperty("perf.args", "").strip();
+        if (!extraArgs.isEmpty()) {
+            args.addAll(Arrays.asList(extraArgs.split("\\s+")));
+        }
+        args.add(root.toString());
+        List<MemoryPoolMXBean> pools = retainedHeapPools();
+        System.gc();
+        pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        App.main(args.toArray(String[]::new));
+        long elapsed = System.nanoTime() - start;
+
+        long peakHeap = pools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        assertEquals(0, SyntheticTree.countCyrillicFiles(root), "Every cyrillic file must have been renamed");
+        SyntheticTree.deleteRecursively(root);
+        return new Result(tree.fileCount(), cyrillic, elapsed, peakHeap);
+    }
+
+    /**
+     * The pools that hold the objects surviving a collection. The allocation area (eden) is left out: it fills up to
+     * its size between collections whatever the application keeps alive, so its peak says nothing about a
+     * regression. Only the JVM knows which pool is which; the allocation area is the one without a usage threshold.
+     */
+    private static List<MemoryPoolMXBean> retainedHeapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+                .toList();
+    }
+
+    private static void writeResult(SyntheticTree tree, List<Result> results, Result median, long peakHeapMb)
+            throws IOException {
+        Path resultFile = Path.of(property("perf.resultFile"));
+        StringBuilder json = new StringBuilder(256)
+                .append("{\n  \"tree\": \"").append(tree).append("\",\n")
+                .append("  \"files\": ").append(tree.fileCount()).append(",\n")
+                .append("  \"renamed\": ").append(median.renamed()).append(",\n")
+                .append(String.format(Locale.ROOT, "  \"medianFilesPerSecond\": %.1f,%n", median.filesPerSecond()))
+                .append(String.format(Locale.ROOT, "  \"medianRenamesPerSecond\": %.1f,%n", median.renamesPerSecond()))
+                .append("  \"peakHeapMb\": ").append(peakHeapMb).append(",\n")
+                .append("  \"iterationMillis\": [");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "" : ", ").append(results.get(i).elapsedNanos() / 1_000_000);
+        }
+        json.append("]\n}\n");
+        Files.createDirectories(resultFile.toAbsolutePath().getParent());
+        Files.writeString(resultFile, json);
+    }
+
+    private static Path workDir() {
+        String dir = System.getProperty("perf.dir", "");
+        if (!dir.isBlank()) {
+            return Path.of(dir);
+        }
+        Path shm = Path.of("/dev/shm");
+        return Files.isDirectory(shm) && Files.isWritable(shm) ? shm : Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    private static String property(String name) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            throw new IllegalStateException("System property " + name + " is not set, run with: mvn -P perf test");
+        }
+        return value;
+    }
+
+    private static int intProperty(String name) {
+        return Integer.parseInt(property(name));
+    }
+
+    private record Result(long files, long renamed, long elapsedNanos, long peakHeapBytes) {
+
+        double filesPerSecond() {
+            return files * 1e9 / elapsedNanos;
+        }
+
+        double renamesPerSecond() {
+            return renamed * 1e9 / elapsedNanos;
+        }
+    }
+}
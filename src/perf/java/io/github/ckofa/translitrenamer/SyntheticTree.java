@@ -0,0 +1,239 @@
+package io.github.ckofa.translitrenamer;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic generator of folder trees for the end-to-end performance suite.
+ * <p>
+ * Every folder down to {@code depth} levels below the root has {@code fanOut} subfolders and
+ * {@code filesPerFolder} empty files. A share of {@code cyrillicRatio} of the file names is written in Cyrillic,
+ * the rest in Latin; the same settings and seed always give the same tree, names included. Folder names are Latin,
+ * so only the files are renamed and the tree can be checked by counting names.
+ * </p>
+ */
+final class SyntheticTree {
+
+    private static final String LATIN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_-";
+    private static final String CYRILLIC = "абвгдеёжзийклмнопрстуфхцчшщъыьэюяАБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ";
+    private static final String EXTENSION = ".txt";
+
+    private final int depth;
+    private final int fanOut;
+    private final int filesPerFolder;
+    private final int nameLength;
+    private final double cyrillicRatio;
+    private final long seed;
+
+    private SyntheticTree(Builder builder) {
+        this.depth = builder.depth;
+        this.fanOut = builder.fanOut;
+        this.filesPerFolder = builder.filesPerFolder;
+        this.nameLength = builder.nameLength;
+        this.cyrillicRatio = builder.cyrillicRatio;
+        this.seed = builder.seed;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return number of folders in the tree, the root included
+     */
+    long folderCount() {
+        long folders = 0;
+        long level = 1;
+        for (int i = 0; i <= depth; i++) {
+            folders += level;
+            level *= fanOut;
+        }
+        return folders;
+    }
+
+    /**
+     * @return number of files in the tree
+     */
+    long fileCount() {
+        return folderCount() * filesPerFolder;
+    }
+
+    /**
+     * Creates the tree in the root folder, which is created if needed and should be empty.
+     *
+     * @param root root folder of the tree
+     * @return number of files with a cyrillic name
+     * @throws IOException if a folder or file could not be created
+     */
+    long create(Path root) throws IOException {
+        Random random = new Random(seed);
+        return createFolder(Files.createDirectories(root), 0, random, new StringBuilder(nameLength));
+    }
+
+    private long createFolder(Path folder, int level, Random random, StringBuilder name) throws IOException {
+        long cyrillic = 0;
+        int stemLength = Math.max(1, nameLength - EXTENSION.length());
+        for (int i = 0; i < filesPerFolder; i++) {
+            boolean isCyrillic = random.nextDouble() < cyrillicRatio;
+            String alphabet = isCyrillic ? CYRILLIC : LATIN;
+            // The numeric prefix keeps the names of a folder unique; at least one letter follows it
+            name.setLength(0);
+            name.append(i).append('_');
+            do {
+                name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            } while (name.length() < stemLength);
+            if (isCyrillic) {
+                cyrillic++;
+            }
+            Files.createFile(folder.resolve(name.append(EXTENSION).toString()));
+        }
+        if (level < depth) {
+            for (int i = 0; i < fanOut; i++) {
+                cyrillic += createFolder(Files.createDirectory(folder.resolve("d" + i)), level + 1, random, name);
+            }
+        }
+        return cyrillic;
+    }
+
+    /**
+     * Counts the files of the tree whose name still contains Cyrillic letters.
+     *
+     * @param root root folder of the tree
+     * @return number of files with a cyrillic name
+     * @throws IOException if the tree could not be read
+     */
+    static long countCyrillicFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().chars().anyMatch(ch -> CYRILLIC.indexOf(ch) >= 0))
+                    .count();
+        }
+    }
+
+    /**
+     * Deletes the folder with all its contents, ignoring a missing folder.
+     *
+     * @param folder folder to delete
+     * @throws IOException if something could not be deleted
+     */
+    static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "depth=" + depth + ", fanOut=" + fanOut + ", filesPerFolder=" + filesPerFolder
+                + ", nameLength=" + nameLength + ", cyrillicRatio=" + cyrillicRatio + ", seed=" + seed;
+    }
+
+    /**
+     * Builder for {@link SyntheticTree}.
+     */
+    static final class Builder {
+
+        private int depth = 2;
+        private int fanOut = 4;
+        private int filesPerFolder = 100;
+        private int nameLength = 24;
+        private double cyrillicRatio = 0.2;
+        private long seed = 42;
+
+        private Builder() {
+        }
+
+        /**
+         * @param depth number of folder levels below the root
+         * @return this builder
+         */
+        Builder depth(int depth) {
+            if (depth < 0) {
+                throw new IllegalArgumentException("Depth must not be negative: " + depth);
+            }
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * @param fanOut number of subfolders of every folder above the last level
+         * @return this builder
+         */
+        Builder fanOut(int fanOut) {
+            if (fanOut < 0) {
+                throw new IllegalArgumentException("Fan-out must not be negative: " + fanOut);
+            }
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        /**
+         * @param filesPerFolder number of files in every folder
+         * @return this builder
+         */
+        Builder filesPerFolder(int filesPerFolder) {
+            if (filesPerFolder < 0) {
+                throw new IllegalArgumentException("Files per folder must not be negative: " + filesPerFolder);
+            }
+            this.filesPerFolder = filesPerFolder;
+            return this;
+        }
+
+        /**
+         * @param nameLength length of the file names in characters, the extension included; cyrillic names take
+         *                   two bytes per letter and grow when transliterated, so the limit is well below 255
+         * @return this builder
+         */
+        Builder nameLength(int nameLength) {
+            if (nameLength < 8 || nameLength > 100) {
+                throw new IllegalArgumentException("Name length must be between 8 and 100: " + nameLength);
+            }
+            this.nameLength = nameLength;
+            return this;
+        }
+
+        /**
+         * @param cyrillicRatio share of cyrillic file names, from 0 to 1
+         * @return this builder
+         */
+        Builder cyrillicRatio(double cyrillicRatio) {
+            if (!(cyrillicRatio >= 0 && cyrillicRatio <= 1)) {
+                throw new IllegalArgumentException("Cyrillic ratio must be between 0 and 1: " + cyrillicRatio);
+            }
+            this.cyrillicRatio = cyrillicRatio;
+            return this;
+        }
+
+        /**
+         * @param seed random seed, the same seed gives the same tree
+         * @return this builder
+         */
+        Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        SyntheticTree build() {
+            return new SyntheticTree(this);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CyrillicDetectorTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"документ.txt", "report_отчет.pdf", "Ёлка", "ґанок", "ўсход", "љубав", "Ѐ", "ӿ"})
+    @DisplayName("Names with characters of the basic Cyrillic block should be detected")
+    void containsCyrillic_whenBasicCyrillic_shouldReturnTrue(String name) {
+        assertTrue(CyrillicDetector.BASIC.containsCyrillic(name));
+        assertTrue(CyrillicDetector.EXTENDED.containsCyrillic(name));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "document.pdf", "Café-Müller.txt", "日本語.txt", "emoji_😀.png", "Ͽ"})
+    @DisplayName("Names without Cyrillic should not be detected")
+    void containsCyrillic_whenNoCyrillic_shouldReturnFalse(String name) {
+        assertFalse(CyrillicDetector.BASIC.containsCyrillic(name));
+        assertFalse(CyrillicDetector.EXTENDED.containsCyrillic(name));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Ԁ", "name_ԯ", "ᲀ", "ⷠ", "Ꙁ", "ꚟ", "x𞀰y"})
+    @DisplayName("Supplement and Extended blocks should be detected only by the extended detector")
+    void containsCyrillic_whenExtendedBlocks_shouldDependOnDetector(String name) {
+        assertFalse(CyrillicDetector.BASIC.containsCyrillic(name));
+        assertTrue(CyrillicDetector.EXTENDED.containsCyrillic(name));
+    }
+
+    @Test
+    @DisplayName("Unpaired surrogates should not break detection")
+    void containsCyrillic_whenUnpairedSurrogate_shouldContinueScanning() {
+        assertFalse(CyrillicDetector.EXTENDED.containsCyrillic("\uD838"));
+        assertTrue(CyrillicDetector.EXTENDED.containsCyrillic("\uD838я"));
+    }
+
+    @Test
+    @DisplayName("Result should match Character.UnicodeBlock for every BMP character")
+    void containsCyrillic_shouldMatchUnicodeBlockForBasicDetector() {
+        for (char ch = 0; ch < Character.MAX_VALUE; ch++) {
+            boolean expected = Character.UnicodeBlock.of(ch) == Character.UnicodeBlock.CYRILLIC;
+            assertEquals(expected, CyrillicDetector.BASIC.containsCyrillic(String.valueOf(ch)), "Char " + (int) ch);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -133,4 +134,20 @@ class CyrillicFileFinderTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    @DisplayName("forEachFileOrThrow should pass every cyrillic file to the action")
+    void forEachFileOrThrow_shouldPassCyrillicFilesToAction() throws IOException {
+        //---- Preparation ----
+        new File(tempDir, "отчет.xlsx").createNewFile();
+        new File(tempDir, "report.xlsx").createNewFile();
+        List<File> foundFiles = new ArrayList<>();
+
+        // --- Action ---
+        fileFinder.forEachFileOrThrow(tempDir.toString(), foundFiles::add);
+
+        // --- Check ---
+        assertEquals(1, foundFiles.size());
+        assertEquals("отчет.xlsx", foundFiles.get(0).getName());
+    }
+
 }
\ No newline at end of file
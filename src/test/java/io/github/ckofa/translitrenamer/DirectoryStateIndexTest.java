@@ -0,0 +1,220 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryStateIndexTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Second run should not list folders that have not changed and have no matches")
+    void scan_whenFoldersUnchanged_shouldSkipThem() throws IOException {
+        //---- Preparation ----
+        Path root = tempDir.resolve("root");
+        Path clean = Files.createDirectories(root.resolve("clean/nested"));
+        Files.createFile(root.resolve("clean/latin.txt"));
+        Files.createFile(clean.resolve("other.txt"));
+        makeOld(root, root.resolve("clean"), clean);
+        Path indexFile = tempDir.resolve("state.idx");
+
+        scan(root, indexFile);
+
+        // --- Action ---
+        DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+        Files.createFile(clean.resolve("файл.txt"));
+        Files.setLastModifiedTime(clean, FileTime.fromMillis(System.currentTimeMillis()));
+        Set<String> found = scan(root, index, indexFile);
+
+        // --- Check ---
+        assertEquals(Set.of("файл.txt"), found, "A file in a modified folder below an unchanged one must be found");
+        assertEquals(2, index.getSkippedDirectories());
+        assertEquals(3, index.getSkippedEntries());
+    }
+
+    @Test
+    @DisplayName("Folders with matches should be listed again on the next run")
+    void scan_whenFolderHadMatches_shouldListItAgain() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("root"));
+        Files.createFile(root.resolve("документ.txt"));
+        makeOld(root);
+        Path indexFile = tempDir.resolve("state.idx");
+        scan(root, indexFile);
+
+        // --- Action ---
+        DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+        Set<String> found = scan(root, index, indexFile);
+
+        // --- Check ---
+        assertEquals(Set.of("документ.txt"), found);
+        assertEquals(0, index.getSkippedDirectories());
+    }
+
+    @Test
+    @DisplayName("A folder with a subfolder skipped as a duplicate should be listed again on the next run")
+    void scan_whenSubfolderSkippedAsDuplicate_shouldListParentAgain() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("root"));
+        Path archive = Files.createDirectories(root.resolve("archive"));
+        Files.createFile(archive.resolve("latin.txt"));
+        Files.createSymbolicLink(root.resolve("link"), archive);
+        makeOld(root, archive);
+        Path indexFile = tempDir.resolve("state.idx");
+        RecursiveCyrillicFileFinder.Builder builder = RecursiveCyrillicFileFinder.builder()
+                .followLinks(true).deduplicate(true).parallelism(2);
+        DirectoryStateIndex first = DirectoryStateIndex.empty();
+        builder.stateIndex(first).build().findFilesOrThrow(root.toString());
+        first.save(indexFile);
+
+        // --- Action ---
+        DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+        builder.stateIndex(index).build().findFilesOrThrow(root.toString());
+
+        // --- Check ---
+        assertEquals(1, index.getSkippedDirectories(), "Only the scanned path of the archive may be skipped");
+    }
+
+    @Test
+    @DisplayName("Folders modified shortly before the previous scan should not be trusted")
+    void scan_whenFolderModifiedJustBeforeScan_shouldListItAgain() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("root"));
+        Files.createFile(root.resolve("latin.txt"));
+        Path indexFile = tempDir.resolve("state.idx");
+        scan(root, indexFile);
+
+        // --- Action ---
+        DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+        scan(root, index, indexFile);
+
+        // --- Check ---
+        assertEquals(0, index.getSkippedDirectories());
+    }
+
+    @Test
+    @DisplayName("An index written with other scan settings should be discarded")
+    void load_whenScanSettingsDiffer_shouldReturnEmptyIndex() throws IOException {
+        //---- Preparation ----
+        Path root = tempDir.resolve("root");
+        Path deep = Files.createDirectories(root.resolve("level1/level2"));
+        Files.createFile(deep.resolve("файл.txt"));
+        makeOld(root, root.resolve("level1"), deep);
+        Path indexFile = tempDir.resolve("state.idx");
+        // A narrower scan records level1 as clean without knowing its subfolders
+        DirectoryStateIndex narrow = DirectoryStateIndex.load(indexFile, "depth=1");
+        RecursiveCyrillicFileFinder.builder().maxDepth(1).stateIndex(narrow).build().findFilesOrThrow(root.toString());
+        narrow.save(indexFile);
+
+        // --- Action ---
+        DirectoryStateIndex same = DirectoryStateIndex.load(indexFile, "depth=1");
+        DirectoryStateIndex wider = DirectoryStateIndex.load(indexFile, "depth=2");
+        Set<String> found = scan(root, wider, indexFile);
+
+        // --- Check ---
+        Path level1 = root.resolve("level1");
+        assertTrue(same.isUnchanged(level1.toAbsolutePath(), Files.getLastModifiedTime(level1)));
+        assertEquals(Set.of("файл.txt"), found, "The wider scan must not trust folders recorded by the narrower one");
+        assertEquals(0, wider.getSkippedDirectories());
+    }
+
+    @Test
+    @DisplayName("Damaged index file should result in a full scan")
+    void load_whenFileDamaged_shouldReturnEmptyIndex() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("root"));
+        Files.createFile(root.resolve("файл.txt"));
+        Path indexFile = Files.write(tempDir.resolve("state.idx"), new byte[]{0x54, 0x52, 0x44});
+
+        // --- Action ---
+        DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+        Set<String> found = scan(root, index, indexFile);
+
+        // --- Check ---
+        assertEquals(Set.of("файл.txt"), found);
+        assertEquals(0, index.getSkippedDirectories());
+    }
+
+    @Test
+    @DisplayName("An index with an impossible record count or path length should be ignored, not crash the run")
+    void load_whenLengthsCorrupt_shouldReturnEmptyIndex() throws IOException {
+        //---- Preparation ----
+        Path hugeCount = Files.write(tempDir.resolve("count.idx"), indexBytes(Integer.MAX_VALUE, 16));
+        Path negativeLength = Files.write(tempDir.resolve("length.idx"), indexBytes(1, -5));
+        Path tooLong = Files.write(tempDir.resolve("long.idx"), indexBytes(1, 1000));
+
+        // --- Action & Check ---
+        for (Path indexFile : List.of(hugeCount, negativeLength, tooLong)) {
+            DirectoryStateIndex index = DirectoryStateIndex.load(indexFile);
+            assertFalse(index.isUnchanged(tempDir, FileTime.fromMillis(0)), indexFile.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Missing index file should give an empty index")
+    void load_whenFileMissing_shouldReturnEmptyIndex() {
+        DirectoryStateIndex index = DirectoryStateIndex.load(tempDir.resolve("missing.idx"));
+
+        assertEquals(0, index.getSkippedDirectories());
+        assertFalse(index.isUnchanged(tempDir, FileTime.fromMillis(0)));
+    }
+
+    /**
+     * Builds an index file with a valid header and one record of the given path length, followed by 16 bytes.
+     */
+    private static byte[] indexBytes(int count, int pathLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x54524458);
+        out.writeInt(2);
+        out.writeInt(0);
+        out.writeLong(0);
+        out.writeInt(count);
+        out.writeInt(pathLength);
+        out.write(new byte[16]);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void makeOld(Path... directories) throws IOException {
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        for (Path directory : directories) {
+            Files.setLastModifiedTime(directory, old);
+        }
+    }
+
+    private static Set<String> scan(Path root, Path indexFile) throws IOException {
+        return scan(root, DirectoryStateIndex.empty(), indexFile);
+    }
+
+    private static Set<String> scan(Path root, DirectoryStateIndex index, Path indexFile) throws IOException {
+        List<File> files = RecursiveCyrillicFileFinder.builder()
+                .parallelism(2)
+                .stateIndex(index)
+                .build()
+                .findFilesOrThrow(root.toString());
+        index.save(indexFile);
+        return files.stream().map(File::getName).collect(Collectors.toSet());
+    }
+}
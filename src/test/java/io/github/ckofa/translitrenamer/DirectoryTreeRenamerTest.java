@@ -0,0 +1,128 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectoryTreeRenamerTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Folders and files of the whole tree should be renamed in one pass, the root folder kept")
+    void renameTree_shouldRenameFoldersAfterTheirContents() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("Корень"));
+        Files.createDirectories(root.resolve("Документы/Фото"));
+        Files.createFile(root.resolve("Документы/Фото/снимок.jpg"));
+        Files.createFile(root.resolve("Документы/отчет.txt"));
+        Files.createDirectories(root.resolve("Проекты/Документы"));
+        Files.createFile(root.resolve("Проекты/Документы/план.txt"));
+        Files.createFile(root.resolve("Проекты/latin.txt"));
+        TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null,
+                RenameOptions.builder().nameCacheSize(16).build());
+
+        // --- Action ---
+        RenameResult result = DirectoryTreeRenamer.builder(fileRenamer).build().renameTree(root.toString());
+
+        // --- Check ---
+        assertEquals(7, result.getRenamedCount());
+        assertEquals(0, result.getFailedCount());
+        assertTrue(Files.isRegularFile(root.resolve("Dokumenty/Foto/snimok.jpg")));
+        assertTrue(Files.isRegularFile(root.resolve("Dokumenty/otchet.txt")));
+        assertTrue(Files.isRegularFile(root.resolve("Proekty/Dokumenty/plan.txt")));
+        assertTrue(Files.isRegularFile(root.resolve("Proekty/latin.txt")));
+        assertTrue(Files.isDirectory(root), "The root folder must keep its name");
+
+        // Children are renamed before their folder
+        List<Path> sources = new ArrayList<>();
+        result.getOutcomes().forEach(outcome -> sources.add(outcome.source()));
+        assertTrue(sources.indexOf(root.resolve("Документы/Фото/снимок.jpg"))
+                < sources.indexOf(root.resolve("Документы/Фото")));
+        assertTrue(sources.indexOf(root.resolve("Документы/Фото")) < sources.indexOf(root.resolve("Документы")));
+    }
+
+    @Test
+    @DisplayName("With depth 0 only the entries of the root folder should be renamed, folders included")
+    void renameTree_withMaxDepthZero_shouldNotEnterSubfolders() throws IOException {
+        //---- Preparation ----
+        Files.createDirectories(tempDir.resolve("папка"));
+        Files.createFile(tempDir.resolve("папка/файл.txt"));
+        Files.createFile(tempDir.resolve("файл.txt"));
+        TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null);
+
+        // --- Action ---
+        RenameResult result = DirectoryTreeRenamer.builder(fileRenamer).maxDepth(0).build()
+                .renameTree(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(2, result.getRenamedCount());
+        assertTrue(Files.isRegularFile(tempDir.resolve("fayl.txt")));
+        assertTrue(Files.isRegularFile(tempDir.resolve("papka/файл.txt")));
+    }
+
+    @Test
+    @DisplayName("Undo of a journaled tree rename should restore every folder and file")
+    void undo_afterTreeRename_shouldRestoreTree() throws IOException {
+        //---- Preparation ----
+        Files.createDirectories(tempDir.resolve("tree/Альбом/Лето"));
+        Files.createFile(tempDir.resolve("tree/Альбом/Лето/море.jpg"));
+        Path journalFile = tempDir.resolve("run.journal");
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(null,
+                    RenameOptions.builder().journal(journal).build());
+            DirectoryTreeRenamer.builder(fileRenamer).build().renameTree(tempDir.resolve("tree").toString());
+        }
+        assertTrue(Files.isRegularFile(tempDir.resolve("tree/Albom/Leto/more.jpg")));
+
+        // --- Action ---
+        RenameResult undone;
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            undone = new TransliterationFileRenamer(null).undo(journal);
+        }
+
+        // --- Check ---
+        assertEquals(3, undone.getRenamedCount());
+        assertTrue(Files.isRegularFile(tempDir.resolve("tree/Альбом/Лето/море.jpg")));
+    }
+
+    @Test
+    @DisplayName("Name cache should transliterate a repeated name once and evict the least recently used one")
+    void nameCache_shouldReuseAndEvict() {
+        //---- Preparation ----
+        List<String> computed = new ArrayList<>();
+        NameCache cache = new NameCache(name -> {
+            computed.add(name);
+            return TransliteratorUtils.transliterate(name);
+        }, 2);
+
+        // --- Action ---
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals("Dokumenty", cache.apply("Документы"));
+        }
+        cache.apply("Фото");
+        cache.apply("Документы");
+        cache.apply("Музыка"); // evicts "Фото", the least recently used
+        cache.apply("Фото");
+
+        // --- Check ---
+        assertEquals(List.of("Документы", "Фото", "Музыка", "Фото"), computed);
+        assertEquals(1_000, cache.getHits());
+        assertEquals(2, cache.size());
+    }
+}
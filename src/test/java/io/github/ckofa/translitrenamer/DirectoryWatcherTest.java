@@ -0,0 +1,185 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DirectoryWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private DirectoryWatcher watcher;
+    private Thread watcherThread;
+
+    @AfterEach
+    void stopWatcher() throws Exception {
+        if (watcher != null) {
+            watcher.close();
+            watcherThread.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    @DisplayName("A new file with a cyrillic name should be renamed while watching")
+    void run_whenFileCreated_shouldRenameIt() throws Exception {
+        //---- Preparation ----
+        Files.createFile(tempDir.resolve("latin.txt"));
+        start(DirectoryWatcher.builder(tempDir, new TransliterationFileRenamer(new CyrillicFileFinder()))
+                .debounce(Duration.ofMillis(50)));
+
+        // --- Action ---
+        Files.createFile(tempDir.resolve("отчет.txt"));
+
+        // --- Check ---
+        awaitTrue(() -> Files.exists(tempDir.resolve("otchet.txt")));
+        assertFalse(Files.exists(tempDir.resolve("отчет.txt")));
+        assertTrue(Files.exists(tempDir.resolve("latin.txt")));
+    }
+
+    @Test
+    @DisplayName("Files in a new subfolder should be renamed in recursive mode")
+    void run_whenSubfolderCreated_shouldWatchAndListIt() throws Exception {
+        //---- Preparation ----
+        start(DirectoryWatcher.builder(tempDir, new TransliterationFileRenamer(new CyrillicFileFinder()))
+                .maxDepth(Integer.MAX_VALUE)
+                .debounce(Duration.ofMillis(50)));
+
+        // --- Action ---
+        Path nested = Files.createDirectories(tempDir.resolve("a/b"));
+        Files.createFile(nested.resolve("файл.txt"));
+
+        // --- Check ---
+        awaitTrue(() -> Files.exists(nested.resolve("fayl.txt")));
+        awaitTrue(() -> watcher.getWatchedDirectoryCount() == 3);
+    }
+
+    @Test
+    @DisplayName("A burst of new files should be passed to the renamer in a few batches, not one by one")
+    void run_whenManyFilesCreated_shouldCoalesceEvents() throws Exception {
+        //---- Preparation ----
+        List<List<File>> batches = new CopyOnWriteArrayList<>();
+        FileRenamer fileRenamer = mock(FileRenamer.class);
+        doAnswer(invocation -> {
+            batches.add(List.copyOf(invocation.getArgument(0)));
+            return RenameResult.empty();
+        }).when(fileRenamer).renameFiles(anyList());
+        start(DirectoryWatcher.builder(tempDir, fileRenamer).debounce(Duration.ofMillis(500)));
+
+        // --- Action ---
+        for (int i = 0; i < 50; i++) {
+            Files.write(tempDir.resolve("файл" + i + ".txt"), new byte[]{1});
+        }
+
+        // --- Check ---
+        awaitTrue(() -> batches.stream().mapToInt(List::size).sum() == 50);
+        assertTrue(batches.size() <= 2, "Events must be coalesced, batches: " + batches.size());
+    }
+
+    @Test
+    @DisplayName("A file created after the watcher was built but before it runs should be renamed")
+    void run_whenFileCreatedBeforeRun_shouldRenameIt() throws Exception {
+        //---- Preparation ----
+        watcher = DirectoryWatcher.builder(tempDir, new TransliterationFileRenamer(new CyrillicFileFinder()))
+                .debounce(Duration.ofMillis(50))
+                .build();
+        // Created while the first pass over the folder would be running
+        Files.createFile(tempDir.resolve("отчет.txt"));
+
+        // --- Action ---
+        watcherThread = new Thread(watcher::run, "test-watcher");
+        watcherThread.start();
+
+        // --- Check ---
+        awaitTrue(() -> Files.exists(tempDir.resolve("otchet.txt")));
+    }
+
+    @Test
+    @DisplayName("A symbolic link back to a parent folder should not be registered again when links are followed")
+    void build_withLinkLoop_shouldRegisterEveryFolderOnce() throws Exception {
+        //---- Preparation ----
+        Path nested = Files.createDirectories(tempDir.resolve("a/b"));
+        Files.createSymbolicLink(nested.resolve("back"), tempDir.resolve("a"));
+
+        // --- Action ---
+        watcher = DirectoryWatcher.builder(tempDir, mock(FileRenamer.class))
+                .maxDepth(Integer.MAX_VALUE)
+                .followLinks(true)
+                .build();
+        watcherThread = new Thread(watcher::run, "test-watcher");
+        watcherThread.start();
+
+        // --- Check ---
+        assertEquals(3, watcher.getWatchedDirectoryCount());
+    }
+
+    @Test
+    @DisplayName("A file rejected by the filter should be left alone and renamed once the filter accepts it")
+    void run_whenFileFilteredOut_shouldRenameItOnceAccepted() throws Exception {
+        //---- Preparation ----
+        AtomicBoolean uploadComplete = new AtomicBoolean();
+        start(DirectoryWatcher.builder(tempDir, new TransliterationFileRenamer(new CyrillicFileFinder()))
+                .debounce(Duration.ofMillis(50))
+                .recheckInterval(Duration.ofMillis(200))
+                .filter((name, attrs) -> uploadComplete.get()));
+
+        // --- Action ---
+        Files.createFile(tempDir.resolve("отчет.txt"));
+        Thread.sleep(500);
+        boolean renamedWhileRejected = Files.exists(tempDir.resolve("otchet.txt"));
+        uploadComplete.set(true);
+
+        // --- Check ---
+        assertFalse(renamedWhileRejected, "A file rejected by the filter must not be renamed");
+        awaitTrue(() -> Files.exists(tempDir.resolve("otchet.txt")));
+    }
+
+    @Test
+    @DisplayName("Builder should reject a path that is not a directory")
+    void build_whenNotDirectory_shouldThrowException() throws IOException {
+        Path file = Files.createFile(tempDir.resolve("file.txt"));
+        FileRenamer fileRenamer = mock(FileRenamer.class);
+
+        assertThrows(IllegalArgumentException.class, () -> DirectoryWatcher.builder(file, fileRenamer).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> DirectoryWatcher.builder(tempDir, fileRenamer).debounce(Duration.ofMillis(-1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> DirectoryWatcher.builder(tempDir, fileRenamer).recheckInterval(Duration.ZERO));
+    }
+
+    private void start(DirectoryWatcher.Builder builder) throws IOException {
+        watcher = builder.build();
+        watcherThread = new Thread(watcher::run, "test-watcher");
+        watcherThread.start();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition was not met in time");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EntryFilterTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @ParameterizedTest
+    @DisplayName("Globs should match the whole file name")
+    @CsvSource({
+            "*.jpg,        фото.jpg,      true",
+            "*.jpg,        фото.jpeg,     false",
+            "'*.{jpg,png}', фото.png,      true",
+            "отчет_??.txt, отчет_01.txt,  true",
+            "отчет_??.txt, отчет_1.txt,   false",
+            "[!.]*,        .скрытый,      false",
+            "file(1).txt,  file(1).txt,   true",
+            "a+b.txt,      aab.txt,       false"
+    })
+    void glob_shouldMatchWholeName(String glob, String name, boolean expected) {
+        assertEquals(expected, EntryFilter.glob(glob).accept(name, attributes(0, NOW)));
+    }
+
+    @Test
+    @DisplayName("Invalid globs should be rejected")
+    void glob_whenInvalid_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.glob("*.{jpg,png"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.glob("[abc"));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.glob(""));
+    }
+
+    @Test
+    @DisplayName("Extensions should be compared without regard to case, with or without a dot")
+    void extensions_shouldIgnoreCase() {
+        EntryFilter filter = EntryFilter.extensions("jpg", ".PNG");
+
+        assertTrue(filter.accept("Фото.JPG", attributes(0, NOW)));
+        assertTrue(filter.accept("фото.png", attributes(0, NOW)));
+        assertFalse(filter.accept("фото.jpeg", attributes(0, NOW)));
+        assertFalse(filter.accept(".jpg", attributes(0, NOW)), "A name that is only the extension has no extension");
+    }
+
+    @Test
+    @DisplayName("Size and time bounds should be checked against the attributes")
+    void sizeAndTime_shouldUseAttributes() {
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        BasicFileAttributes fresh = attributes(100, NOW.minusSeconds(60));
+        BasicFileAttributes old = attributes(5_000, NOW.minus(Duration.ofHours(2)));
+
+        EntryFilter size = EntryFilter.size(1_000, Long.MAX_VALUE);
+        EntryFilter older = EntryFilter.olderThan(Duration.ofHours(1), clock);
+        EntryFilter newer = EntryFilter.newerThan(Duration.ofHours(1), clock);
+
+        assertFalse(size.accept("файл", fresh));
+        assertTrue(size.accept("файл", old));
+        assertFalse(older.accept("файл", fresh));
+        assertTrue(older.accept("файл", old));
+        assertTrue(newer.accept("файл", fresh));
+        assertFalse(newer.accept("файл", old));
+        assertTrue(EntryFilter.modifiedBefore(NOW.minusSeconds(1)).accept("файл", old));
+        assertTrue(EntryFilter.modifiedAfter(NOW.minusSeconds(61)).accept("файл", fresh));
+        assertThrows(IllegalArgumentException.class, () -> EntryFilter.size(10, 5));
+    }
+
+    @Test
+    @DisplayName("Include and exclude globs should be combined: any include, no exclude")
+    void of_shouldCombineIncludesAndExcludes() {
+        EntryFilter filter = EntryFilter.of(List.of("*.jpg", "*.png"), List.of("черновик*"));
+
+        assertTrue(filter.accept("фото.jpg", attributes(0, NOW)));
+        assertTrue(filter.accept("схема.png", attributes(0, NOW)));
+        assertFalse(filter.accept("черновик.jpg", attributes(0, NOW)));
+        assertFalse(filter.accept("отчет.txt", attributes(0, NOW)));
+        assertSame(EntryFilter.ALL, EntryFilter.of(List.of(), List.of()));
+    }
+
+    @Test
+    @DisplayName("Hidden files should be recognized by a leading dot")
+    void notHidden_shouldRejectDotFiles() {
+        EntryFilter filter = EntryFilter.notHidden();
+
+        assertFalse(filter.accept(".заметки.txt", attributes(0, NOW)));
+        assertTrue(filter.accept("заметки.txt", attributes(0, NOW)));
+        assertTrue(filter.negate().accept(".заметки.txt", attributes(0, NOW)));
+        assertSame(filter, EntryFilter.ALL.and(filter));
+        assertSame(EntryFilter.ALL, filter.or(EntryFilter.ALL));
+    }
+
+    private static BasicFileAttributes attributes(long size, Instant modified) {
+        BasicFileAttributes attrs = mock(BasicFileAttributes.class);
+        when(attrs.size()).thenReturn(size);
+        when(attrs.lastModifiedTime()).thenReturn(FileTime.from(modified));
+        return attrs;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileKeySetTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("The key of a hard link should be found as already added")
+    void add_withHardLink_shouldReturnFalse() throws IOException {
+        //---- Preparation ----
+        Path file = Files.createFile(tempDir.resolve("файл.txt"));
+        Path link = Files.createLink(tempDir.resolve("ссылка.txt"), file);
+        Path other = Files.createFile(tempDir.resolve("другой.txt"));
+        FileKeySet keys = new FileKeySet(FileKeySet.DEFAULT_MAX_KEYS);
+
+        // --- Action & Check ---
+        assertTrue(keys.add(fileKey(file)));
+        assertFalse(keys.add(fileKey(link)));
+        assertTrue(keys.add(fileKey(other)));
+        assertTrue(keys.add(null), "Without a key nothing can be deduplicated");
+        assertEquals(2, keys.size());
+    }
+
+    @Test
+    @DisplayName("Keys added from several threads should each be added once, past many table resizes")
+    void add_fromManyThreads_shouldKeepEveryKeyOnce() throws Exception {
+        //---- Preparation ----
+        FileKeySet keys = new FileKeySet(FileKeySet.DEFAULT_MAX_KEYS);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // --- Action ---
+        // Every thread adds the same keys, so every key is new for exactly one of them
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                int added = 0;
+                for (int i = 0; i < 50_000; i++) {
+                    if (keys.add("(dev=fe00,ino=" + i + ")")) {
+                        added++;
+                    }
+                }
+                return added;
+            }));
+        }
+        int added = 0;
+        for (Future<Integer> future : futures) {
+            added += future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // --- Check ---
+        assertEquals(50_000, added);
+        assertEquals(50_000, keys.size());
+        assertEquals(0, keys.getUntrackedCount());
+    }
+
+    @Test
+    @DisplayName("A full set should stop storing keys and count them as untracked")
+    void add_whenFull_shouldStayBounded() {
+        //---- Preparation ----
+        FileKeySet keys = new FileKeySet(1024);
+
+        // --- Action ---
+        for (int i = 0; i < 10_000; i++) {
+            keys.add("(dev=fe00,ino=" + i + ")");
+        }
+
+        // --- Check ---
+        assertTrue(keys.size() <= 1024, "Size " + keys.size());
+        assertEquals(10_000, keys.size() + keys.getUntrackedCount());
+        assertFalse(keys.add("(dev=fe00,ino=0)"), "The first key was stored before the set filled up");
+        assertThrows(IllegalArgumentException.class, () -> new FileKeySet(0));
+    }
+
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileMoverTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(RenameBackend.class)
+    @DisplayName("Both backends should rename files and never replace an existing file")
+    void move_shouldRenameWithoutReplacing(RenameBackend backend) throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("папка"));
+        Path source = Files.writeString(folder.resolve("файл.txt"), "source");
+        Path other = Files.writeString(folder.resolve("другой.txt"), "other");
+        Path taken = Files.writeString(folder.resolve("drugoy.txt"), "taken");
+
+        // --- Action ---
+        try (FileMover mover = FileMover.open(backend)) {
+            mover.move(source, folder.resolve("fayl.txt"));
+
+            // --- Check ---
+            assertThrows(FileAlreadyExistsException.class, () -> mover.move(other, taken));
+            assertThrows(NoSuchFileException.class, () -> mover.move(source, folder.resolve("снова.txt")));
+        }
+        assertEquals("source", Files.readString(folder.resolve("fayl.txt")));
+        assertEquals("other", Files.readString(other));
+        assertEquals("taken", Files.readString(taken));
+        assertFalse(Files.exists(source));
+    }
+
+    @Test
+    @DisplayName("Moves through a folder handle should stay in the opened folder when the folder is moved away")
+    void move_whenFolderIsReplaced_shouldStayInOpenedFolder() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("папка"));
+        Path first = Files.createFile(folder.resolve("первый.txt"));
+        Files.createFile(folder.resolve("второй.txt"));
+        assumeSecureDirectoryStream(folder);
+
+        // --- Action ---
+        try (FileMover mover = FileMover.open(RenameBackend.DIRECTORY_HANDLE)) {
+            mover.move(first, folder.resolve("pervyy.txt"));
+            // The folder is swapped for another one with the same file names after its handle was opened
+            Path moved = tempDir.resolve("moved");
+            Files.move(folder, moved);
+            Files.createDirectories(folder);
+            Files.createFile(folder.resolve("второй.txt"));
+            mover.move(folder.resolve("второй.txt"), folder.resolve("vtoroy.txt"));
+
+            // --- Check ---
+            assertTrue(Files.exists(moved.resolve("pervyy.txt")));
+            assertTrue(Files.exists(moved.resolve("vtoroy.txt")), "The rename must happen in the opened folder");
+            assertTrue(Files.exists(folder.resolve("второй.txt")), "The replacement folder must not be touched");
+        }
+    }
+
+    @Test
+    @DisplayName("The renamer should move files through the configured backend")
+    void renameFiles_withEachBackend_shouldRenameFiles() throws IOException {
+        for (RenameBackend backend : RenameBackend.values()) {
+            //---- Preparation ----
+            Path folder = Files.createDirectories(tempDir.resolve(backend.name()));
+            File first = Files.createFile(folder.resolve("первый.txt")).toFile();
+            File second = Files.createFile(folder.resolve("второй.txt")).toFile();
+            RenameOptions options = RenameOptions.builder().backend(backend).concurrency(2).build();
+
+            // --- Action ---
+            RenameResult result;
+            try (TransliterationFileRenamer renamer = new TransliterationFileRenamer(new CyrillicFileFinder(), options)) {
+                result = renamer.renameFiles(List.of(first, second));
+            }
+
+            // --- Check ---
+            assertEquals(2, result.getRenamedCount(), backend.name());
+            assertTrue(Files.exists(folder.resolve("pervyy.txt")));
+            assertTrue(Files.exists(folder.resolve("vtoroy.txt")));
+        }
+    }
+
+    private static void assumeSecureDirectoryStream(Path folder) throws IOException {
+        try (var stream = Files.newDirectoryStream(folder)) {
+            assumeTrue(stream instanceof SecureDirectoryStream, "The platform has no secure directory streams");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IoGovernorTest {
+
+    private static final long FAST = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Adaptive concurrency should ramp up while the latency stays low and halve on a latency spike")
+    void adaptive_shouldIncreaseAndBackOff() throws IOException {
+        //---- Preparation ----
+        IoGovernor governor = IoGovernor.builder().maxConcurrency(16).adaptive(true).build();
+        assertEquals(1, governor.getConcurrencyLimit(), "Adaptive concurrency starts at the minimum");
+
+        // --- Action ---
+        // Slow start: every full round of fast operations doubles the limit
+        for (int round = 0; round < 4; round++) {
+            completeRound(governor, FAST);
+        }
+        int rampedUp = governor.getConcurrencyLimit();
+        // The storage slows down: every round of slow operations halves the limit
+        completeRound(governor, SLOW);
+        int afterSpike = governor.getConcurrencyLimit();
+        completeRound(governor, SLOW);
+        completeRound(governor, SLOW);
+        int afterCongestion = governor.getConcurrencyLimit();
+
+        // --- Check ---
+        assertEquals(16, rampedUp);
+        assertEquals(8, afterSpike);
+        assertTrue(afterCongestion < afterSpike, "The limit must keep falling while the latency stays high");
+        assertTrue(afterCongestion >= 1);
+    }
+
+    @Test
+    @DisplayName("After a back-off the limit should grow by one per round")
+    void adaptive_afterBackOff_shouldIncreaseAdditively() throws IOException {
+        //---- Preparation ----
+        IoGovernor governor = IoGovernor.builder().maxConcurrency(64).adaptive(true).build();
+        for (int round = 0; round < 3; round++) {
+            completeRound(governor, FAST);
+        }
+        completeRound(governor, SLOW);
+        int afterSpike = governor.getConcurrencyLimit();
+
+        // --- Action ---
+        // Latencies at the new, higher level are the storage's normal once the long average catches up
+        for (int i = 0; i < 2000; i++) {
+            governor.acquire();
+            governor.release(SLOW);
+        }
+        int limit = governor.getConcurrencyLimit();
+        completeRound(governor, SLOW);
+
+        // --- Check ---
+        assertEquals(4, afterSpike);
+        assertEquals(limit + 1, governor.getConcurrencyLimit());
+    }
+
+    @Test
+    @DisplayName("A sequential caller should never raise the limit, and latencies below the floor never lower it")
+    void adaptive_withSequentialCallerAndFastOperations_shouldKeepLimit() throws IOException {
+        //---- Preparation ----
+        IoGovernor governor = IoGovernor.builder().maxConcurrency(8).minConcurrency(2).adaptive(true)
+                .latencyFloor(Duration.ofMillis(100)).build();
+
+        // --- Action ---
+        for (int i = 0; i < 100; i++) {
+            governor.acquire();
+            governor.release(i % 10 == 0 ? SLOW : FAST);
+        }
+
+        // --- Check ---
+        assertEquals(2, governor.getConcurrencyLimit());
+    }
+
+    @Test
+    @DisplayName("Operations should start no faster than the rate cap")
+    void call_withRateCap_shouldSpreadOperations() throws IOException {
+        //---- Preparation ----
+        IoGovernor governor = IoGovernor.builder().maxOpsPerSecond(200).maxConcurrency(4).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        // --- Action ---
+        long start = System.nanoTime();
+        for (int i = 0; i < 41; i++) {
+            governor.run(calls::incrementAndGet);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // --- Check ---
+        assertEquals(41, calls.get());
+        assertTrue(elapsedMillis >= 190, "41 operations at 200/s take at least 200 ms, took " + elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("No more operations than the limit should be in flight at once")
+    void call_fromManyThreads_shouldRespectConcurrencyLimit() throws Exception {
+        //---- Preparation ----
+        IoGovernor governor = IoGovernor.builder().maxConcurrency(3).build();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // --- Action ---
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 5; j++) {
+                    governor.run(() -> {
+                        peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        sleep(2);
+                        inFlight.decrementAndGet();
+                    });
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // --- Check ---
+        assertTrue(peak.get() <= 3, "Peak concurrency was " + peak.get());
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    @DisplayName("The renamer should move files through the governor")
+    void renameFiles_withGovernor_shouldRenameFiles() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("папка"));
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(Files.createFile(folder.resolve("файл_" + i + ".txt")).toFile());
+        }
+        IoGovernor governor = IoGovernor.builder().maxOpsPerSecond(1000).maxConcurrency(4).adaptive(true).build();
+        RenameOptions options = RenameOptions.builder().concurrency(4).governor(governor).build();
+
+        // --- Action ---
+        RenameResult result;
+        try (TransliterationFileRenamer renamer = new TransliterationFileRenamer(new CyrillicFileFinder(), options)) {
+            result = renamer.renameFiles(files);
+        }
+
+        // --- Check ---
+        assertEquals(10, result.getRenamedCount());
+        assertTrue(Files.exists(folder.resolve("fayl_9.txt")));
+    }
+
+    /**
+     * Runs one full round at the current limit: as many operations in flight as the limit allows, all with the same
+     * latency.
+     */
+    private static void completeRound(IoGovernor governor, long latencyNanos) throws IOException {
+        int limit = governor.getConcurrencyLimit();
+        for (int i = 0; i < limit; i++) {
+            governor.acquire();
+        }
+        for (int i = 0; i < limit; i++) {
+            governor.release(latencyNanos);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManifestRenamerTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A NUL-delimited manifest should rename every listed file, names with newlines included")
+    void run_withNulDelimiter_shouldRenameListedFiles() throws IOException {
+        //---- Preparation ----
+        Path first = Files.createFile(tempDir.resolve("первый.txt"));
+        Path second = Files.createFile(tempDir.resolve("два\nстроки.txt"));
+        Path latin = Files.createFile(tempDir.resolve("latin.txt"));
+        String manifest = first + "\0" + second + "\0" + latin + "\0";
+        ManifestRenamer renamer = ManifestRenamer.builder(new TransliterationFileRenamer(null))
+                .delimiter(ManifestRenamer.Delimiter.NUL)
+                .build();
+
+        // --- Action ---
+        ManifestRenamer.Totals totals = renamer.run(stream(manifest));
+
+        // --- Check ---
+        assertEquals(new ManifestRenamer.Totals(3, 1, 2, 0, 0, 0), totals);
+        assertTrue(Files.exists(tempDir.resolve("pervyy.txt")));
+        assertTrue(Files.exists(tempDir.resolve("dva\nstroki.txt")));
+        assertTrue(Files.exists(latin));
+    }
+
+    @Test
+    @DisplayName("Paths should be passed in bounded batches, grouped by their parent folder")
+    void run_shouldBatchAndGroupByParent() throws IOException {
+        //---- Preparation ----
+        Path a = Files.createDirectories(tempDir.resolve("a"));
+        Path b = Files.createDirectories(tempDir.resolve("b"));
+        String manifest = String.join("\r\n",
+                a.resolve("один.txt").toString(),
+                b.resolve("два.txt").toString(),
+                a.resolve("три.txt").toString(),
+                "",
+                b.resolve("четыре.txt").toString(),
+                a.resolve("пять.txt").toString());
+        List<List<File>> batches = new ArrayList<>();
+        List<RenameResult> results = new ArrayList<>();
+        FileRenamer recorder = new FileRenamer() {
+            @Override
+            public RenameResult renameFiles(String folderPath) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public RenameResult renameFiles(List<File> files) {
+                batches.add(List.copyOf(files));
+                return RenameResult.empty();
+            }
+        };
+        ManifestRenamer renamer = ManifestRenamer.builder(recorder)
+                .batchSize(4)
+                .batchListener(results::add)
+                .build();
+
+        // --- Action ---
+        ManifestRenamer.Totals totals = renamer.run(stream(manifest));
+
+        // --- Check ---
+        assertEquals(5, totals.paths());
+        assertEquals(List.of(
+                List.of(a.resolve("один.txt").toFile(), a.resolve("три.txt").toFile(),
+                        b.resolve("два.txt").toFile(), b.resolve("четыре.txt").toFile()),
+                List.of(a.resolve("пять.txt").toFile())), batches);
+        assertEquals(2, results.size());
+    }
+
+    private static ByteArrayInputStream stream(String manifest) {
+        return new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTableTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Entries should be materialized as the files of their folders")
+    void get_shouldBuildPathFromFolderNodes() {
+        //---- Preparation ----
+        PathTable table = new PathTable(tempDir);
+        int documents = table.addDirectory(PathTable.ROOT, "документы");
+        int reports = table.addDirectory(documents, "отчёты");
+
+        // --- Action ---
+        table.addFile(PathTable.ROOT, "корень.txt");
+        table.addFiles(reports, List.of("отчёт_1.doc", "отчёт_2.doc"));
+        table.addFile(documents, "письмо.txt");
+
+        // --- Check ---
+        assertEquals(List.of(
+                tempDir.resolve("корень.txt").toFile(),
+                tempDir.resolve("документы/отчёты/отчёт_1.doc").toFile(),
+                tempDir.resolve("документы/отчёты/отчёт_2.doc").toFile(),
+                tempDir.resolve("документы/письмо.txt").toFile()), table);
+        assertEquals(3, table.getDirectoryCount());
+        assertEquals("отчёт_2.doc", table.getName(2));
+        assertEquals(reports, table.getDirectory(1));
+        assertEquals(3, table.directoryRunEnd(1));
+        assertEquals(4, table.directoryRunEnd(3));
+    }
+
+    @Test
+    @DisplayName("A root with a trailing separator or an empty root should give the same paths as Path#resolve")
+    void get_withSpecialRoots_shouldMatchResolve() {
+        //---- Preparation ----
+        Path fileSystemRoot = tempDir.getRoot();
+        PathTable rooted = new PathTable(fileSystemRoot);
+        PathTable relative = new PathTable(Path.of(""));
+
+        // --- Action ---
+        rooted.addFile(rooted.addDirectory(PathTable.ROOT, "папка"), "файл.txt");
+        relative.addFile(relative.addDirectory(PathTable.ROOT, "папка"), "файл.txt");
+
+        // --- Check ---
+        assertEquals(fileSystemRoot.resolve("папка").resolve("файл.txt").toFile(), rooted.get(0));
+        assertEquals(Path.of("папка", "файл.txt").toFile(), relative.get(0));
+    }
+
+    @Test
+    @DisplayName("The table should grow past its initial capacity and reject changes through the list interface")
+    void add_manyEntries_shouldGrowAndStayUnmodifiable() {
+        //---- Preparation ----
+        PathTable table = new PathTable(tempDir);
+
+        // --- Action ---
+        for (int i = 0; i < 10_000; i++) {
+            int folder = table.addDirectory(PathTable.ROOT, "папка_" + i);
+            table.addFile(folder, "файл_" + i + ".txt");
+        }
+
+        // --- Check ---
+        assertEquals(10_000, table.size());
+        assertEquals(tempDir.resolve("папка_9999/файл_9999.txt").toFile(), table.get(9_999));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(10_000));
+        assertThrows(UnsupportedOperationException.class, () -> table.add(new File("x")));
+    }
+
+    @Test
+    @DisplayName("The recursive finder should return a table with every match of the tree")
+    void recursiveFinder_shouldReturnTable() throws IOException {
+        //---- Preparation ----
+        Set<File> expected = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            Path folder = Files.createDirectories(tempDir.resolve("папка_" + i).resolve("вложенная"));
+            expected.add(Files.createFile(folder.resolve("файл_" + i + ".txt")).toFile());
+            expected.add(Files.createFile(folder.getParent().resolve("документ_" + i + ".txt")).toFile());
+            Files.createFile(folder.resolve("latin_" + i + ".txt"));
+        }
+        RecursiveCyrillicFileFinder finder = RecursiveCyrillicFileFinder.builder().parallelism(4).build();
+
+        // --- Action ---
+        List<File> files = finder.findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertInstanceOf(PathTable.class, files);
+        assertEquals(expected, new HashSet<>(files));
+        assertEquals(expected.size(), files.size());
+    }
+
+    @Test
+    @DisplayName("A table larger than one batch should be renamed folder by folder with collisions resolved per folder")
+    void renameFiles_withLargeTable_shouldRenameInBatches() throws IOException {
+        //---- Preparation ----
+        int folders = 3;
+        int filesPerFolder = TransliterationFileRenamer.TABLE_BATCH_SIZE / 2 + 1;
+        for (int f = 0; f < folders; f++) {
+            Path folder = Files.createDirectories(tempDir.resolve("d" + f));
+            for (int i = 0; i < filesPerFolder; i++) {
+                Files.createFile(folder.resolve("файл_" + i + ".txt"));
+            }
+            // "fayl_0.txt" is taken, so the new name of "файл_0.txt" must get a suffix
+            Files.createFile(folder.resolve("fayl_0.txt"));
+        }
+        RecursiveCyrillicFileFinder finder = RecursiveCyrillicFileFinder.builder().build();
+        AtomicInteger reported = new AtomicInteger();
+        RenameOptions options = RenameOptions.builder()
+                .batchListener(batch -> reported.addAndGet(batch.getOutcomes().size()))
+                .build();
+
+        // --- Action ---
+        RenameResult result;
+        try (TransliterationFileRenamer renamer = new TransliterationFileRenamer(finder, options)) {
+            result = renamer.renameFiles(tempDir.toString());
+        }
+
+        // --- Check ---
+        assertEquals(folders * filesPerFolder, result.getRenamedCount());
+        assertTrue(result.getOutcomes().isEmpty(), "Outcomes of the batches must not be kept");
+        assertEquals(folders * filesPerFolder, reported.get());
+        assertEquals(0, result.getFailedCount());
+        for (int f = 0; f < folders; f++) {
+            Path folder = tempDir.resolve("d" + f);
+            assertTrue(Files.exists(folder.resolve("fayl_0_1.txt")));
+            assertTrue(Files.exists(folder.resolve("fayl_" + (filesPerFolder - 1) + ".txt")));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecursiveCyrillicFileFinderTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); //Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    @DisplayName("Should find cyrillic files in all nested folders")
+    void findFilesOrThrow_shouldFindFilesInSubfolders() throws IOException {
+        //---- Preparation ----
+        File level1 = new File(tempDir, "папка");
+        File level2 = new File(level1, "вложенная");
+        level2.mkdirs();
+        new File(tempDir, "корень.txt").createNewFile();
+        new File(level1, "первый.txt").createNewFile();
+        new File(level2, "второй.txt").createNewFile();
+        new File(level2, "latin.txt").createNewFile();
+
+        // --- Action ---
+        List<File> foundFiles = RecursiveCyrillicFileFinder.builder().parallelism(2).build()
+                .findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(3, foundFiles.size());
+        assertTrue(foundFiles.stream().anyMatch(f -> f.getName().equals("корень.txt")));
+        assertTrue(foundFiles.stream().anyMatch(f -> f.getName().equals("первый.txt")));
+        assertTrue(foundFiles.stream().anyMatch(f -> f.getName().equals("второй.txt")));
+        assertTrue(foundFiles.stream().noneMatch(File::isDirectory), "Folders must not be returned");
+    }
+
+    @Test
+    @DisplayName("Should not descend deeper than the configured max depth")
+    void findFilesOrThrow_whenMaxDepthSet_shouldStopAtDepth() throws IOException {
+        //---- Preparation ----
+        File level1 = new File(tempDir, "level1");
+        File level2 = new File(level1, "level2");
+        level2.mkdirs();
+        new File(tempDir, "ноль.txt").createNewFile();
+        new File(level1, "один.txt").createNewFile();
+        new File(level2, "два.txt").createNewFile();
+
+        // --- Action ---
+        List<File> rootOnly = RecursiveCyrillicFileFinder.builder().maxDepth(0).build()
+                .findFilesOrThrow(tempDir.toString());
+        List<File> oneLevel = RecursiveCyrillicFileFinder.builder().maxDepth(1).build()
+                .findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(1, rootOnly.size());
+        assertEquals(2, oneLevel.size());
+        assertTrue(oneLevel.stream().noneMatch(f -> f.getName().equals("два.txt")));
+    }
+
+    @Test
+    @DisplayName("Should pass only the files accepted by the filter")
+    void findFilesOrThrow_withFilter_shouldSkipRejectedFiles() throws IOException {
+        //---- Preparation ----
+        File folder = new File(tempDir, "фото");
+        folder.mkdirs();
+        new File(tempDir, "снимок.jpg").createNewFile();
+        new File(folder, "кадр.JPG").createNewFile();
+        new File(folder, "заметка.txt").createNewFile();
+        File upload = new File(folder, "загрузка.jpg");
+        upload.createNewFile();
+        long hourAgo = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        new File(tempDir, "снимок.jpg").setLastModified(hourAgo);
+        new File(folder, "кадр.JPG").setLastModified(hourAgo);
+        EntryFilter filter = EntryFilter.extensions("jpg")
+                .and(EntryFilter.olderThan(Duration.ofMinutes(10), Clock.systemUTC()));
+
+        // --- Action ---
+        List<File> foundFiles = RecursiveCyrillicFileFinder.builder().filter(filter).build()
+                .findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(2, foundFiles.size());
+        assertTrue(foundFiles.stream().anyMatch(f -> f.getName().equals("снимок.jpg")));
+        assertTrue(foundFiles.stream().anyMatch(f -> f.getName().equals("кадр.JPG")));
+    }
+
+    @Test
+    @DisplayName("Should throw IllegalArgumentException for a non-existent path")
+    void findFilesOrThrow_whenNonExistentPath_shouldThrowException() {
+        //---- Preparation ----
+        String nonExistentPath = Paths.get(tempDir.getPath(), "non_existent_dir").toString();
+        RecursiveCyrillicFileFinder fileFinder = RecursiveCyrillicFileFinder.builder().build();
+
+        // --- Action and check ---
+        assertThrows(IllegalArgumentException.class, () -> fileFinder.findFilesOrThrow(nonExistentPath));
+    }
+
+    @Test
+    @DisplayName("findFiles should return an empty list if the path is incorrect and not throw an exception")
+    void findFiles_whenInvalidPath_shouldReturnEmptyList() throws IOException {
+        //---- Preparation ----
+        File notADirectory = new File(tempDir, "a_file.txt");
+        notADirectory.createNewFile();
+
+        // --- Action ---
+        List<File> result = RecursiveCyrillicFileFinder.builder().build().findFiles(notADirectory.getAbsolutePath());
+
+        // --- Check ---
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    @DisplayName("A root folder given as a symbolic link should be scanned even when links are not followed")
+    void findFilesOrThrow_whenRootIsSymbolicLink_shouldScanTarget() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.toPath().resolve("папка"));
+        Files.createFile(folder.resolve("файл.txt"));
+        Path link = Files.createSymbolicLink(tempDir.toPath().resolve("ссылка"), folder);
+        RecursiveCyrillicFileFinder fileFinder = RecursiveCyrillicFileFinder.builder().build();
+
+        // --- Action ---
+        List<File> firstRun = fileFinder.findFilesOrThrow(link.toString());
+        List<File> secondRun = fileFinder.findFilesOrThrow(link.toString());
+
+        // --- Check ---
+        assertEquals(List.of(link.resolve("файл.txt").toFile()), firstRun);
+        assertEquals(firstRun, secondRun, "A finder must be reusable");
+    }
+
+    @Test
+    @DisplayName("A symbolic link back to a parent folder should not be followed again")
+    void findFilesOrThrow_withLinkLoop_shouldStopAtLoop() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.toPath().resolve("папка").resolve("вложенная"));
+        Files.createFile(folder.resolve("файл.txt"));
+        Files.createSymbolicLink(folder.resolve("назад"), folder.getParent());
+        RunMetrics metrics = RunMetrics.create();
+
+        // --- Action ---
+        List<File> foundFiles = RecursiveCyrillicFileFinder.builder().followLinks(true).metrics(metrics).build()
+                .findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(List.of(folder.resolve("файл.txt").toFile()), foundFiles);
+        assertEquals(1, metrics.getDuplicateDirectories());
+    }
+
+    @Test
+    @DisplayName("With deduplication, linked folders should be scanned once, every hard link should still be reported")
+    void findFilesOrThrow_withDeduplication_shouldSkipSecondFolderPaths() throws IOException {
+        //---- Preparation ----
+        Path snapshot1 = Files.createDirectories(tempDir.toPath().resolve("снимок_1"));
+        Path snapshot2 = Files.createDirectories(tempDir.toPath().resolve("снимок_2"));
+        Path original = Files.createFile(snapshot1.resolve("отчёт.txt"));
+        Files.createLink(snapshot2.resolve("отчёт.txt"), original);
+        Files.createFile(snapshot2.resolve("новый.txt"));
+        Path archive = Files.createDirectories(tempDir.toPath().resolve("архив"));
+        Files.createFile(archive.resolve("письмо.txt"));
+        Files.createSymbolicLink(tempDir.toPath().resolve("ссылка"), archive);
+        RunMetrics metrics = RunMetrics.create();
+        RecursiveCyrillicFileFinder.Builder builder = RecursiveCyrillicFileFinder.builder()
+                .followLinks(true).parallelism(2).metrics(metrics);
+
+        // --- Action ---
+        List<File> allPaths = builder.build().findFilesOrThrow(tempDir.toString());
+        List<File> deduplicated = builder.deduplicate(true).build().findFilesOrThrow(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(5, allPaths.size());
+        assertEquals(4, deduplicated.size());
+        assertEquals(2, deduplicated.stream().filter(f -> f.getName().equals("отчёт.txt")).count(),
+                "Each hard link is a name of its own");
+        assertEquals(1, deduplicated.stream().filter(f -> f.getName().equals("письмо.txt")).count());
+        assertEquals(1, metrics.getDuplicateDirectories());
+    }
+
+    @Test
+    @DisplayName("A closed finder should have shut its pool down and reject new searches")
+    void close_shouldShutDownPool() throws IOException {
+        //---- Preparation ----
+        Files.createFile(tempDir.toPath().resolve("файл.txt"));
+        RecursiveCyrillicFileFinder finder = RecursiveCyrillicFileFinder.builder().parallelism(2).build();
+        assertEquals(1, finder.findFilesOrThrow(tempDir.toString()).size());
+
+        // --- Action ---
+        finder.close();
+
+        // --- Check ---
+        assertThrows(RejectedExecutionException.class, () -> finder.findFilesOrThrow(tempDir.toString()));
+    }
+
+    @Test
+    @DisplayName("Builder should reject invalid settings")
+    void builder_whenInvalidSettings_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> RecursiveCyrillicFileFinder.builder().maxDepth(-1));
+        assertThrows(IllegalArgumentException.class, () -> RecursiveCyrillicFileFinder.builder().parallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> RecursiveCyrillicFileFinder.builder().maxTrackedKeys(0));
+    }
+}
@@ -0,0 +1,91 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenameAuditSinkTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Every outcome of the renamer should be written to the CSV audit when the sink is closed")
+    void close_shouldWriteAllRecordsAsCsv() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("folder"));
+        File first = Files.createFile(folder.resolve("отчет, итог.txt")).toFile();
+        File second = Files.createFile(folder.resolve("ѣ.txt")).toFile();
+        Path auditFile = tempDir.resolve("audit.csv");
+        RenameAuditSink sink = RenameAuditSink.open(auditFile, RenameAuditSink.Format.CSV, 1);
+        TransliterationFileRenamer renamer = new TransliterationFileRenamer(new CyrillicFileFinder(),
+                RenameOptions.builder().auditSink(sink).build());
+
+        // --- Action ---
+        renamer.renameFiles(List.of(first, second));
+        sink.close();
+
+        // --- Check ---
+        List<String> lines = Files.readAllLines(auditFile, StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("time,status,source,target,message", lines.get(0));
+        assertTrue(lines.get(1).matches("\\d+,RENAMED,\"" + folder.resolve("отчет, итог.txt") + "\",\""
+                + folder.resolve("otchet, itog.txt") + "\","), lines.get(1));
+        assertTrue(lines.get(2).matches("\\d+,SKIPPED,.*,Name does not change"), lines.get(2));
+    }
+
+    @Test
+    @DisplayName("Many small batches through a small queue should all be written in the binary format")
+    void record_whenQueueIsSmall_shouldNotLoseRecords() throws IOException {
+        //---- Preparation ----
+        Path auditFile = tempDir.resolve("audit.bin");
+        RenameAuditSink sink = RenameAuditSink.open(auditFile, RenameAuditSink.Format.BINARY, 2);
+
+        // --- Action ---
+        for (int i = 0; i < 500; i++) {
+            sink.record(List.of(RenameOutcome.renamed(tempDir.resolve("файл" + i), tempDir.resolve("fayl" + i))));
+        }
+        sink.close();
+        sink.record(List.of(RenameOutcome.renamed(tempDir.resolve("поздно"), tempDir.resolve("pozdno"))));
+
+        // --- Check ---
+        List<String> targets = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(auditFile);
+             DataInputStream in = new DataInputStream(stream)) {
+            while (in.available() > 0) {
+                assertTrue(in.readLong() > 0);
+                assertEquals(RenameOutcome.Status.RENAMED.ordinal(), in.readByte());
+                in.readUTF();
+                targets.add(in.readUTF());
+                assertEquals("", in.readUTF());
+            }
+        }
+        assertEquals(500, targets.size(), "Records after close must be ignored, none before it lost");
+        assertEquals(tempDir.resolve("fayl499").toString(), targets.get(499));
+    }
+
+    @Test
+    @DisplayName("Invalid queue capacity should be rejected")
+    void open_whenInvalidCapacity_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RenameAuditSink.open(tempDir.resolve("audit.csv"), RenameAuditSink.Format.CSV, 0));
+    }
+}
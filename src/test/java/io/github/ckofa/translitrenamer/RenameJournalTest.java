@@ -0,0 +1,152 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenameJournalTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Undo should restore the original names of a journaled run")
+    void undo_afterJournaledRun_shouldRestoreNames() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("folder"));
+        File first = Files.createFile(folder.resolve("первый.txt")).toFile();
+        File second = Files.createFile(folder.resolve("второй.txt")).toFile();
+        Path journalFile = tempDir.resolve("run.journal");
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            RenameResult result = new TransliterationFileRenamer(new CyrillicFileFinder(),
+                    RenameOptions.builder().journal(journal).build()).renameFiles(List.of(first, second));
+            assertEquals(2, result.getRenamedCount());
+        }
+
+        // --- Action ---
+        RenameResult undone;
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertEquals(2, journal.getCompleted().size());
+            undone = new TransliterationFileRenamer(null).undo(journal);
+        }
+
+        // --- Check ---
+        assertEquals(2, undone.getRenamedCount());
+        assertTrue(first.exists());
+        assertTrue(second.exists());
+        assertFalse(Files.exists(folder.resolve("pervyy.txt")));
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertTrue(journal.getCompleted().isEmpty(), "Undone moves must not be undone again");
+        }
+    }
+
+    @Test
+    @DisplayName("Resume should finish pending moves and only record the ones that already happened")
+    void resume_afterCrash_shouldFinishPendingMoves() throws IOException {
+        //---- Preparation ----
+        Path moved = Files.createFile(tempDir.resolve("moved.txt"));
+        Path pending = Files.createFile(tempDir.resolve("файл.txt"));
+        Path journalFile = tempDir.resolve("run.journal");
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            // The first move finished before the crash, the second one did not start
+            journal.appendPlanned(tempDir.resolve("перемещен.txt"), moved);
+            journal.appendPlanned(pending, tempDir.resolve("fayl.txt"));
+        }
+
+        // --- Action ---
+        RenameResult result;
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertEquals(2, journal.getPending().size());
+            result = new TransliterationFileRenamer(null).resume(journal);
+        }
+
+        // --- Check ---
+        assertEquals(1, result.getRenamedCount());
+        assertEquals(1, result.getSkippedCount());
+        assertTrue(Files.exists(tempDir.resolve("fayl.txt")));
+        assertTrue(Files.exists(moved));
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertTrue(journal.getPending().isEmpty());
+            assertEquals(2, journal.getCompleted().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Records appended during a run should go to the file only, not stay in memory")
+    void append_duringRun_shouldNotKeepRecords() throws IOException {
+        //---- Preparation ----
+        Path journalFile = tempDir.resolve("run.journal");
+
+        // --- Action ---
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            long id = journal.appendPlanned(tempDir.resolve("а.txt"), tempDir.resolve("a.txt"));
+            journal.appendCompleted(id);
+            journal.appendPlanned(tempDir.resolve("б.txt"), tempDir.resolve("b.txt"));
+
+            // --- Check ---
+            assertTrue(journal.getPending().isEmpty());
+            assertTrue(journal.getCompleted().isEmpty());
+        }
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertEquals(1, journal.getPending().size());
+            assertEquals(1, journal.getCompleted().size());
+        }
+    }
+
+    @Test
+    @DisplayName("A record torn by a crash should be discarded and new records appended after the last valid one")
+    void open_whenLastRecordIncomplete_shouldTruncateIt() throws IOException {
+        //---- Preparation ----
+        Path journalFile = tempDir.resolve("run.journal");
+        long validLength;
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            journal.appendPlanned(tempDir.resolve("а.txt"), tempDir.resolve("a.txt"));
+            journal.commit();
+            validLength = Files.size(journalFile);
+            journal.appendPlanned(tempDir.resolve("б.txt"), tempDir.resolve("b.txt"));
+        }
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(journalFile) - 3);
+        }
+
+        // --- Action ---
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            assertEquals(validLength, Files.size(journalFile));
+            journal.appendPlanned(tempDir.resolve("в.txt"), tempDir.resolve("v.txt"));
+        }
+
+        // --- Check ---
+        try (RenameJournal journal = RenameJournal.open(journalFile)) {
+            List<RenameJournal.Entry> entries = journal.getPending();
+            assertEquals(2, entries.size());
+            assertEquals(tempDir.resolve("a.txt"), entries.get(0).target());
+            assertEquals(tempDir.resolve("v.txt"), entries.get(1).target());
+            assertTrue(entries.get(1).id() > entries.get(0).id());
+        }
+    }
+
+    @Test
+    @DisplayName("A file that is not a journal should be rejected")
+    void open_whenNotJournal_shouldThrowException() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("notes.txt"), "some text that is not a journal");
+
+        assertThrows(IllegalArgumentException.class, () -> RenameJournal.open(file));
+        assertEquals("some text that is not a journal", Files.readString(file));
+    }
+}
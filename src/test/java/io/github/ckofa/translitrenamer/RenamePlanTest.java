@@ -0,0 +1,178 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenamePlanTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Two names with the same transliteration should get different targets with SUFFIX")
+    void build_whenNamesCollide_shouldAddSuffix() throws IOException {
+        //---- Preparation ----
+        File first = Files.createFile(tempDir.resolve("Ёлка.txt")).toFile();
+        File second = Files.createFile(tempDir.resolve("Елка.txt")).toFile();
+
+        // --- Action ---
+        RenamePlan plan = RenamePlan.build(List.of(first, second), CollisionStrategy.SUFFIX, TransliteratorUtils::transliterate);
+
+        // --- Check ---
+        assertFalse(plan.hasConflicts());
+        assertEquals(tempDir.resolve("Elka.txt"), plan.getEntries().get(0).target());
+        assertEquals(tempDir.resolve("Elka_1.txt"), plan.getEntries().get(1).target());
+        assertTrue(plan.getEntries().stream().allMatch(entry -> entry.action() == RenamePlan.Action.MOVE));
+    }
+
+    @Test
+    @DisplayName("An existing Latin file should never be chosen as a target")
+    void build_whenTargetExists_shouldNotOverwrite() throws IOException {
+        //---- Preparation ----
+        Files.createFile(tempDir.resolve("Elka.txt"));
+        Files.createFile(tempDir.resolve("Elka_1.txt"));
+        File cyrillic = Files.createFile(tempDir.resolve("Елка.txt")).toFile();
+
+        // --- Action ---
+        RenamePlan suffix = RenamePlan.build(List.of(cyrillic), CollisionStrategy.SUFFIX, TransliteratorUtils::transliterate);
+        RenamePlan skip = RenamePlan.build(List.of(cyrillic), CollisionStrategy.SKIP, TransliteratorUtils::transliterate);
+        RenamePlan fail = RenamePlan.build(List.of(cyrillic), CollisionStrategy.FAIL, TransliteratorUtils::transliterate);
+
+        // --- Check ---
+        assertEquals(tempDir.resolve("Elka_2.txt"), suffix.getEntries().get(0).target());
+        assertEquals(RenamePlan.Action.SKIP, skip.getEntries().get(0).action());
+        assertEquals(RenamePlan.Action.CONFLICT, fail.getEntries().get(0).action());
+        assertTrue(fail.hasConflicts());
+    }
+
+    @Test
+    @DisplayName("A name that does not change should be skipped")
+    void build_whenNameDoesNotChange_shouldSkip() {
+        //---- Preparation ----
+        File file = tempDir.resolve("ѣ.txt").toFile();
+
+        // --- Action ---
+        RenamePlan plan = RenamePlan.build(List.of(file), CollisionStrategy.SUFFIX, TransliteratorUtils::transliterate);
+
+        // --- Check ---
+        assertEquals(RenamePlan.Action.SKIP, plan.getEntries().get(0).action());
+    }
+
+    @Test
+    @DisplayName("Suffix should be inserted before the extension")
+    void freeName_shouldInsertSuffixBeforeExtension() {
+        assertEquals("report_1.gz", RenamePlan.freeName("report.gz", Set.of()));
+        assertEquals("archive.tar_2.gz", RenamePlan.freeName("archive.tar.gz", Set.of("archive.tar_1.gz")));
+        assertEquals("README_1", RenamePlan.freeName("README", Set.of()));
+        assertEquals(".hidden_1", RenamePlan.freeName(".hidden", Set.of()));
+    }
+
+    @Test
+    @DisplayName("Dry run should plan renames without touching the disk")
+    void renamer_whenDryRun_shouldNotMoveFiles() throws IOException {
+        //---- Preparation ----
+        File file = Files.createFile(tempDir.resolve("отчет.txt")).toFile();
+        TransliterationFileRenamer renamer = new TransliterationFileRenamer(new CyrillicFileFinder(),
+                RenameOptions.builder().dryRun(true).build());
+
+        // --- Action ---
+        RenameResult result = renamer.renameFiles(List.of(file));
+
+        // --- Check ---
+        assertEquals(1, result.getPlannedCount());
+        assertEquals(0, result.getRenamedCount());
+        assertTrue(file.exists());
+        assertFalse(Files.exists(tempDir.resolve("otchet.txt")));
+    }
+
+    @Test
+    @DisplayName("With FAIL strategy a single conflict should stop every rename of the batch")
+    void renamer_whenConflictWithFailStrategy_shouldNotMoveAnything() throws IOException {
+        //---- Preparation ----
+        Files.createFile(tempDir.resolve("Elka.txt"));
+        File conflicting = Files.createFile(tempDir.resolve("Елка.txt")).toFile();
+        File free = Files.createFile(tempDir.resolve("отчет.txt")).toFile();
+        TransliterationFileRenamer renamer = new TransliterationFileRenamer(new CyrillicFileFinder(),
+                RenameOptions.builder().collisionStrategy(CollisionStrategy.FAIL).build());
+
+        // --- Action ---
+        RenameResult result = renamer.renameFiles(List.of(conflicting, free));
+
+        // --- Check ---
+        assertEquals(1, result.getFailedCount());
+        assertEquals(1, result.getSkippedCount());
+        assertTrue(conflicting.exists());
+        assertTrue(free.exists());
+    }
+
+    @Test
+    @DisplayName("Batches of one folder should share its taken names until another process changes the folder")
+    void renamer_withSeveralBatches_shouldReuseTakenNames() throws IOException {
+        //---- Preparation ----
+        File first = Files.createFile(tempDir.resolve("Ёлка.txt")).toFile();
+        File second = Files.createFile(tempDir.resolve("Елка.txt")).toFile();
+        TakenNames takenNames = new TakenNames(TakenNames.DEFAULT_MAX_FOLDERS);
+        Set<String> listed = takenNames.get(tempDir);
+
+        // --- Action ---
+        RenamePlan firstPlan = RenamePlan.build(List.of(first), CollisionStrategy.SUFFIX,
+                TransliteratorUtils::transliterate, takenNames);
+        RenamePlan secondPlan = RenamePlan.build(List.of(second), CollisionStrategy.SUFFIX,
+                TransliteratorUtils::transliterate, takenNames);
+        Set<String> reused = takenNames.get(tempDir);
+        // Another process adds a file: the folder gets a new modification time
+        Files.createFile(tempDir.resolve("Новый.txt"));
+        Files.setLastModifiedTime(tempDir, FileTime.fromMillis(0));
+        Set<String> relisted = takenNames.get(tempDir);
+
+        // --- Check ---
+        assertEquals(tempDir.resolve("Elka.txt"), firstPlan.getEntries().get(0).target());
+        assertEquals(tempDir.resolve("Elka_1.txt"), secondPlan.getEntries().get(0).target(),
+                "The target planned by the first batch must stay taken");
+        assertSame(listed, reused, "An unchanged folder must not be listed again");
+        assertNotSame(listed, relisted);
+        assertTrue(relisted.contains("Новый.txt"));
+    }
+
+    @Test
+    @DisplayName("A renamer should free the names of moved files and drop folders whose moves did not happen")
+    void renamer_afterBatches_shouldUpdateTakenNames() throws IOException {
+        //---- Preparation ----
+        File moved = Files.createFile(tempDir.resolve("отчет.txt")).toFile();
+        File again = tempDir.resolve("отчет.txt").toFile();
+
+        // --- Action ---
+        RenameResult firstRun;
+        RenameResult secondRun;
+        try (TransliterationFileRenamer renamer = new TransliterationFileRenamer(null, RenameOptions.defaults())) {
+            firstRun = renamer.renameFiles(List.of(moved));
+            // The old name is free again: a new file with it gets the next free target
+            Files.createFile(again.toPath());
+            secondRun = renamer.renameFiles(List.of(again));
+        }
+
+        // --- Check ---
+        assertEquals(1, firstRun.getRenamedCount());
+        assertEquals(1, secondRun.getRenamedCount());
+        assertTrue(Files.exists(tempDir.resolve("otchet.txt")));
+        assertTrue(Files.exists(tempDir.resolve("otchet_1.txt")));
+        assertFalse(again.exists());
+    }
+}
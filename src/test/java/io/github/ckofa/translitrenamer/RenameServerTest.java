@@ -0,0 +1,286 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenameServerTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private Path socket;
+    private RenameServer server;
+
+    @BeforeEach
+    void setUp() {
+        socket = tempDir.resolve("renamer.sock");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A folder job should be renamed by the server and its outcomes sent back to the client")
+    void send_folderJob_shouldReturnOutcomes() throws IOException {
+        //---- Preparation ----
+        Path folder = Files.createDirectories(tempDir.resolve("upload"));
+        Files.createFile(folder.resolve("отчет.txt"));
+        Files.createFile(folder.resolve("latin.txt"));
+        startServer(2, 4);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // --- Action ---
+        boolean done = RenameClient.send(socket, RenameClient.jobArguments(new String[]{folder.toString()}),
+                inputStreamOf(""), new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // --- Check ---
+        assertTrue(done);
+        assertTrue(Files.exists(folder.resolve("otchet.txt")));
+        String text = output.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains(folder.resolve("отчет.txt") + " -> otchet.txt"), text);
+        assertTrue(text.endsWith("Renamed: 1, planned: 0, skipped: 0, failed: 0" + System.lineSeparator()), text);
+    }
+
+    @Test
+    @DisplayName("A manifest job should read the manifest sent after the request")
+    void send_manifestJob_shouldRenameListedFiles() throws IOException {
+        //---- Preparation ----
+        Path first = Files.createFile(tempDir.resolve("первый.txt"));
+        Path second = Files.createFile(tempDir.resolve("второй.txt"));
+        startServer(1, 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // --- Action ---
+        boolean done = RenameClient.send(socket, List.of("--manifest=-", "--null"),
+                inputStreamOf(first + "\0" + second + "\0"), new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // --- Check ---
+        assertTrue(done);
+        assertTrue(Files.exists(tempDir.resolve("pervyy.txt")));
+        assertTrue(Files.exists(tempDir.resolve("vtoroy.txt")));
+    }
+
+    @Test
+    @DisplayName("Jobs should run concurrently and each get its own result")
+    void send_concurrentJobs_shouldAllSucceed() throws Exception {
+        //---- Preparation ----
+        int jobs = 8;
+        for (int i = 0; i < jobs; i++) {
+            Files.createDirectories(tempDir.resolve("job" + i));
+            Files.createFile(tempDir.resolve("job" + i + "/файл" + i + ".txt"));
+        }
+        startServer(4, jobs);
+        ExecutorService clients = Executors.newFixedThreadPool(jobs);
+
+        try {
+            // --- Action ---
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < jobs; i++) {
+                Path folder = tempDir.resolve("job" + i);
+                results.add(clients.submit(() -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    RenameClient.send(socket, List.of(folder.toString()), inputStreamOf(""),
+                            new PrintStream(output, true, StandardCharsets.UTF_8));
+                    return output.toString(StandardCharsets.UTF_8);
+                }));
+            }
+
+            // --- Check ---
+            for (int i = 0; i < jobs; i++) {
+                String text = results.get(i).get();
+                assertTrue(text.contains("-> fayl" + i + ".txt"), text);
+                assertTrue(text.contains("Renamed: 1,"), text);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A job should be rejected when all workers are busy and the queue is full")
+    void job_whenQueueIsFull_shouldBeRejected() throws IOException {
+        //---- Preparation ----
+        startServer(1, 1);
+        // Both jobs wait for a manifest that never ends: the first one occupies the worker, the second the queue
+        SocketChannel running = openJob("--manifest=-");
+        SocketChannel queued = openJob("--manifest=-");
+
+        try {
+            // --- Action ---
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            boolean done = RenameClient.send(socket, List.of(tempDir.toString()), inputStreamOf(""),
+                    new PrintStream(output, true, StandardCharsets.UTF_8));
+
+            // --- Check ---
+            assertFalse(done);
+            assertTrue(output.toString(StandardCharsets.UTF_8).startsWith("Error: Server is busy"));
+        } finally {
+            running.shutdownOutput();
+            queued.shutdownOutput();
+        }
+        assertTrue(readLine(running).startsWith(RenameProtocol.DONE));
+        assertTrue(readLine(queued).startsWith(RenameProtocol.DONE));
+        running.close();
+        queued.close();
+    }
+
+    @Test
+    @DisplayName("A client that does not finish its request in time should not hold the worker")
+    void job_whenRequestNotFinished_shouldBeClosedAfterTimeout() throws IOException {
+        //---- Preparation ----
+        server = RenameServer.builder(socket).workers(1).queueCapacity(1)
+                .requestTimeout(Duration.ofMillis(200)).build();
+        server.start();
+        Path folder = Files.createDirectories(tempDir.resolve("upload"));
+        Files.createFile(folder.resolve("файл.txt"));
+
+        try (SocketChannel silent = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            // --- Action ---
+            silent.write(ByteBuffer.wrap("--dry-run\n".getBytes(StandardCharsets.UTF_8)));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            boolean done = RenameClient.send(socket, List.of(folder.toString()), inputStreamOf(""),
+                    new PrintStream(output, true, StandardCharsets.UTF_8));
+
+            // --- Check ---
+            assertTrue(done, output.toString(StandardCharsets.UTF_8));
+            assertEquals(-1, silent.read(ByteBuffer.allocate(16)), "The silent client must be disconnected");
+        }
+    }
+
+    @Test
+    @DisplayName("The socket should be accessible to the owner only, a created parent folder too")
+    void start_shouldRestrictSocketToOwner() throws IOException {
+        //---- Preparation ----
+        socket = tempDir.resolve("run").resolve("renamer.sock");
+
+        // --- Action ---
+        startServer(1, 1);
+
+        // --- Check ---
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())));
+    }
+
+    @Test
+    @DisplayName("Options that need a file per run should be rejected in a job")
+    void job_withJournal_shouldReturnError() throws IOException {
+        //---- Preparation ----
+        startServer(1, 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // --- Action ---
+        boolean done = RenameClient.send(socket, List.of("--journal=run.journal", tempDir.toString()),
+                inputStreamOf(""), new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // --- Check ---
+        assertFalse(done);
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("not supported in a job"));
+    }
+
+    @Test
+    @DisplayName("A sharded job should be rejected, since a job does not take the leases of the shard folder")
+    void job_withShardFolder_shouldReturnError() throws IOException {
+        //---- Preparation ----
+        startServer(1, 1);
+        Files.createFile(tempDir.resolve("файл.txt"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // --- Action ---
+        boolean done = RenameClient.send(socket,
+                List.of("--recursive", "--shard-dir=" + tempDir.resolve("shards"), tempDir.toString()),
+                inputStreamOf(""), new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        // --- Check ---
+        assertFalse(done);
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("not supported in a job"));
+        assertTrue(Files.exists(tempDir.resolve("файл.txt")));
+    }
+
+    @Test
+    @DisplayName("A client run should not start the logging framework")
+    void main_asClient_shouldNotCreateLogFile() throws Exception {
+        //---- Preparation ----
+        Path logs = tempDir.resolve("logs");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dtranslitrenamer.log.filePath=" + logs, App.class.getName(), "--client=" + socket,
+                tempDir.toString())
+                .redirectErrorStream(true)
+                .start();
+
+        // --- Action ---
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+        // --- Check ---
+        assertEquals(0, process.waitFor());
+        assertTrue(output.startsWith("Error: server at"), output);
+        assertFalse(Files.exists(logs), "No log file must be created");
+    }
+
+    @Test
+    @DisplayName("Escaped values should be restored exactly")
+    void escape_shouldRoundTrip() {
+        String value = "a\tb\nc\\d\re";
+
+        assertEquals("a\\tb\\nc\\\\d\\re", RenameProtocol.escape(value));
+        assertEquals(value, RenameProtocol.unescape(RenameProtocol.escape(value)));
+        assertSame("plain", RenameProtocol.escape("plain"));
+    }
+
+    private void startServer(int workers, int queueCapacity) throws IOException {
+        server = RenameServer.builder(socket).workers(workers).queueCapacity(queueCapacity).build();
+        server.start();
+    }
+
+    private SocketChannel openJob(String... arguments) throws IOException {
+        SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        String request = String.join("\n", arguments) + "\n\n";
+        channel.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8)));
+        return channel;
+    }
+
+    private static String readLine(SocketChannel channel) throws IOException {
+        return new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8))
+                .readLine();
+    }
+
+    private static ByteArrayInputStream inputStreamOf(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunMetricsTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A recursive run should be counted in every phase")
+    void run_shouldRecordEveryPhase() throws IOException {
+        //---- Preparation ----
+        Files.createDirectories(tempDir.resolve("sub"));
+        Files.createFile(tempDir.resolve("первый.txt"));
+        Files.createFile(tempDir.resolve("sub/второй.txt"));
+        Files.createFile(tempDir.resolve("sub/latin.txt"));
+        RunMetrics metrics = RunMetrics.create();
+        FileFinder fileFinder = RecursiveCyrillicFileFinder.builder().metrics(metrics).build();
+        TransliterationFileRenamer renamer = new TransliterationFileRenamer(fileFinder,
+                RenameOptions.builder().metrics(metrics).build());
+
+        // --- Action ---
+        renamer.renameFiles(tempDir.toString());
+
+        // --- Check ---
+        assertEquals(2, metrics.getCount(RunMetrics.Phase.LIST));
+        assertEquals(3, metrics.getCount(RunMetrics.Phase.DETECT));
+        assertEquals(2, metrics.getCount(RunMetrics.Phase.TRANSLITERATE));
+        assertEquals(2, metrics.getCount(RunMetrics.Phase.MOVE));
+        assertEquals(0, metrics.getErrors(RunMetrics.Phase.MOVE));
+        assertEquals("первый.txt".length() + "второй.txt".length() + "latin.txt".length(), metrics.getNameChars());
+        String json = metrics.getSummaryJson();
+        assertTrue(json.startsWith("{\"elapsedMillis\":"), json);
+        assertTrue(json.contains("\"move\":{\"count\":2,\"errors\":0,"), json);
+    }
+
+    @Test
+    @DisplayName("The checks of names should be counted without being timed")
+    void recordCount_shouldCountWithoutTime() {
+        RunMetrics metrics = RunMetrics.create();
+
+        metrics.recordCount(RunMetrics.Phase.DETECT, 10);
+        metrics.recordCount(RunMetrics.Phase.DETECT, 5);
+
+        assertEquals(15, metrics.getCount(RunMetrics.Phase.DETECT));
+        assertEquals(0, metrics.getTotalMillis().get("detect"));
+        assertEquals(0, metrics.getP99Micros().get("detect"));
+    }
+
+    @Test
+    @DisplayName("Disabled metrics should record nothing")
+    void disabled_shouldRecordNothing() {
+        RunMetrics metrics = RunMetrics.disabled();
+
+        metrics.record(RunMetrics.Phase.MOVE, metrics.start());
+        metrics.recordBatch(RunMetrics.Phase.DETECT, 100, 10);
+        metrics.addNameChars(42);
+
+        assertEquals(0, metrics.start());
+        assertEquals(0, metrics.getCount(RunMetrics.Phase.MOVE));
+        assertEquals(0, metrics.getCount(RunMetrics.Phase.DETECT));
+        assertEquals(0, metrics.getNameChars());
+    }
+
+    @Test
+    @DisplayName("Percentile should be reported as the upper bound of its power-of-two bucket")
+    void histogram_shouldReportBucketUpperBound() {
+        RunMetrics.LatencyHistogram histogram = new RunMetrics.LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+
+        histogram.record(100, 98);
+        histogram.record(5_000, 2);
+
+        assertEquals(127, histogram.percentile(0.50));
+        assertEquals(127, histogram.percentile(0.98));
+        assertEquals(8_191, histogram.percentile(0.99));
+    }
+
+    @Test
+    @DisplayName("Registered metrics should be readable through the platform MBean server")
+    void registerMBean_shouldExposeAttributes() throws Exception {
+        RunMetrics metrics = RunMetrics.create();
+        metrics.recordBatch(RunMetrics.Phase.DETECT, 1_000, 10);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("io.github.ckofa.translitrenamer:type=RunMetrics");
+
+        metrics.registerMBean();
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(metrics.getSummaryJson().substring(0, 10),
+                    ((String) server.getAttribute(name, "SummaryJson")).substring(0, 10));
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    @DisplayName("Delayed registration should happen after the delay and be cancelled by unregistering before it")
+    void registerMBeanAfter_shouldRegisterOnlyAfterDelay() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("io.github.ckofa.translitrenamer:type=RunMetrics");
+
+        RunMetrics cancelled = RunMetrics.create();
+        cancelled.registerMBeanAfter(Duration.ofMillis(200));
+        cancelled.unregisterMBean();
+        Thread.sleep(400);
+        assertFalse(server.isRegistered(name));
+
+        RunMetrics delayed = RunMetrics.create();
+        delayed.registerMBeanAfter(Duration.ofMillis(10));
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!server.isRegistered(name) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(server.isRegistered(name));
+        } finally {
+            delayed.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
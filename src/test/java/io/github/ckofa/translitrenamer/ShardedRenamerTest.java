@@ -0,0 +1,205 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ShardedRenamerTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("A leased unit should be held for other workers until it is done, an expired lease should be taken over")
+    void claim_shouldFollowLeaseProtocol() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Path shards = Files.createDirectories(tempDir.resolve("shards"));
+        ShardedRenamer first = ShardedRenamer.builder(root, shards).workerId("first").build();
+        ShardedRenamer second = ShardedRenamer.builder(root, shards).workerId("second").build();
+
+        // --- Action & Check ---
+        assertEquals(ShardedRenamer.Claim.ACQUIRED, first.claim("папка"));
+        assertEquals(ShardedRenamer.Claim.HELD, second.claim("папка"));
+
+        first.complete("папка", RenameResult.empty());
+        assertEquals(ShardedRenamer.Claim.DONE, second.claim("папка"));
+        assertEquals(ShardedRenamer.Claim.DONE, first.claim("папка"));
+
+        assertEquals(ShardedRenamer.Claim.ACQUIRED, first.claim("другая"));
+        // The first worker stops renewing: its lease is older than the lease duration
+        expireLeases(shards);
+        assertEquals(ShardedRenamer.Claim.ACQUIRED, second.claim("другая"));
+        assertEquals(ShardedRenamer.Claim.HELD, first.claim("другая"));
+
+        // The old owner wakes up: its lease has a next generation, so it neither renews nor releases the unit
+        first.renewLeases();
+        first.release("другая");
+        assertEquals(ShardedRenamer.Claim.HELD, first.claim("другая"), "A lost lease must not be deleted by its old owner");
+        second.complete("другая", RenameResult.empty());
+        try (Stream<Path> files = Files.list(shards)) {
+            assertEquals(2, files.filter(file -> file.toString().endsWith(".done")).count());
+        }
+        try (Stream<Path> files = Files.list(shards)) {
+            assertEquals(0, files.filter(file -> !file.toString().endsWith(".done")).count());
+        }
+    }
+
+    @Test
+    @DisplayName("A shard folder used for another tree should be refused instead of skipping its done units")
+    void run_withShardFolderOfAnotherTree_shouldThrow() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Path other = Files.createDirectories(tempDir.resolve("other"));
+        Files.createFile(root.resolve("файл.txt"));
+        Files.createFile(other.resolve("файл.txt"));
+        Path shards = Files.createDirectories(tempDir.resolve("shards"));
+        FileRenamer renamer = mock(FileRenamer.class);
+        when(renamer.renameFiles(anyString())).thenReturn(RenameResult.empty());
+        ShardedRenamer.builder(root, shards).build().run(renamer, renamer);
+
+        // --- Action & Check ---
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ShardedRenamer.builder(other, shards).build().run(renamer, renamer));
+        assertTrue(e.getMessage().contains(root.toString()), e.getMessage());
+        assertTrue(Files.exists(other.resolve("файл.txt")));
+    }
+
+    @Test
+    @DisplayName("A root still being recorded by another worker should be read again until its line is complete")
+    void run_whenShardInfoPartlyWritten_shouldWaitForIt() throws Exception {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.createFile(root.resolve("файл.txt"));
+        Path shards = Files.createDirectories(tempDir.resolve("shards"));
+        Path info = Files.writeString(shards.resolve("shard.info"), root.toString().substring(0, 3));
+        FileRenamer renamer = mock(FileRenamer.class);
+        when(renamer.renameFiles(anyString())).thenReturn(RenameResult.empty());
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+                Files.writeString(info, root.toAbsolutePath().normalize() + "\n");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // --- Action ---
+        writer.start();
+        ShardedRenamer.builder(root, shards).build().run(renamer, renamer);
+        writer.join();
+
+        // --- Check ---
+        verify(renamer).renameFiles(root.toString());
+    }
+
+    @Test
+    @DisplayName("Units should be the root files and the top-level subfolders, without the shard folder")
+    void listUnits_shouldSkipShardFolder() throws IOException {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        Files.createDirectories(root.resolve("б"));
+        Files.createDirectories(root.resolve("а"));
+        Files.createFile(root.resolve("файл.txt"));
+        Path shards = Files.createDirectories(root.resolve(".shards"));
+
+        // --- Action ---
+        List<String> units = ShardedRenamer.builder(root, shards).build().listUnits();
+
+        // --- Check ---
+        assertEquals(List.of(ShardedRenamer.ROOT_UNIT, "а", "б"), units);
+    }
+
+    @Test
+    @DisplayName("Several processes sharing one shard folder should rename the whole tree, including the units of a crashed worker")
+    void main_inSeveralProcesses_shouldRenameTreeTogether() throws Exception {
+        //---- Preparation ----
+        Path root = Files.createDirectories(tempDir.resolve("tree"));
+        int folders = 12;
+        int filesPerFolder = 20;
+        for (int f = 0; f < folders; f++) {
+            Path folder = Files.createDirectories(root.resolve("папка_" + f).resolve("вложенная"));
+            for (int i = 0; i < filesPerFolder; i++) {
+                Files.createFile((i % 2 == 0 ? folder : folder.getParent()).resolve("файл_" + i + ".txt"));
+            }
+        }
+        Files.createFile(root.resolve("корень.txt"));
+        Path shards = Files.createDirectories(tempDir.resolve("shards"));
+        // A worker that crashed while renaming a unit left its lease behind
+        ShardedRenamer crashed = ShardedRenamer.builder(root, shards).workerId("crashed").build();
+        assertEquals(ShardedRenamer.Claim.ACQUIRED, crashed.claim("папка_3"));
+        expireLeases(shards);
+
+        // --- Action ---
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            processes.add(startWorker(root, shards, "worker-" + i));
+        }
+        for (Process process : processes) {
+            assertTrue(process.waitFor(120, TimeUnit.SECONDS), "Worker did not finish in time");
+        }
+
+        // --- Check ---
+        for (Process process : processes) {
+            assertEquals(0, process.exitValue());
+        }
+        assertTrue(Files.exists(root.resolve("koren.txt")));
+        for (int f = 0; f < folders; f++) {
+            Path folder = root.resolve("папка_" + f);
+            for (int i = 0; i < filesPerFolder; i++) {
+                Path renamed = (i % 2 == 0 ? folder.resolve("вложенная") : folder).resolve("fayl_" + i + ".txt");
+                assertTrue(Files.exists(renamed), "Not renamed: " + renamed);
+            }
+        }
+        try (Stream<Path> files = Files.list(shards)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).toList();
+            assertEquals(folders + 2, names.size(), "Only the done markers and the shard info must be left: " + names);
+            assertTrue(names.stream().allMatch(name -> name.endsWith(".done") || name.equals("shard.info")),
+                    "Only done markers and the shard info: " + names);
+        }
+    }
+
+    private Process startWorker(Path root, Path shards, String workerId) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dtranslitrenamer.log.filePath=" + tempDir.resolve("logs"),
+                App.class.getName(), "--recursive", "--shard-dir=" + shards, "--lease=2",
+                "--worker-id=" + workerId, root.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(tempDir.resolve(workerId + ".out").toFile())
+                .start();
+    }
+
+    /**
+     * Moves the modification time of every lease in the shard folder past the lease duration.
+     */
+    private static void expireLeases(Path shards) throws IOException {
+        FileTime expired = FileTime.fromMillis(System.currentTimeMillis()
+                - ShardedRenamer.DEFAULT_LEASE_DURATION.plus(Duration.ofMinutes(1)).toMillis());
+        try (Stream<Path> files = Files.list(shards)) {
+            for (Path file : files.filter(file -> file.toString().endsWith(".lease")).toList()) {
+                Files.setLastModifiedTime(file, expired);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class StreamingRenamePipelineTest {
+
+    @BeforeAll
+    static void initLogPath() {
+        LogConfigHelper.initLogFilePath(App.class); // Initialization of the path to the log file, for correct operation of logging
+    }
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    @DisplayName("All found files should reach the renamer even with a queue smaller than the folder")
+    void run_whenQueueIsSmall_shouldPassAllFilesToRenamer() {
+        // ---- Preparation ----
+        String folderPath = "C:/test_folder";
+        List<File> found = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            found.add(new File(folderPath, "файл" + i + ".txt"));
+        }
+
+        FileFinder fileFinder = mock(FileFinder.class);
+        doAnswer(invocation -> {
+            Consumer<File> action = invocation.getArgument(1);
+            found.forEach(action);
+            return null;
+        }).when(fileFinder).forEachFileOrThrow(eq(folderPath), any());
+
+        List<File> renamed = new ArrayList<>();
+        FileRenamer fileRenamer = mock(FileRenamer.class);
+        doAnswer(invocation -> {
+            List<File> batch = invocation.getArgument(0);
+            assertTrue(batch.size() <= 4, "Batch must not exceed the configured size");
+            renamed.addAll(batch);
+            return RenameResult.empty();
+        }).when(fileRenamer).renameFiles(anyList());
+
+        // --- Action ---
+        new StreamingRenamePipeline(fileFinder, fileRenamer, 2, 4).run(folderPath);
+
+        // --- Check ---
+        assertEquals(found, renamed, "Files must be renamed in the order they were found");
+    }
+
+    @Test
+    @DisplayName("Failure of the scan should not reach the caller and should not call the renamer")
+    void run_whenFinderThrows_shouldSkipFolder() {
+        // ---- Preparation ----
+        String folderPath = "non_existent_folder";
+        FileFinder fileFinder = mock(FileFinder.class);
+        doThrow(new IllegalArgumentException("Path is not a valid directory"))
+                .when(fileFinder).forEachFileOrThrow(eq(folderPath), any());
+        FileRenamer fileRenamer = mock(FileRenamer.class);
+
+        // --- Action ---
+        assertDoesNotThrow(() -> new StreamingRenamePipeline(fileFinder, fileRenamer).run(folderPath));
+
+        // --- Check ---
+        verifyNoInteractions(fileRenamer);
+    }
+
+    @Test
+    @DisplayName("Files in a real folder should be renamed through the pipeline, the outcomes going to the listener")
+    void run_withRealFolder_shouldRenameFiles() throws IOException {
+        // ---- Preparation ----
+        new File(tempDir, "первый.txt").createNewFile();
+        new File(tempDir, "второй.txt").createNewFile();
+        new File(tempDir, "latin.txt").createNewFile();
+        FileFinder fileFinder = new CyrillicFileFinder();
+        List<RenameOutcome> outcomes = new ArrayList<>();
+        RenameOptions options = RenameOptions.builder()
+                .batchListener(batch -> outcomes.addAll(batch.getOutcomes()))
+                .build();
+
+        // --- Action ---
+        RenameResult result;
+        try (TransliterationFileRenamer fileRenamer = new TransliterationFileRenamer(fileFinder, options)) {
+            result = new StreamingRenamePipeline(fileFinder, fileRenamer, 1, 1).run(tempDir.toString());
+        }
+
+        // --- Check ---
+        assertEquals(2, result.getRenamedCount());
+        assertTrue(result.getOutcomes().isEmpty(), "The pipeline must keep only the counters");
+        assertEquals(2, outcomes.size());
+        assertTrue(new File(tempDir, "pervyy.txt").exists());
+        assertTrue(new File(tempDir, "vtoroy.txt").exists());
+        assertTrue(new File(tempDir, "latin.txt").exists());
+        assertEquals(3, tempDir.list().length);
+    }
+
+    @Test
+    @DisplayName("Constructor should reject invalid sizes")
+    void constructor_whenInvalidSizes_shouldThrowException() {
+        FileFinder fileFinder = mock(FileFinder.class);
+        FileRenamer fileRenamer = mock(FileRenamer.class);
+        assertThrows(IllegalArgumentException.class, () -> new StreamingRenamePipeline(fileFinder, fileRenamer, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingRenamePipeline(fileFinder, fileRenamer, 1, 0));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -14,10 +15,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -67,8 +69,8 @@ class TransliterationFileRenamerTest {
             fileRenamer.renameFiles(folderPath);
 
             // --- Check ---
-            filesMockedStatic.verify(() -> Files.move(sourcePath1, expectedNewPath1, StandardCopyOption.REPLACE_EXISTING));
-            filesMockedStatic.verify(() -> Files.move(sourcePath2, expectedNewPath2, StandardCopyOption.REPLACE_EXISTING));
+            filesMockedStatic.verify(() -> Files.move(sourcePath1, expectedNewPath1));
+            filesMockedStatic.verify(() -> Files.move(sourcePath2, expectedNewPath2));
         }
 
     }
@@ -118,17 +120,21 @@ class TransliterationFileRenamerTest {
 
         try (MockedStatic<Files> filesMockedStatic = Mockito.mockStatic(Files.class)) {
             // Configure the Files.move moc to throw an IOException for the first file
-            filesMockedStatic.when(() -> Files.move(eq(sourcePath1), any(Path.class), any(StandardCopyOption.class)))
+            filesMockedStatic.when(() -> Files.move(eq(sourcePath1), any(Path.class)))
                     .thenThrow(new IOException("Access Denied"));
 
             // --- Action ---
-            fileRenamer.renameFiles(files);
+            RenameResult result = fileRenamer.renameFiles(files);
 
             // --- Check ---
+            assertEquals(1, result.getRenamedCount());
+            assertEquals(1, result.getFailedCount());
+            assertEquals(RenameOutcome.Status.FAILED, result.getOutcomes().get(0).status());
+            assertEquals(RenameOutcome.Status.RENAMED, result.getOutcomes().get(1).status());
             // Check that an attempt was made to rename the FIRST (unsuccessful) file
-            filesMockedStatic.verify(() -> Files.move(sourcePath1, expectedNewPath1, StandardCopyOption.REPLACE_EXISTING));
+            filesMockedStatic.verify(() -> Files.move(sourcePath1, expectedNewPath1));
             // Check that the SECOND (successful) file has also been processed
-            filesMockedStatic.verify(() -> Files.move(sourcePath2, expectedNewPath2, StandardCopyOption.REPLACE_EXISTING));
+            filesMockedStatic.verify(() -> Files.move(sourcePath2, expectedNewPath2));
         }
     }
 
@@ -148,5 +154,28 @@ class TransliterationFileRenamerTest {
         }
     }
 
+    @Test
+    @DisplayName("Concurrent renaming should process every file and report each outcome in order")
+    void renameFiles_whenConcurrent_shouldRenameAllFiles(@TempDir Path tempDir) throws IOException {
+        // ---- Preparation ----
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            files.add(Files.createFile(tempDir.resolve("файл_" + i + ".txt")).toFile());
+        }
+        TransliterationFileRenamer concurrentRenamer = new TransliterationFileRenamer(mockFileFinder,
+                RenameOptions.builder().concurrency(8).build());
+
+        // --- Action ---
+        RenameResult result = concurrentRenamer.renameFiles(files);
+
+        // --- Check ---
+        assertEquals(40, result.getRenamedCount());
+        assertEquals(0, result.getFailedCount());
+        for (int i = 0; i < 40; i++) {
+            RenameOutcome outcome = result.getOutcomes().get(i);
+            assertEquals(files.get(i).toPath(), outcome.source());
+            assertTrue(Files.exists(tempDir.resolve("fayl_" + i + ".txt")));
+        }
+    }
 
-}
\ No newline at end of file
+}
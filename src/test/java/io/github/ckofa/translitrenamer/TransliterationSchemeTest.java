@@ -0,0 +1,214 @@
+package io.github.ckofa.translitrenamer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransliterationSchemeTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest(name = "{0}: {1} -> {2}")
+    @DisplayName("Every built-in scheme should transliterate with its own table and context rules")
+    @CsvSource({
+            "default, Объём Щука, Obem Schuka",
+            "default, Ґанок Ўзлаў, Ganok Uzlau",
+            "gost-7.79, Щука цирк цокот, Shhuka cirk czokot",
+            "gost-7.79, Объём Эхо, Ob``yom E`xo",
+            "iso-9, Щука Жёлтый, Ŝuka Žëltyj",
+            "bgn-pcgn, Ель поезд мечеть, Yelʹ poyezd mechetʹ",
+            "bgn-pcgn, Ёж поёт, Yëzh poyët",
+            "ukrainian, Згорани Яготин Миколаїв, Zghorany Yahotyn Mykolaiv",
+            "ukrainian, Їжакевич Знам'янка, Yizhakevych Znam'ianka",
+            "belarusian, Ельск Мазыр Віцебск, Yelʹsk Mazyr Vitsyebsk",
+            "belarusian, Ўладзімір Магілёў, Wladzimir Mahilyow",
+            "serbian, Џеко Ђорђевић Љубав, Džeko Đorđević Ljubav"
+    })
+    void transliterate_withBuiltInScheme(String name, String cyrillic, String expectedLatin) {
+        assertEquals(expectedLatin, TransliterationScheme.forName(name).transliterate(cyrillic));
+    }
+
+    @Test
+    @DisplayName("Default scheme should keep the characters it does not know and return the same instance")
+    void transliterate_whenNothingToReplace_shouldReturnSameInstance() {
+        TransliterationScheme scheme = TransliterationScheme.defaultScheme();
+        String text = "ѣ-latin.txt";
+
+        assertSame(text, scheme.transliterate(text));
+        assertEquals("", scheme.transliterate(null));
+    }
+
+    @Test
+    @DisplayName("A scheme should be compiled once and shared")
+    void forName_shouldReturnSameInstance() {
+        assertSame(TransliterationScheme.forName("iso-9"), TransliterationScheme.forName("iso-9"));
+        assertSame(TransliterationScheme.defaultScheme(), TransliterationScheme.resolve("default"));
+        assertThrows(IllegalArgumentException.class, () -> TransliterationScheme.forName("klingon"));
+    }
+
+    @Test
+    @DisplayName("A custom scheme file should derive upper case rules and keep explicit ones")
+    void load_shouldCompileCustomFile() throws IOException {
+        //---- Preparation ----
+        Path file = tempDir.resolve("custom.tr");
+        Files.writeString(file, String.join("\n",
+                "# custom scheme",
+                "ж = zh",
+                "Ж = ZH        # explicit upper case",
+                "к = k",
+                "^к = q",
+                "к[ж] = x"), StandardCharsets.UTF_8);
+
+        // --- Action ---
+        TransliterationScheme scheme = TransliterationScheme.resolve(file.toString());
+
+        // --- Check ---
+        assertEquals("custom.tr", scheme.getName());
+        assertEquals("ZHuk qok axzh Qot", scheme.transliterate("Жuk кok aкж Кot"));
+    }
+
+    @Test
+    @DisplayName("An invalid rule should be reported with its line number")
+    void compile_whenInvalidRule_shouldThrowException() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TransliterationScheme.compile("broken", new StringReader("а = a\n[аб = b\n")));
+
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("One scheme instance should give the same results from many threads")
+    void transliterate_fromManyThreads_shouldBeConsistent() throws Exception {
+        //---- Preparation ----
+        TransliterationScheme scheme = TransliterationScheme.forName("ukrainian");
+        String expected = scheme.transliterate("Згорани Яготин Миколаїв");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // --- Action ---
+            List<Future<Boolean>> results = executor.invokeAll(Collections.nCopies(64, () -> {
+                for (int i = 0; i < 1_000; i++) {
+                    if (!expected.equals(scheme.transliterate("Згорани Яготин Миколаїв"))) {
+                        return false;
+                    }
+                }
+                return true;
+            }));
+
+            // --- Check ---
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @DisplayName("Streaming transliteration should give the same text as the string method, whatever the buffer size")
+    @CsvSource({
+            "default, Объём Щука; ёлка Ёж",
+            "gost-7.79, Щука цирк цокот Объём",
+            "ukrainian, Згорани Яготин Миколаїв Їжакевич Знам'янка",
+            "belarusian, Ельск Мазыр Віцебск Ўладзімір",
+            "bgn-pcgn, Ель поезд мечеть Ёж поёт"
+    })
+    void transliterate_toStreams_shouldMatchString(String name, String text) throws IOException {
+        //---- Preparation ----
+        TransliterationScheme scheme = TransliterationScheme.forName(name);
+        String expected = scheme.transliterate(text);
+
+        // --- Action & Check ---
+        assertEquals(expected, scheme.transliterate(text, new StringBuilder()).toString());
+        assertEquals(expected, scheme.transliterate(new StringBuilder(text), new StringWriter()).toString());
+        assertEquals(expected, scheme.transliterate(text, (Appendable) new StringBuffer()).toString());
+        // Small buffers put the context of many characters across a buffer boundary
+        for (int bufferSize = 1; bufferSize <= 9; bufferSize++) {
+            StringWriter writer = new StringWriter();
+            long written = scheme.transliterate(new StringReader(text), writer, bufferSize);
+            assertEquals(expected, writer.toString(), "buffer size " + bufferSize);
+            assertEquals(expected.length(), written);
+
+            CharBuffer buffer = CharBuffer.allocate(Math.max(bufferSize, 4));
+            StringBuilder drained = new StringBuilder();
+            int next = 0;
+            while (next < text.length()) {
+                next = scheme.transliterate(text, next, buffer);
+                drained.append(buffer.flip());
+                buffer.clear();
+            }
+            assertEquals(expected, drained.toString(), "char buffer of " + buffer.capacity());
+        }
+    }
+
+    @Test
+    @DisplayName("A large stream should be transliterated in constant memory, chunk by chunk")
+    void transliterate_largeStream_shouldProcessEverything() throws IOException {
+        //---- Preparation ----
+        String line = "Щука;Отчёт за январь.xlsx;Объём\n";
+        int lines = 200_000;
+        Reader in = new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                long total = (long) line.length() * lines;
+                if (position >= total) {
+                    return -1;
+                }
+                int count = (int) Math.min(length, total - position);
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = line.charAt((position + i) % line.length());
+                }
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long[] charsWritten = new long[1];
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                charsWritten[0] += length;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // --- Action ---
+        long written = TransliteratorUtils.transliterate(in, out);
+
+        // --- Check ---
+        assertEquals((long) TransliteratorUtils.transliterate(line).length() * lines, written);
+        assertEquals(written, charsWritten[0]);
+    }
+}
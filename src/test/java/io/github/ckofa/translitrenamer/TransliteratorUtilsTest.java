@@ -7,6 +7,7 @@ import org.junit.jupiter.params.provider.CsvSource;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.CharBuffer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -64,6 +65,39 @@ class TransliteratorUtilsTest {
         assertEquals(expectedLatin, TransliteratorUtils.transliterate(cyrillic));
     }
 
+    @Test
+    @DisplayName("A string without characters to replace should be returned as the same instance")
+    void transliterate_whenNothingToReplace_shouldReturnSameInstance() {
+        String inputText = "Café report 2024 – final";
+        assertSame(inputText, TransliteratorUtils.transliterate(inputText));
+    }
+
+    @Test
+    @DisplayName("Every letter of the alphabet should be replaced, including ones that disappear")
+    void transliterate_wholeAlphabet() {
+        assertEquals("ABVGDEEZhZIYKLMNOPRSTUFKhTsChShSchYEYuYa",
+                TransliteratorUtils.transliterate("АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ"));
+        assertEquals("abvgdeezhziyklmnoprstufkhtschshschyeyuya",
+                TransliteratorUtils.transliterate("абвгдеёжзийклмнопрстуфхцчшщъыьэюя"));
+    }
+
+    @Test
+    @DisplayName("Text should be transliterated into a small buffer chunk by chunk")
+    void transliterate_intoCharBuffer_shouldResumeFromReturnedIndex() {
+        String text = "Щука и жёлудь";
+        CharBuffer buffer = CharBuffer.allocate(4);
+        StringBuilder result = new StringBuilder();
+
+        int next = 0;
+        while (next < text.length()) {
+            next = TransliteratorUtils.transliterate(text, next, buffer);
+            result.append(buffer.flip());
+            buffer.clear();
+        }
+
+        assertEquals(TransliteratorUtils.transliterate(text), result.toString());
+    }
+
     @Test
     @DisplayName("Null input should return an empty string")
     void testTransliterateNullInput() {